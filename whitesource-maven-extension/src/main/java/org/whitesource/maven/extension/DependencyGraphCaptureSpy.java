@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven.extension;
+
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.project.DependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionResult;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.graph.DependencyNode;
+import org.whitesource.maven.utils.dependencies.DependencyGraphFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maven core extension capturing the dependency graph of each module while the normal build resolves it.
+ * <p>
+ * Maven dispatches every project dependency resolution of the build (on the thread building the module, also in
+ * parallel builds) as a request event followed by a result event. The graph of the latest fully resolved result is
+ * attached to the module as the {@link DependencyGraphFactory#CAPTURED_DEPENDENCY_GRAPH_KEY} context value, where the
+ * WhiteSource goals executed later in the same session (e.g. {@code mvn package whitesource:update}) pick it up instead
+ * of resolving the module a second time. Modules without a captured graph are resolved by the goals as usual.
+ * <p>
+ * Requires maven 3.1 or later. Register it as a core extension in {@code .mvn/extensions.xml}:
+ * <pre>
+ * &lt;extensions&gt;
+ *     &lt;extension&gt;
+ *         &lt;groupId&gt;org.whitesource&lt;/groupId&gt;
+ *         &lt;artifactId&gt;whitesource-maven-extension&lt;/artifactId&gt;
+ *         &lt;version&gt;...&lt;/version&gt;
+ *     &lt;/extension&gt;
+ * &lt;/extensions&gt;
+ * </pre>
+ */
+public class DependencyGraphCaptureSpy extends AbstractEventSpy {
+
+    /* --- Private Members --- */
+
+    private final ThreadLocal<MavenProject> resolvingProject = new ThreadLocal<MavenProject>();
+    private final AtomicInteger capturedProjects = new AtomicInteger();
+    private final AtomicInteger incompleteGraphs = new AtomicInteger();
+
+    private Logger logger;
+
+    /* --- EventSpy implementation --- */
+
+    @Override
+    public void onEvent(Object event) {
+        if (event instanceof DependencyResolutionRequest) {
+            resolvingProject.set(((DependencyResolutionRequest) event).getMavenProject());
+        } else if (event instanceof DependencyResolutionResult) {
+            MavenProject project = resolvingProject.get();
+            resolvingProject.remove();
+            if (project != null) {
+                capture(project, (DependencyResolutionResult) event);
+            }
+        } else if (event instanceof ExecutionEvent) {
+            onExecutionEvent((ExecutionEvent) event);
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private void capture(MavenProject project, DependencyResolutionResult result) {
+        DependencyNode graph = result.getDependencyGraph();
+        if (graph == null || !result.getCollectionErrors().isEmpty()) {
+            return;
+        }
+
+        // artifacts outside the resolved scopes have no file, such a graph can't be used for the scan
+        if (isFullyResolved(graph)) {
+            boolean firstCapture = project.getContextValue(DependencyGraphFactory.CAPTURED_DEPENDENCY_GRAPH_KEY) == null;
+            project.setContextValue(DependencyGraphFactory.CAPTURED_DEPENDENCY_GRAPH_KEY, graph);
+            if (firstCapture) {
+                capturedProjects.incrementAndGet();
+            }
+            debug("Captured dependency graph of " + project.getId());
+        } else {
+            incompleteGraphs.incrementAndGet();
+            debug("Dependency graph of " + project.getId() + " is not fully resolved, not captured");
+        }
+    }
+
+    private void onExecutionEvent(ExecutionEvent event) {
+        switch (event.getType()) {
+            case ProjectFailed:
+                // don't scan partial results of failed modules
+                if (event.getProject().getContextValue(DependencyGraphFactory.CAPTURED_DEPENDENCY_GRAPH_KEY) != null) {
+                    event.getProject().setContextValue(DependencyGraphFactory.CAPTURED_DEPENDENCY_GRAPH_KEY, null);
+                    capturedProjects.decrementAndGet();
+                }
+                break;
+            case SessionEnded:
+                if (logger != null) {
+                    logger.info("WhiteSource: captured the dependency graphs of " + capturedProjects.get() + " of "
+                            + event.getSession().getProjects().size() + " modules ("
+                            + incompleteGraphs.get() + " partially resolved graphs skipped)");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isFullyResolved(DependencyNode graph) {
+        Deque<DependencyNode> stack = new ArrayDeque<DependencyNode>(graph.getChildren());
+        while (!stack.isEmpty()) {
+            DependencyNode node = stack.pop();
+            if (node.getDependency() != null && node.getDependency().getArtifact().getFile() == null) {
+                return false;
+            }
+            stack.addAll(node.getChildren());
+        }
+        return true;
+    }
+
+    private void debug(String message) {
+        if (logger != null && logger.isDebugEnabled()) {
+            logger.debug(message);
+        }
+    }
+}
@@ -8,17 +8,33 @@ import org.apache.maven.project.DependencyResolutionException;
 import org.apache.maven.project.MavenProject;
 import org.whitesource.agent.api.dispatch.BaseCheckPoliciesResult;
 import org.whitesource.agent.api.model.*;
-import org.whitesource.agent.hash.ChecksumUtils;
 import org.whitesource.agent.report.PolicyCheckReport;
+import org.whitesource.maven.utils.archive.NestedArchiveEntry;
+import org.whitesource.maven.utils.archive.NestedArchiveScanner;
+import org.whitesource.maven.utils.budget.DegradationLevel;
+import org.whitesource.maven.utils.budget.TimeBudget;
+import org.whitesource.maven.utils.checksum.ChecksumPolicy;
+import org.whitesource.maven.utils.checksum.ChecksumPrefetcher;
+import org.whitesource.maven.utils.checksum.ChecksumResolver;
+import org.whitesource.maven.utils.checksum.PersistentChecksumCache;
+import org.whitesource.maven.utils.checksum.Sha1;
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+import org.whitesource.maven.utils.concurrent.HostRateLimiter;
+import org.whitesource.maven.utils.concurrent.IoExecutor;
+import org.whitesource.maven.utils.concurrent.TaskTimings;
 import org.whitesource.maven.utils.dependencies.*;
+import org.whitesource.maven.utils.dependencies.compact.CompactDependencyGraph;
+import org.whitesource.maven.utils.index.DependencyIndex;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
+import org.whitesource.maven.utils.remote.RemoteCacheClient;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Concrete implementation holding common functionality to all goals in this plugin that use the agent API.
@@ -34,6 +50,14 @@ public abstract class AgentMojo extends WhitesourceMojo {
     private static final String SCOPE_PROVIDED = "provided";
     private static final String FILENAME_PATTERN = "{0}-{1}.{2}";
     public static final String DASH = "-";
+    private static final String NESTED_PATH_SEPARATOR = "!/";
+    private static final String MODULE_TIMINGS_FILE = "module-timings.properties";
+    private static final String DEFERRED_MODULES_FILE = "deferred-modules.txt";
+    private static final String REMOTE_DEPENDENCIES_NAMESPACE = "dependencies";
+    private static final int REMOTE_CACHE_TIMEOUT_MILLIS = 10000;
+    private static final String PREFETCH_FILE_PREFIX = "last-run-artifacts-";
+    private static final String PATH_SEPARATOR = " > ";
+    private static final int PREFETCH_CONCURRENCY = 2;
 
     /* --- Members --- */
 
@@ -205,6 +229,119 @@ public abstract class AgentMojo extends WhitesourceMojo {
     @Parameter(alias = "updateEmptyProject", property = Constants.UPDATE_EMPTY_PROJECT, required = false, defaultValue = "true")
     protected boolean updateEmptyProject;
 
+    /**
+     * Optional. Set to false to always resolve the dependency graphs again, instead of rebuilding them from the
+     * artifacts maven already resolved for the modules.
+     */
+    @Parameter(alias = "reuseResolvedArtifacts", property = Constants.REUSE_RESOLVED_ARTIFACTS, required = false, defaultValue = "true")
+    protected boolean reuseResolvedArtifacts;
+
+    /**
+     * Optional. Directory of the caches kept by the plugin across builds.
+     */
+    @Parameter(alias = "cacheDirectory", property = Constants.CACHE_DIRECTORY, required = false, defaultValue = "${user.home}/.whitesource/cache")
+    protected File cacheDirectory;
+
+    /**
+     * Optional. Set to false to disable the persistent checksum cache.
+     */
+    @Parameter(alias = "useChecksumCache", property = Constants.USE_CHECKSUM_CACHE, required = false, defaultValue = "true")
+    protected boolean useChecksumCache;
+
+    /**
+     * Optional. Trust level of the checksum files stored by the repository next to the artifacts:
+     * TRUSTED (use them as is), VERIFY_SAMPLE (verify one of every checksumVerifySampleRate against the artifact)
+     * or ALWAYS_VERIFY (always calculate the checksum from the artifact).
+     */
+    @Parameter(alias = "checksumPolicy", property = Constants.CHECKSUM_POLICY, required = false, defaultValue = "TRUSTED")
+    protected String checksumPolicy;
+
+    /**
+     * Optional. With checksumPolicy VERIFY_SAMPLE, one of every checksumVerifySampleRate repository and remote cache
+     * checksums is verified.
+     */
+    @Parameter(alias = "checksumVerifySampleRate", property = Constants.CHECKSUM_VERIFY_SAMPLE_RATE, required = false, defaultValue = "10")
+    protected int checksumVerifySampleRate;
+
+    /**
+     * Optional. Set to false to not resolve the SHA-1 of the artifacts used by the previous run in the background,
+     * while the dependencies are being resolved.
+     */
+    @Parameter(alias = "prefetchChecksums", property = Constants.PREFETCH_CHECKSUMS, required = false, defaultValue = "true")
+    protected boolean prefetchChecksums;
+
+    /**
+     * Optional. Set to true to record the dependencies of the scanned modules in the dependency index of the
+     * cacheDirectory, queried with the {@code where} goal.
+     */
+    @Parameter(alias = "updateDependencyIndex", property = Constants.UPDATE_DEPENDENCY_INDEX, required = false, defaultValue = "false")
+    protected boolean updateDependencyIndex;
+
+    /**
+     * Optional. Set to true to also report the libraries packaged inside war, ear and zip dependencies,
+     * as children of the archive.
+     */
+    @Parameter(alias = "scanNestedArchives", property = Constants.SCAN_NESTED_ARCHIVES, required = false, defaultValue = "false")
+    protected boolean scanNestedArchives;
+
+    /**
+     * Optional. Dependency types scanned for packaged libraries when scanNestedArchives is set.
+     */
+    @Parameter(alias = "nestedArchiveTypes", property = Constants.NESTED_ARCHIVE_TYPES, required = false, defaultValue = "war,ear,zip")
+    protected String[] nestedArchiveTypes;
+
+    /**
+     * Optional. The number of modules processed (resolved and hashed) at the same time.
+     * On JDK 21 and later the modules are processed on virtual threads.
+     */
+    @Parameter(alias = "ioConcurrency", property = Constants.IO_CONCURRENCY, required = false, defaultValue = "1")
+    protected int ioConcurrency;
+
+    /**
+     * Optional. The time in seconds the scan may take, 0 for no limit. As the budget runs out, the scan degrades:
+     * large files are not hashed, then no file is hashed, then the remaining modules are deferred to the next run.
+     * A scan that deferred modules is incomplete: it is neither sent nor checked, and fails the build if failOnError.
+     */
+    @Parameter(alias = "scanTimeBudget", property = Constants.SCAN_TIME_BUDGET, required = false, defaultValue = "0")
+    protected int scanTimeBudget;
+
+    /**
+     * Optional. Files larger than this (in MB) are the first not to be hashed when the scanTimeBudget runs out.
+     */
+    @Parameter(alias = "scanTimeBudgetLargeFileMB", property = Constants.SCAN_TIME_BUDGET_LARGE_FILE_MB, required = false, defaultValue = "10")
+    protected int scanTimeBudgetLargeFileMB;
+
+    /**
+     * Optional. URL of a remote cache shared by several hosts (e.g. the agents of a CI farm) for SHA-1s and collected
+     * module dependencies, see {@link org.whitesource.maven.utils.remote.RemoteCacheServer}. Only the SHA-1s of
+     * artifacts in the local repository are shared, artifacts built by the reactor are always hashed.
+     */
+    @Parameter(alias = "remoteCacheUrl", property = Constants.REMOTE_CACHE_URL, required = false)
+    protected String remoteCacheUrl;
+
+    /**
+     * Optional. Set to false to only read from the remote cache, e.g. on pull request builds.
+     */
+    @Parameter(alias = "remoteCacheUpload", property = Constants.REMOTE_CACHE_UPLOAD, required = false, defaultValue = "true")
+    protected boolean remoteCacheUpload;
+
+    /**
+     * Optional. Set to a file to write the collected open source software usage information to it, instead of sending
+     * it to WhiteSource. The file is sent later by the {@code upload} goal, e.g. from a host with access to WhiteSource.
+     */
+    @Parameter(alias = "exportFile", property = Constants.EXPORT_FILE, required = false)
+    protected File exportFile;
+
+    protected ChecksumResolver checksumResolver;
+
+    protected RemoteCacheClient remoteCache;
+
+    private volatile ChecksumPrefetcher checksumPrefetcher;
+
+    protected TimeBudget timeBudget;
+
+    private final DependencyInterner dependencyInterner = new DependencyInterner();
+
     /* --- Constructors --- */
 
     protected AgentMojo() {
@@ -212,6 +349,37 @@ public abstract class AgentMojo extends WhitesourceMojo {
 
     /* --- Protected methods --- */
 
+    /**
+     * Without WhiteSource access needed while exporting.
+     */
+    @Override
+    protected boolean isServiceRequired() {
+        return getExportFile() == null;
+    }
+
+    /**
+     * @return The file to export the collected information to instead of sending it, or null to send it.
+     */
+    protected File getExportFile() {
+        // read here, isServiceRequired is called before init
+        String exportFilePath = session.getSystemProperties().getProperty(Constants.EXPORT_FILE);
+        return StringUtils.isNotBlank(exportFilePath) ? new File(exportFilePath) : exportFile;
+    }
+
+    /**
+     * Writes the projects to the export file, see {@link InventoryBinaryFile}.
+     */
+    protected void exportProjectInfos(Collection<AgentProjectInfo> projectInfos) throws MojoExecutionException {
+        File file = getExportFile();
+        try {
+            InventoryBinaryFile.write(file, projectInfos);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing the export file " + file + ": " + e.getMessage(), e);
+        }
+        info("Exported " + projectInfos.size() + " projects with " + countDependencies(projectInfos)
+                + " dependencies to " + file + " (" + file.length() + " bytes)");
+    }
+
     protected void init() throws MojoFailureException {
         super.init();
 
@@ -249,7 +417,7 @@ public abstract class AgentMojo extends WhitesourceMojo {
         } else {
             orgToken = systemProperties.getProperty(Constants.ORG_TOKEN, orgToken);
         }
-        if (StringUtils.isEmpty(orgToken)) {
+        if (StringUtils.isEmpty(orgToken) && isServiceRequired()) {
             throw new MojoFailureException("The parameter 'orgToken' is missing or invalid");
         }
 
@@ -280,6 +448,49 @@ public abstract class AgentMojo extends WhitesourceMojo {
         aggregateProjectToken = systemProperties.getProperty(Constants.AGGREGATE_MODULES_PROJECT_TOKEN, aggregateProjectToken);
         preserveModuleInfo = Boolean.parseBoolean((systemProperties.getProperty(Constants.PRESERVE_MODULE_INFO, Boolean.toString(preserveModuleInfo))));
         updateEmptyProject = Boolean.parseBoolean((systemProperties.getProperty(Constants.UPDATE_EMPTY_PROJECT, Boolean.toString(updateEmptyProject))));
+        reuseResolvedArtifacts = Boolean.parseBoolean(systemProperties.getProperty(Constants.REUSE_RESOLVED_ARTIFACTS, Boolean.toString(reuseResolvedArtifacts)));
+
+        // checksums
+        String cacheDirectoryPath = systemProperties.getProperty(Constants.CACHE_DIRECTORY);
+        if (StringUtils.isNotBlank(cacheDirectoryPath)) {
+            cacheDirectory = new File(cacheDirectoryPath);
+        }
+        useChecksumCache = Boolean.parseBoolean(systemProperties.getProperty(Constants.USE_CHECKSUM_CACHE, Boolean.toString(useChecksumCache)));
+        checksumPolicy = systemProperties.getProperty(Constants.CHECKSUM_POLICY, checksumPolicy);
+        checksumVerifySampleRate = Integer.parseInt(systemProperties.getProperty(
+                Constants.CHECKSUM_VERIFY_SAMPLE_RATE, String.valueOf(checksumVerifySampleRate)));
+        ChecksumPolicy policy;
+        try {
+            policy = ChecksumPolicy.valueOf(checksumPolicy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException("Invalid checksumPolicy '" + checksumPolicy + "', valid values are " + Arrays.toString(ChecksumPolicy.values()));
+        }
+        PersistentChecksumCache checksumCache = useChecksumCache && cacheDirectory != null ? new PersistentChecksumCache(cacheDirectory) : null;
+        remoteCacheUrl = systemProperties.getProperty(Constants.REMOTE_CACHE_URL, remoteCacheUrl);
+        remoteCacheUpload = Boolean.parseBoolean(systemProperties.getProperty(Constants.REMOTE_CACHE_UPLOAD, Boolean.toString(remoteCacheUpload)));
+        remoteCache = StringUtils.isBlank(remoteCacheUrl) ? null
+                : new RemoteCacheClient(remoteCacheUrl.trim(), REMOTE_CACHE_TIMEOUT_MILLIS, remoteCacheUpload);
+        File localRepository = session.getLocalRepository() == null ? null : new File(session.getLocalRepository().getBasedir());
+        checksumResolver = new ChecksumResolver(policy, checksumCache, checksumVerifySampleRate, remoteCache, localRepository);
+        prefetchChecksums = Boolean.parseBoolean(systemProperties.getProperty(
+                Constants.PREFETCH_CHECKSUMS, Boolean.toString(prefetchChecksums)));
+        updateDependencyIndex = Boolean.parseBoolean(systemProperties.getProperty(
+                Constants.UPDATE_DEPENDENCY_INDEX, Boolean.toString(updateDependencyIndex)));
+
+        // time budget
+        scanTimeBudget = Integer.parseInt(systemProperties.getProperty(Constants.SCAN_TIME_BUDGET, String.valueOf(scanTimeBudget)));
+        scanTimeBudgetLargeFileMB = Integer.parseInt(systemProperties.getProperty(
+                Constants.SCAN_TIME_BUDGET_LARGE_FILE_MB, String.valueOf(scanTimeBudgetLargeFileMB)));
+        timeBudget = new TimeBudget(scanTimeBudget * 1000L, scanTimeBudgetLargeFileMB * 1024L * 1024L);
+
+        ioConcurrency = Integer.parseInt(systemProperties.getProperty(Constants.IO_CONCURRENCY, String.valueOf(ioConcurrency)));
+
+        // nested archives
+        scanNestedArchives = Boolean.parseBoolean(systemProperties.getProperty(Constants.SCAN_NESTED_ARCHIVES, Boolean.toString(scanNestedArchives)));
+        String nestedArchiveTypesList = systemProperties.getProperty(Constants.NESTED_ARCHIVE_TYPES);
+        if (StringUtils.isNotBlank(nestedArchiveTypesList)) {
+            nestedArchiveTypes = nestedArchiveTypesList.split(",");
+        }
 
 
         // ignored scopes
@@ -354,8 +565,20 @@ public abstract class AgentMojo extends WhitesourceMojo {
         // try to calculate SHA-1
         File artifactFile = artifact.getFile();
         if (artifactFile != null && artifactFile.exists()) {
+            if (checksumPrefetcher != null) {
+                checksumPrefetcher.record(artifactFile);
+            }
             try {
-                info.setSha1(ChecksumUtils.calculateSHA1(artifactFile));
+                DegradationLevel level = timeBudget.getLevel();
+                String coordinates = getCoordinates(artifact);
+                if (timeBudget.canHash(level, artifactFile.length())) {
+                    info.setSha1(checksumResolver.getSha1(artifactFile, coordinates));
+                } else {
+                    info.setSha1(checksumResolver.getAvailableSha1(artifactFile, coordinates));
+                    if (info.getSha1() == null) {
+                        timeBudget.recordUnhashed(level);
+                    }
+                }
 
                 info.setSystemPath(artifactFile.getAbsolutePath());
                 String filename = artifactFile.getName();
@@ -421,9 +644,16 @@ public abstract class AgentMojo extends WhitesourceMojo {
             projectInfo.setParentCoordinates(extractCoordinates(project.getParent()));
         }
 
-        // collect dependencies
+        // collect dependencies, unless already done by the processModule goal
         try {
-            projectInfo.getDependencies().addAll(collectDependencyStructure(project));
+            Object processedProjectInfo = project.getContextValue(Constants.PROCESSED_PROJECT_INFO);
+            if (processedProjectInfo instanceof AgentProjectInfo) {
+                debug("Using dependencies collected by the processModule goal");
+                projectInfo.getDependencies().addAll(
+                        dependencyInterner.intern(((AgentProjectInfo) processedProjectInfo).getDependencies()));
+            } else {
+                projectInfo.getDependencies().addAll(collectDependencyStructure(project));
+            }
         } catch (DependencyResolutionException e) {
             if (ignoreDependencyResolutionErrors) {
                 warn("Skipping project " + project.getArtifactId() + ", error resolving dependencies (ignoreDependencyResolutionErrors=true)");
@@ -446,15 +676,85 @@ public abstract class AgentMojo extends WhitesourceMojo {
     /**
      * Build the dependency graph of the project in order to resolve all transitive dependencies.
      * By default resolves filters scopes test and provided, and transitive optional dependencies.
+     * Subtrees identical to ones already collected (in this project or a previous one) are shared, not copied.
+     * Unchanged modules reuse the dependencies collected by a previous build in the same JVM, or by another host
+     * through the remote cache. Builds collecting the same module at the same time collect it once.
      *
      * @param project The maven project.
      * @return A collection of {@link DependencyInfo} resolved with children.
      * @throws DependencyResolutionException Exception thrown if dependency resolution fails.
      */
     protected Collection<DependencyInfo> collectDependencyStructure(MavenProject project) throws DependencyResolutionException {
-        AetherDependencyNode rootNode = DependencyGraphFactory.getAetherDependencyGraphRootNode(project, projectDependenciesResolver, session);
+        Collection<DependencyInfo> dependencyInfos;
+        String fingerprint = ModuleDependencyCache.fingerprint(project, getCollectionSettings());
+        CompactDependencyGraph cachedGraph = fingerprint == null ? null : ModuleDependencyCache.get(project, fingerprint);
+        CrossProcessLock.Lock lock = null;
+        if (cachedGraph == null && fingerprint != null && cacheDirectory != null) {
+            // one build collects the module, builds collecting it at the same time wait and reuse the result
+            try {
+                lock = ModuleDependencyCache.lock(project, cacheDirectory);
+            } catch (InterruptedIOException e) {
+                debug("Interrupted while waiting for another build collecting " + project.getId());
+            }
+            cachedGraph = lock == null ? null : ModuleDependencyCache.get(project, fingerprint);
+        }
+        try {
+            if (cachedGraph != null) {
+                debug(MessageFormat.format("Reusing the {0} dependency nodes collected for {1} by a previous build",
+                        cachedGraph.getNodeCount(), project.getId()));
+                dependencyInfos = DependencyGraphConverter.toDependencyInfos(cachedGraph);
+            } else {
+                String portableFingerprint = remoteCache == null ? null : ModuleDependencyCache.portableFingerprint(project, getCollectionSettings());
+                dependencyInfos = portableFingerprint == null ? null : getRemoteDependencies(portableFingerprint);
+                if (dependencyInfos != null) {
+                    debug(MessageFormat.format("Reusing the dependencies collected for {0} by another host", project.getId()));
+                    portableFingerprint = null;
+                } else {
+                    dependencyInfos = resolveDependencyStructure(project);
+                }
+                // don't keep results degraded by the time budget
+                if (timeBudget.getLevel() == DegradationLevel.NONE) {
+                    if (fingerprint != null) {
+                        ModuleDependencyCache.put(project, fingerprint, DependencyGraphConverter.toGraph(dependencyInfos));
+                    }
+                    if (portableFingerprint != null) {
+                        putRemoteDependencies(portableFingerprint, dependencyInfos);
+                    }
+                }
+            }
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+
+        // share repeated subtrees
+        dependencyInfos = dependencyInterner.intern(dependencyInfos);
+        debug(MessageFormat.format("Interned dependency nodes: {0} visited, {1} distinct",
+                dependencyInterner.getVisitedNodes(), dependencyInterner.getCanonicalNodes()));
+
+        debug(MessageFormat.format("*** Printing Graph Result for {0} ***", project.getName()));
+        for (DependencyInfo dependencyInfo : dependencyInfos) {
+            debugPrintChildren(dependencyInfo, "");
+        }
+
+        return dependencyInfos;
+    }
+
+    private Collection<DependencyInfo> resolveDependencyStructure(MavenProject project) throws DependencyResolutionException {
+        Object resolutionEvent = FlightRecorderEvents.beginModuleResolution();
+        AetherDependencyNode resolvedRootNode = DependencyGraphFactory.getAetherDependencyGraphRootNode(project, projectDependenciesResolver,
+                session, reuseResolvedArtifacts);
+        // keep the resolved graph in compact form, the resolver's node tree is no longer referenced
+        CompactDependencyGraph graph = CompactDependencyGraph.fromAetherGraph(resolvedRootNode);
+        FlightRecorderEvents.endModuleResolution(resolutionEvent, project.getId(), graph.getNodeCount());
+        debug(MessageFormat.format("Resolved {0} dependency nodes for {1}", graph.getNodeCount(), project.getId()));
+        if (remoteCache != null) {
+            prefetchChecksums(graph.getRootNode());
+        }
+
         Collection<DependencyInfo> dependencyInfos = new ArrayList<DependencyInfo>();
-        for (AetherDependencyNode dependencyNode : rootNode.getChildren()) {
+        for (AetherDependencyNode dependencyNode : graph.getRootNode().getChildren()) {
             // don't add ignored scope
             String scope = dependencyNode.getDependency().getScope();
             if (StringUtils.isBlank(scope) || !shouldIgnore(scope)) {
@@ -463,14 +763,141 @@ public abstract class AgentMojo extends WhitesourceMojo {
             }
         }
 
-        debug(MessageFormat.format("*** Printing Graph Result for {0} ***", project.getName()));
-        for (DependencyInfo dependencyInfo : dependencyInfos) {
-            debugPrintChildren(dependencyInfo, "");
+        if (scanNestedArchives) {
+            if (timeBudget.getLevel() == DegradationLevel.NONE) {
+                addNestedArchiveEntries(dependencyInfos);
+            } else {
+                debug("Not scanning the libraries packaged in archive dependencies of " + project.getId() + ", the scan time budget is running out");
+            }
         }
-
         return dependencyInfos;
     }
 
+    /**
+     * Looks the SHA-1s of all artifacts of the graph up in the remote cache with a single request.
+     */
+    private void prefetchChecksums(AetherDependencyNode rootNode) {
+        Map<File, String> coordinatesByFile = new HashMap<File, String>();
+        Deque<AetherDependencyNode> stack = new ArrayDeque<AetherDependencyNode>(rootNode.getChildren());
+        while (!stack.isEmpty()) {
+            AetherDependencyNode node = stack.pop();
+            stack.addAll(node.getChildren());
+            AetherArtifact artifact = node.getDependency().getArtifact();
+            if (artifact.getFile() != null && artifact.getFile().isFile()) {
+                coordinatesByFile.put(artifact.getFile(), getCoordinates(artifact));
+            }
+        }
+        checksumResolver.prefetch(coordinatesByFile);
+    }
+
+    /**
+     * @return The dependencies collected by another host for a module with the fingerprint, or null.
+     */
+    private Collection<DependencyInfo> getRemoteDependencies(String portableFingerprint) {
+        byte[] value = remoteCache.get(REMOTE_DEPENDENCIES_NAMESPACE, portableFingerprint);
+        if (value != null) {
+            try {
+                List<AgentProjectInfo> projectInfos = InventoryBinaryFile.read(new ByteArrayInputStream(value));
+                if (projectInfos.size() == 1) {
+                    return projectInfos.get(0).getDependencies();
+                }
+            } catch (IOException e) {
+                debug("Ignoring an invalid remote cache entry: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void putRemoteDependencies(String portableFingerprint, Collection<DependencyInfo> dependencyInfos) {
+        AgentProjectInfo projectInfo = new AgentProjectInfo();
+        projectInfo.getDependencies().addAll(dependencyInfos);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            InventoryBinaryFile.write(output, Collections.singletonList(projectInfo));
+            remoteCache.put(REMOTE_DEPENDENCIES_NAMESPACE, portableFingerprint, output.toByteArray());
+        } catch (IOException e) {
+            debug("Error writing the remote cache entry: " + e.getMessage());
+        }
+    }
+
+    private static String getCoordinates(AetherArtifact artifact) {
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getVersion()
+                + ':' + artifact.getClassifier() + ':' + artifact.getExtension();
+    }
+
+    /**
+     * @return The settings affecting the dependencies collected for a module.
+     */
+    private String getCollectionSettings() {
+        return Arrays.toString(ignoredScopes) + ' ' + checksumPolicy + ' ' + scanNestedArchives
+                + (scanNestedArchives ? Arrays.toString(nestedArchiveTypes) : "");
+    }
+
+    /**
+     * Adds the libraries packaged inside archive dependencies as children of the archives.
+     * All archives are scanned concurrently, their content is streamed without extracting it.
+     */
+    private void addNestedArchiveEntries(Collection<DependencyInfo> dependencyInfos) {
+        Set<String> archiveTypes = new HashSet<String>();
+        for (String nestedArchiveType : nestedArchiveTypes) {
+            archiveTypes.add(nestedArchiveType.trim().toLowerCase());
+        }
+
+        Map<File, List<DependencyInfo>> archives = new LinkedHashMap<File, List<DependencyInfo>>();
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>(dependencyInfos);
+        while (!stack.isEmpty()) {
+            DependencyInfo dependencyInfo = stack.pop();
+            stack.addAll(dependencyInfo.getChildren());
+            if (dependencyInfo.getType() != null && archiveTypes.contains(dependencyInfo.getType().toLowerCase())
+                    && dependencyInfo.getSystemPath() != null) {
+                File archive = new File(dependencyInfo.getSystemPath());
+                List<DependencyInfo> archiveDependencies = archives.get(archive);
+                if (archiveDependencies == null) {
+                    archiveDependencies = new ArrayList<DependencyInfo>();
+                    archives.put(archive, archiveDependencies);
+                }
+                archiveDependencies.add(dependencyInfo);
+            }
+        }
+        if (archives.isEmpty()) {
+            return;
+        }
+
+        try {
+            NestedArchiveScanner scanner = new NestedArchiveScanner(archiveTypes);
+            Map<File, List<NestedArchiveEntry>> archiveEntries = scanner.scan(archives.keySet(), Runtime.getRuntime().availableProcessors());
+            for (Map.Entry<File, List<DependencyInfo>> archive : archives.entrySet()) {
+                List<NestedArchiveEntry> entries = archiveEntries.get(archive.getKey());
+                if (entries == null) {
+                    debug("Error scanning the libraries packaged in " + archive.getKey());
+                    continue;
+                }
+                for (DependencyInfo archiveDependency : archive.getValue()) {
+                    for (NestedArchiveEntry entry : entries) {
+                        archiveDependency.getChildren().add(getDependencyInfo(entry, archive.getKey().getAbsolutePath(), archiveDependency.getScope()));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            warn("Interrupted while scanning the libraries packaged in archive dependencies");
+        }
+    }
+
+    private DependencyInfo getDependencyInfo(NestedArchiveEntry entry, String archivePath, String scope) {
+        DependencyInfo info = new DependencyInfo();
+        info.setArtifactId(entry.getFilename());
+        info.setFilename(entry.getFilename());
+        info.setSha1(entry.getSha1());
+        info.setScope(scope);
+        String systemPath = archivePath + NESTED_PATH_SEPARATOR + entry.getPath();
+        info.setSystemPath(systemPath);
+        for (NestedArchiveEntry child : entry.getChildren()) {
+            info.getChildren().add(getDependencyInfo(child, systemPath, scope));
+        }
+        return info;
+    }
+
     private void debugPrintChildren(DependencyInfo info, String prefix) {
         debug(prefix + info.getGroupId() + ":" + info.getArtifactId() + ":" + info.getVersion() + ":" + info.getScope());
         for (DependencyInfo child : info.getChildren()) {
@@ -501,36 +928,312 @@ public abstract class AgentMojo extends WhitesourceMojo {
     }
 
     protected Collection<AgentProjectInfo> extractProjectInfos() throws MojoExecutionException, DependencyResolutionException {
-        Collection<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
+        Collection<AgentProjectInfo> projectInfos = collectProjectInfos();
+        if (aggregateModules && !preserveModuleInfo) {
+            flattenDependencies(projectInfos);
+        }
+        debugProjectInfos(projectInfos);
+        if (StringUtils.isBlank(aggregateProjectName)) {
+            aggregateProjectName = mavenProject.getArtifactId() + DASH + mavenProject.getVersion();
+        }
+        return projectInfos;
+    }
+
+    /**
+     * Processes the reactor projects that should be processed.
+     *
+     * @return The projects, with their dependency trees.
+     * @throws MojoExecutionException if modules were deferred by the time budget, so the results are incomplete.
+     */
+    protected Collection<AgentProjectInfo> collectProjectInfos() throws MojoExecutionException, DependencyResolutionException {
+        List<MavenProject> projects = new ArrayList<MavenProject>();
         for (MavenProject project : reactorProjects) {
             if (shouldProcess(project)) {
-                AgentProjectInfo projectInfo = processProject(project);
+                projects.add(project);
+            }
+        }
+
+        startChecksumPrefetch();
+        Collection<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
+        try {
+            for (AgentProjectInfo projectInfo : processProjects(projects)) {
                 if (projectInfo != null) {
                     projectInfos.add(projectInfo);
                 }
             }
+        } finally {
+            stopChecksumPrefetch();
         }
-        debugProjectInfos(projectInfos);
-        if (StringUtils.isBlank(aggregateProjectName)) {
-            aggregateProjectName = mavenProject.getArtifactId() + DASH + mavenProject.getVersion();
+        info("SHA-1 sources: " + checksumResolver.getStatistics());
+        if (remoteCache != null) {
+            info("Remote cache " + remoteCacheUrl + ": " + remoteCache.getStatistics());
+        }
+        if (timeBudget.isDegraded()) {
+            warn("The scan exceeded its time budget of " + scanTimeBudget + " seconds and was degraded:");
+            if (timeBudget.getSkippedLargeFiles() > 0) {
+                warn("* " + timeBudget.getSkippedLargeFiles() + " dependencies larger than " + scanTimeBudgetLargeFileMB + " MB were sent without SHA-1");
+            }
+            if (timeBudget.getCoordinatesOnlyDependencies() > 0) {
+                warn("* " + timeBudget.getCoordinatesOnlyDependencies() + " dependencies were sent by coordinates only, without SHA-1");
+            }
+            if (!timeBudget.getDeferredModules().isEmpty()) {
+                warn("* " + timeBudget.getDeferredModules().size() + " modules were deferred to the next run: " + timeBudget.getDeferredModules());
+            }
+        }
+        if (checksumResolver.getMismatchCount() > 0) {
+            warn("Some repository checksum files don't match their artifacts, the calculated checksums were used");
+        }
+        if (!timeBudget.getDeferredModules().isEmpty()) {
+            // an incomplete inventory would replace the complete one, and pass policies it wasn't checked against
+            throw new MojoExecutionException("The scan time budget ran out before " + timeBudget.getDeferredModules().size()
+                    + " modules were scanned, the incomplete results are not used. The next run scans these modules first.");
+        }
+        if (updateDependencyIndex && cacheDirectory != null) {
+            updateDependencyIndex(projectInfos);
         }
         return projectInfos;
     }
 
-    private Collection<DependencyInfo> extractChildren(DependencyInfo dependency) {
-        Collection<DependencyInfo> children = new ArrayList<DependencyInfo>();
-        Iterator<DependencyInfo> iterator = dependency.getChildren().iterator();
-        while (iterator.hasNext()) {
-            DependencyInfo child = iterator.next();
-            children.add(child);
-            children.addAll(extractChildren(child));
-            // flatten dependencies
-            iterator.remove();
+    /**
+     * @return The dependencies, with subtrees identical to ones already collected shared, not copied.
+     */
+    protected List<DependencyInfo> internDependencies(Collection<DependencyInfo> dependencies) {
+        return dependencyInterner.intern(dependencies);
+    }
+
+    /**
+     * Processes the projects, up to ioConcurrency at the same time.
+     * Concurrent processing starts with the costliest projects, so no long running project is left for the end.
+     *
+     * @return The results, in the order of the projects.
+     */
+    private List<AgentProjectInfo> processProjects(List<MavenProject> projects) throws MojoExecutionException, DependencyResolutionException {
+        final TaskTimings timings = cacheDirectory == null ? null : new TaskTimings(new File(cacheDirectory, MODULE_TIMINGS_FILE));
+        Set<String> deferredModules = cacheDirectory == null ? Collections.<String>emptySet()
+                : TimeBudget.readDeferredModules(new File(cacheDirectory, DEFERRED_MODULES_FILE));
+        if (ioConcurrency <= 1 || projects.size() <= 1) {
+            AgentProjectInfo[] projectInfos = new AgentProjectInfo[projects.size()];
+            for (Integer index : orderByCost(projects, timings, deferredModules, false)) {
+                projectInfos[index] = processProject(projects.get(index), timings);
+            }
+            saveProcessingState(timings);
+            return Arrays.asList(projectInfos);
+        }
+
+        IoExecutor executor = new IoExecutor(ioConcurrency, "whitesource-module");
+        debug("Processing " + projects.size() + " modules, " + ioConcurrency + " at a time"
+                + (executor.isVirtualThreads() ? " on virtual threads" : ""));
+        try {
+            List<Future<AgentProjectInfo>> futures = new ArrayList<Future<AgentProjectInfo>>(Collections.<Future<AgentProjectInfo>>nCopies(projects.size(), null));
+            for (Integer index : orderByCost(projects, timings, deferredModules, true)) {
+                final MavenProject project = projects.get(index);
+                futures.set(index, executor.submit(new Callable<AgentProjectInfo>() {
+                    @Override
+                    public AgentProjectInfo call() throws Exception {
+                        return processProject(project, timings);
+                    }
+                }));
+            }
+
+            List<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>(projects.size());
+            for (Future<AgentProjectInfo> future : futures) {
+                projectInfos.add(future.get());
+            }
+            saveProcessingState(timings);
+            return projectInfos;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while processing the modules", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MojoExecutionException) {
+                throw (MojoExecutionException) cause;
+            } else if (cause instanceof DependencyResolutionException) {
+                throw (DependencyResolutionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MojoExecutionException(cause.getMessage(), cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private AgentProjectInfo processProject(MavenProject project, TaskTimings timings) throws MojoExecutionException, DependencyResolutionException {
+        if (!timeBudget.canStartModule()) {
+            info("Deferring " + project.getId() + " to the next run, the scan time budget is exhausted");
+            timeBudget.recordDeferred(getModuleKey(project));
+            return null;
+        }
+
+        long startTime = System.currentTimeMillis();
+        AgentProjectInfo projectInfo = processProject(project);
+        if (timings != null) {
+            timings.record(getModuleKey(project), System.currentTimeMillis() - startTime);
+        }
+        return projectInfo;
+    }
+
+    /**
+     * Orders the projects deferred by the previous run first, then, if byCost is set, by their estimated processing
+     * cost, highest first. The cost of a project is its processing time in previous builds or, for projects processed
+     * for the first time, its number of declared dependencies scaled by the average time per dependency of the other
+     * projects.
+     *
+     * @return The indices of the projects, in processing order.
+     */
+    private List<Integer> orderByCost(List<MavenProject> projects, TaskTimings timings, Set<String> deferredModules,
+                                      final boolean byCost) {
+        final boolean[] deferred = new boolean[projects.size()];
+        final long[] costs = new long[projects.size()];
+        int[] dependencyCounts = new int[projects.size()];
+        long knownMillis = 0;
+        long knownDependencies = 0;
+        for (int i = 0; i < costs.length; i++) {
+            MavenProject project = projects.get(i);
+            deferred[i] = deferredModules.contains(getModuleKey(project));
+            dependencyCounts[i] = project.getDependencies().size() + 1;
+            Long millis = timings == null ? null : timings.get(getModuleKey(project));
+            if (millis == null) {
+                costs[i] = -1;
+            } else {
+                costs[i] = millis;
+                knownMillis += millis;
+                knownDependencies += dependencyCounts[i];
+            }
+        }
+        double millisPerDependency = knownDependencies == 0 ? 1 : (double) knownMillis / knownDependencies;
+        for (int i = 0; i < costs.length; i++) {
+            if (costs[i] < 0) {
+                costs[i] = Math.round(dependencyCounts[i] * millisPerDependency);
+            }
+        }
+
+        List<Integer> order = new ArrayList<Integer>(costs.length);
+        for (int i = 0; i < costs.length; i++) {
+            order.add(i);
+        }
+        // stable, projects of equal cost keep the reactor order
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                if (deferred[first] != deferred[second]) {
+                    return deferred[first] ? -1 : 1;
+                } else if (!byCost || costs[first] == costs[second]) {
+                    return 0;
+                }
+                return costs[first] > costs[second] ? -1 : 1;
+            }
+        });
+        if (byCost) {
+            for (Integer index : order) {
+                debug("Estimated processing cost of " + projects.get(index).getId() + ": " + costs[index]);
+            }
+        }
+        return order;
+    }
+
+    private void saveProcessingState(TaskTimings timings) {
+        if (timings != null) {
+            timings.save();
+        }
+        if (cacheDirectory != null) {
+            timeBudget.saveDeferredModules(new File(cacheDirectory, DEFERRED_MODULES_FILE));
+        }
+    }
+
+    /**
+     * Starts resolving the SHA-1 of the artifacts used by the previous run of this build in the background.
+     */
+    private void startChecksumPrefetch() {
+        if (!prefetchChecksums || cacheDirectory == null || mavenProject == null) {
+            return;
+        }
+        String buildKey = Sha1.calculate(getModuleKey(mavenProject) + "@" + mavenProject.getBasedir()).substring(0, 12);
+        checksumPrefetcher = new ChecksumPrefetcher(checksumResolver,
+                new File(cacheDirectory, PREFETCH_FILE_PREFIX + buildKey + ".txt"), PREFETCH_CONCURRENCY);
+        int count = checksumPrefetcher.start();
+        if (count > 0) {
+            debug("Prefetching the SHA-1 of " + count + " artifacts used by the previous run");
+        }
+    }
+
+    private void stopChecksumPrefetch() {
+        if (checksumPrefetcher == null) {
+            return;
+        }
+        checksumPrefetcher.stop();
+        checksumPrefetcher.save();
+        checksumPrefetcher = null;
+        info("SHA-1 prefetch: " + checksumResolver.getResolveAheadStatistics());
+    }
+
+    /**
+     * Replaces the dependencies indexed for the projects. Failures are logged, the index is not essential to the scan.
+     */
+    private void updateDependencyIndex(Collection<AgentProjectInfo> projectInfos) {
+        long startTime = System.currentTimeMillis();
+        DependencyIndex index = new DependencyIndex(cacheDirectory);
+        String indexedProduct = StringUtils.isNotBlank(product) ? product : mavenProject.getArtifactId();
+        int changedKeys = 0;
+        try {
+            for (AgentProjectInfo projectInfo : projectInfos) {
+                Coordinates coordinates = projectInfo.getCoordinates();
+                List<DependencyIndex.Entry> entries = new ArrayList<DependencyIndex.Entry>();
+                for (DependencyInfo dependency : projectInfo.getDependencies()) {
+                    addIndexEntries(entries, dependency, "");
+                }
+                changedKeys += index.update(indexedProduct, coordinates.getGroupId() + ":" + coordinates.getArtifactId(),
+                        coordinates.getVersion(), entries);
+            }
+            debug("Updated the dependency index " + index.getDirectory() + " in "
+                    + (System.currentTimeMillis() - startTime) + " [msec], " + changedKeys + " keys changed");
+        } catch (IOException e) {
+            warn("Failed to update the dependency index " + index.getDirectory() + ": " + e.getMessage());
+        }
+    }
+
+    private void addIndexEntries(List<DependencyIndex.Entry> entries, DependencyInfo dependency, String parentPath) {
+        String coordinates = StringUtils.defaultString(dependency.getGroupId()) + ":"
+                + StringUtils.defaultString(dependency.getArtifactId()) + ":" + StringUtils.defaultString(dependency.getVersion());
+        String path = parentPath.length() == 0 ? coordinates : parentPath + PATH_SEPARATOR + coordinates;
+        entries.add(new DependencyIndex.Entry(coordinates, dependency.getSha1(), dependency.getScope(), path));
+        for (DependencyInfo child : dependency.getChildren()) {
+            addIndexEntries(entries, child, path);
+        }
+    }
+
+    private String getModuleKey(MavenProject project) {
+        return project.getGroupId() + ":" + project.getArtifactId();
+    }
+
+    /**
+     * Replaces the dependency trees of all projects with flat lists, dropping dependencies already sent with a
+     * previous project. The aggregated WhiteSource project holds a flat list anyway, so this only reduces the payload.
+     *
+     * @param projectInfos The projects to flatten.
+     */
+    private void flattenDependencies(Collection<AgentProjectInfo> projectInfos) {
+        DependencyFlattener flattener = new DependencyFlattener();
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            List<DependencyInfo> dependencies = flattener.flatten(projectInfo.getDependencies());
+            projectInfo.getDependencies().clear();
+            projectInfo.getDependencies().addAll(dependencies);
         }
-        return children;
     }
 
     protected boolean shouldProcess(MavenProject project) {
+        return shouldProcess(project, mavenProject);
+    }
+
+    /**
+     * @param project     The maven project to check.
+     * @param rootProject The project the ignore flag applies to, include and exclude patterns apply to all others.
+     * @return Whether the project should be processed.
+     */
+    protected boolean shouldProcess(MavenProject project, MavenProject rootProject) {
         if (project == null) {
             return false;
         }
@@ -539,7 +1242,7 @@ public abstract class AgentMojo extends WhitesourceMojo {
         if (ignorePomModules && POM.equals(project.getPackaging())) {
             process = false;
             info("Skipping " + project.getId() + " (ignorePomModules=" + String.valueOf(ignorePomModules) + ")");
-        } else if (project.equals(mavenProject)) {
+        } else if (project.equals(rootProject)) {
             process = !ignore;
             if (!process) {
                 info("Skipping " + project.getId() + " (marked as ignored)");
@@ -560,13 +1263,49 @@ public abstract class AgentMojo extends WhitesourceMojo {
 
     protected void generateReport(BaseCheckPoliciesResult result) throws MojoExecutionException {
         info("Generating Policy Check Report");
+        Object reportEvent = FlightRecorderEvents.beginReport();
         try {
             PolicyCheckReport report = new PolicyCheckReport(result);
             report.generate(outputDirectory, false);
             report.generateJson(outputDirectory);
         } catch (IOException e) {
             throw new MojoExecutionException("Error generating report: " + e.getMessage(), e);
+        } finally {
+            FlightRecorderEvents.endReport(reportEvent, outputDirectory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Records a request sent to WhiteSource, started with {@link FlightRecorderEvents#beginServiceCall()}, and
+     * releases its request permit.
+     */
+    protected void endServiceCall(Object event, String operation, Collection<AgentProjectInfo> projectInfos, boolean succeeded,
+                                  HostRateLimiter.Permit permit) {
+        if (permit != null) {
+            permit.release();
+        }
+        if (event != null) {
+            FlightRecorderEvents.endServiceCall(event, operation, projectInfos.size(), countDependencies(projectInfos),
+                    getConnectionAttempt(), succeeded, permit == null ? 0 : permit.getWaitMillis());
+        }
+    }
+
+    /**
+     * @return The number of distinct dependency nodes of the projects.
+     */
+    static int countDependencies(Collection<AgentProjectInfo> projectInfos) {
+        Set<DependencyInfo> visited = Collections.newSetFromMap(new IdentityHashMap<DependencyInfo, Boolean>());
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>();
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            stack.addAll(projectInfo.getDependencies());
+        }
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.pop();
+            if (visited.add(dependency)) {
+                stack.addAll(dependency.getChildren());
+            }
         }
+        return visited.size();
     }
 
     private boolean shouldIgnore(String scope) {
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.maven.utils.concurrent.HostRateLimiter;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
+
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends requests to WhiteSource in the background, so several requests can be in flight at the same time.
+ * <p>
+ * Each request runs on a service of its own, acquired from the {@link ServiceSource} for the duration of the call,
+ * since a single service is not meant to be used concurrently, and is sent once the host wide request limits allow.
+ */
+class AsyncWhitesourceService {
+
+    /* --- Private Members --- */
+
+    private final ServiceSource serviceSource;
+    private final ExecutorService executor;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param serviceSource provides the services the requests are sent with.
+     * @param maxInFlight   the maximal number of requests sent at the same time, more are queued.
+     */
+    AsyncWhitesourceService(ServiceSource serviceSource, int maxInFlight) {
+        this.serviceSource = serviceSource;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxInFlight), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "whitesource-request-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /* --- Public methods --- */
+
+    public Future<CheckPolicyComplianceResult> checkPolicyCompliance(final String orgToken, final String product,
+                                                                     final String productVersion,
+                                                                     final Collection<AgentProjectInfo> projectInfos,
+                                                                     final boolean forceCheckAllDependencies,
+                                                                     final String userKey, final String requesterEmail,
+                                                                     final boolean aggregateModules,
+                                                                     final boolean preserveModuleInfo,
+                                                                     final String aggregateProjectName,
+                                                                     final String aggregateProjectToken) {
+        return submit("checkPolicyCompliance", projectInfos, new ServiceCall<CheckPolicyComplianceResult>() {
+            @Override
+            CheckPolicyComplianceResult call(WhitesourceService service) throws WssServiceException {
+                return service.checkPolicyCompliance(orgToken, product, productVersion, projectInfos,
+                        forceCheckAllDependencies, userKey, requesterEmail, aggregateModules, preserveModuleInfo,
+                        aggregateProjectName, aggregateProjectToken);
+            }
+        });
+    }
+
+    /**
+     * Waits for the result of a request.
+     *
+     * @throws WssServiceException  if the request failed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static <T> T await(Future<T> future) throws WssServiceException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof WssServiceException) {
+                throw (WssServiceException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new WssServiceException(cause);
+        }
+    }
+
+    /**
+     * Stops accepting requests, requests already submitted are still sent.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /* --- Private methods --- */
+
+    private <T> Future<T> submit(final String operation, final Collection<AgentProjectInfo> projectInfos,
+                                 final ServiceCall<T> serviceCall) {
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws WssServiceException {
+                Object event = FlightRecorderEvents.beginServiceCall();
+                boolean succeeded = false;
+                HostRateLimiter.Permit permit = serviceSource.acquirePermit(operation);
+                WhitesourceService service = serviceSource.acquire();
+                try {
+                    T result = serviceCall.call(service);
+                    succeeded = true;
+                    return result;
+                } finally {
+                    serviceSource.release(service);
+                    if (permit != null) {
+                        permit.release();
+                    }
+                    if (event != null) {
+                        FlightRecorderEvents.endServiceCall(event, operation, projectInfos.size(),
+                                AgentMojo.countDependencies(projectInfos), 1, succeeded,
+                                permit == null ? 0 : permit.getWaitMillis());
+                    }
+                }
+            }
+        });
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Provides services for exclusive use.
+     */
+    interface ServiceSource {
+
+        /**
+         * @return The permission to send a request, or null if requests aren't limited.
+         */
+        HostRateLimiter.Permit acquirePermit(String operation) throws WssServiceException;
+
+        WhitesourceService acquire();
+
+        void release(WhitesourceService service);
+    }
+
+    private abstract static class ServiceCall<T> {
+
+        abstract T call(WhitesourceService service) throws WssServiceException;
+    }
+}
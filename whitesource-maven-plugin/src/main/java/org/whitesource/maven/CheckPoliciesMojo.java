@@ -15,17 +15,25 @@
  */
 package org.whitesource.maven;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.DependencyResolutionException;
 import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
 import org.whitesource.agent.api.model.AgentProjectInfo;
 import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.maven.utils.concurrent.HostRateLimiter;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Send check policies request of open source software usage information to WhiteSource.
@@ -43,6 +51,38 @@ import java.util.Collection;
         aggregator = true )
 public class CheckPoliciesMojo extends AgentMojo {
 
+    /* --- Static members --- */
+
+    private static final String LOCAL_POLICY_FILE_NAME = "policies.json";
+
+    /* --- Members --- */
+
+    /**
+     * Optional. Set to true to evaluate the policies of the localPolicyFile (or localPolicyUrl) instead of checking
+     * them in WhiteSource. Much faster, but approximate, so meant for e.g. pull request builds.
+     */
+    @Parameter(alias = "localPolicyCheck", property = Constants.LOCAL_POLICY_CHECK, required = false, defaultValue = "false")
+    private boolean localPolicyCheck;
+
+    /**
+     * Optional. The policy file evaluated by the localPolicyCheck, e.g. kept in the repository.
+     */
+    @Parameter(alias = "localPolicyFile", property = Constants.LOCAL_POLICY_FILE, required = false, defaultValue = "${project.basedir}/whitesource-policies.json")
+    private File localPolicyFile;
+
+    /**
+     * Optional. URL to download the policy file evaluated by the localPolicyCheck from, instead of the localPolicyFile.
+     * The downloaded file is kept in the cacheDirectory.
+     */
+    @Parameter(alias = "localPolicyUrl", property = Constants.LOCAL_POLICY_URL, required = false)
+    private String localPolicyUrl;
+
+    /**
+     * Optional. The number of hours the policy file downloaded from the localPolicyUrl is used before it is downloaded again.
+     */
+    @Parameter(alias = "localPolicyRefreshHours", property = Constants.LOCAL_POLICY_REFRESH_HOURS, required = false, defaultValue = "24")
+    private int localPolicyRefreshHours;
+
     /* --- Constructors --- */
 
     public CheckPoliciesMojo() {
@@ -66,6 +106,10 @@ public class CheckPoliciesMojo extends AgentMojo {
         // send to white source
         if (projectInfos == null || projectInfos.isEmpty()) {
             info("No open source information found.");
+        } else if (getExportFile() != null) {
+            exportProjectInfos(projectInfos);
+        } else if (isLocalPolicyCheck()) {
+            checkPoliciesLocally(projectInfos);
         } else {
             sendCheckPolicies(projectInfos);
         }
@@ -74,6 +118,23 @@ public class CheckPoliciesMojo extends AgentMojo {
     @Override
     protected void init() throws MojoFailureException {
         super.init();
+        Properties systemProperties = session.getSystemProperties();
+        localPolicyCheck = isLocalPolicyCheck();
+        String localPolicyFilePath = systemProperties.getProperty(Constants.LOCAL_POLICY_FILE);
+        if (StringUtils.isNotBlank(localPolicyFilePath)) {
+            localPolicyFile = new File(localPolicyFilePath);
+        }
+        localPolicyUrl = systemProperties.getProperty(Constants.LOCAL_POLICY_URL, localPolicyUrl);
+        localPolicyRefreshHours = Integer.parseInt(systemProperties.getProperty(
+                Constants.LOCAL_POLICY_REFRESH_HOURS, String.valueOf(localPolicyRefreshHours)));
+    }
+
+    /**
+     * Without WhiteSource access needed for a local policy check.
+     */
+    @Override
+    protected boolean isServiceRequired() {
+        return super.isServiceRequired() && !isLocalPolicyCheck();
     }
 
     /* --- Private methods --- */
@@ -81,21 +142,20 @@ public class CheckPoliciesMojo extends AgentMojo {
     private void sendCheckPolicies(Collection<AgentProjectInfo> projectInfos) throws MojoFailureException, MojoExecutionException {
         try {
             info("Checking Policies");
-            CheckPolicyComplianceResult result = service.checkPolicyCompliance(
-                    orgToken, product, productVersion, projectInfos, forceCheckAllDependencies,userKey);
-
-            if (outputDirectory == null || (!outputDirectory.exists() && !outputDirectory.mkdirs())) {
-                warn("Output directory doesn't exist. Skipping policies check report.");
-            } else {
-                generateReport(result);
+            CheckPolicyComplianceResult result;
+            Object event = FlightRecorderEvents.beginServiceCall();
+            boolean succeeded = false;
+            HostRateLimiter.Permit permit = null;
+            try {
+                permit = acquireRequestPermit("checkPolicyCompliance");
+                result = service.checkPolicyCompliance(
+                        orgToken, product, productVersion, projectInfos, forceCheckAllDependencies,userKey);
+                succeeded = true;
+            } finally {
+                endServiceCall(event, "checkPolicyCompliance", projectInfos, succeeded, permit);
             }
 
-            if (result.hasRejections()) {
-                String msg = "Some dependencies were rejected by the organization's policies.";
-                throw new MojoExecutionException(msg); // this is handled in base class
-            } else {
-                info("All dependencies conform with the organization's policies.");
-            }
+            reportResult(result);
         } catch (WssServiceException e) {
             if (isConnectionError(e)) {
                 // try to re-connect
@@ -116,4 +176,61 @@ public class CheckPoliciesMojo extends AgentMojo {
         }
     }
 
+    private void checkPoliciesLocally(Collection<AgentProjectInfo> projectInfos) throws MojoExecutionException {
+        File policyFile = localPolicyFile;
+        if (StringUtils.isNotBlank(localPolicyUrl)) {
+            if (cacheDirectory == null) {
+                throw new MojoExecutionException("A cacheDirectory is required to download the policy file");
+            }
+            policyFile = new File(cacheDirectory, LOCAL_POLICY_FILE_NAME);
+            try {
+                LocalPolicyEngine.refresh(localPolicyUrl, policyFile, TimeUnit.HOURS.toMillis(localPolicyRefreshHours),
+                        (int) TimeUnit.MINUTES.toMillis(connectionTimeoutMinutes));
+            } catch (IOException e) {
+                if (!policyFile.isFile()) {
+                    throw new MojoExecutionException("Error downloading the policy file from " + localPolicyUrl + ": " + e.getMessage(), e);
+                }
+                warn("Error downloading the policy file from " + localPolicyUrl + ", using the one downloaded before: " + e.getMessage());
+            }
+        }
+        if (policyFile == null || !policyFile.isFile()) {
+            throw new MojoExecutionException("Policy file not found: " + policyFile);
+        }
+
+        info("Checking Policies locally");
+        long startTime = System.currentTimeMillis();
+        CheckPolicyComplianceResult result;
+        try {
+            LocalPolicyEngine engine = LocalPolicyEngine.load(policyFile);
+            result = engine.evaluate(projectInfos);
+            info("Evaluated " + engine.getPolicyCount() + " policies of " + policyFile + " in "
+                    + (System.currentTimeMillis() - startTime) + " [msec]");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading the policy file " + policyFile + ": " + e.getMessage(), e);
+        }
+        reportResult(result);
+    }
+
+    private void reportResult(CheckPolicyComplianceResult result) throws MojoExecutionException {
+        if (outputDirectory == null || (!outputDirectory.exists() && !outputDirectory.mkdirs())) {
+            warn("Output directory doesn't exist. Skipping policies check report.");
+        } else {
+            generateReport(result);
+        }
+
+        if (result.hasRejections()) {
+            String msg = "Some dependencies were rejected by the organization's policies.";
+            throw new MojoExecutionException(msg); // this is handled in base class
+        } else {
+            info("All dependencies conform with the organization's policies.");
+        }
+    }
+
+    /**
+     * @return Whether policies are evaluated locally, read here since isServiceRequired is called before init.
+     */
+    private boolean isLocalPolicyCheck() {
+        return Boolean.parseBoolean(session.getSystemProperties().getProperty(
+                Constants.LOCAL_POLICY_CHECK, Boolean.toString(localPolicyCheck)));
+    }
 }
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.MavenProject;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Collect the open source software usage information of one shard of the reactor and store it in a file, for the
+ * {@code mergeAndUpdate} goal to send the information of all shards at once.
+ * <p>
+ * Lets a build split across several CI nodes scan each module once: each node runs
+ * <pre>
+ * mvn whitesource:collect -Dorg.whitesource.shardCount=8 -Dorg.whitesource.shardIndex=N
+ * </pre>
+ * and a final node copies the shard files into a single directory and runs {@code whitesource:mergeAndUpdate}.
+ * Modules are assigned to shards by the hash of their coordinates, or listed explicitly with shardModules.
+ * Only the modules of the shard are resolved.
+ */
+@Mojo(name = "collect",
+        requiresDependencyResolution = ResolutionScope.NONE,
+        aggregator = true)
+public class CollectMojo extends AgentMojo {
+
+    /* --- Members --- */
+
+    /**
+     * Optional. The number of shards the reactor is split into.
+     */
+    @Parameter(alias = "shardCount", property = Constants.SHARD_COUNT, required = false, defaultValue = "1")
+    private int shardCount;
+
+    /**
+     * Optional. The shard processed by this execution, from 0 to shardCount - 1.
+     */
+    @Parameter(alias = "shardIndex", property = Constants.SHARD_INDEX, required = false, defaultValue = "0")
+    private int shardIndex;
+
+    /**
+     * Optional. The modules of this shard (artifactId or groupId:artifactId), instead of assigning them by hash.
+     */
+    @Parameter(alias = "shardModules", property = Constants.SHARD_MODULES, required = false)
+    private String[] shardModules;
+
+    /**
+     * Optional. The directory the shard file is written to.
+     */
+    @Parameter(alias = "shardDirectory", property = Constants.SHARD_DIRECTORY, required = false, defaultValue = "${project.build.directory}/whitesource/shards")
+    private File shardDirectory;
+
+    /* --- Constructors --- */
+
+    public CollectMojo() {
+    }
+
+    /* --- Concrete implementation methods --- */
+
+    @Override
+    public void doExecute() throws MojoExecutionException, MojoFailureException, DependencyResolutionException {
+        if (reactorProjects == null) {
+            info("No Projects Found. Skipping Collection");
+            return;
+        }
+
+        // initialize
+        init();
+
+        Collection<AgentProjectInfo> projectInfos = collectProjectInfos();
+        File shardFile = new File(shardDirectory, InventoryShardFile.getFilename(shardIndex, shardCount));
+        try {
+            InventoryShardFile.write(shardFile, shardIndex, shardCount, projectInfos);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing the shard file " + shardFile + ": " + e.getMessage(), e);
+        }
+        info("Collected " + projectInfos.size() + " projects of shard " + shardIndex + " of " + shardCount + " to " + shardFile);
+    }
+
+    @Override
+    protected void init() throws MojoFailureException {
+        super.init();
+        Properties systemProperties = session.getSystemProperties();
+        shardCount = Integer.parseInt(systemProperties.getProperty(Constants.SHARD_COUNT, String.valueOf(shardCount)));
+        shardIndex = Integer.parseInt(systemProperties.getProperty(Constants.SHARD_INDEX, String.valueOf(shardIndex)));
+        String shardModulesList = systemProperties.getProperty(Constants.SHARD_MODULES);
+        if (StringUtils.isNotBlank(shardModulesList)) {
+            shardModules = shardModulesList.split(",");
+        }
+        String shardDirectoryPath = systemProperties.getProperty(Constants.SHARD_DIRECTORY);
+        if (StringUtils.isNotBlank(shardDirectoryPath)) {
+            shardDirectory = new File(shardDirectoryPath);
+        }
+
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new MojoFailureException("Invalid shard " + shardIndex + " of " + shardCount
+                    + ", shardIndex must be between 0 and shardCount - 1");
+        }
+    }
+
+    @Override
+    protected boolean isServiceRequired() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldProcess(MavenProject project) {
+        return super.shouldProcess(project) && isInShard(project);
+    }
+
+    /* --- Private methods --- */
+
+    private boolean isInShard(MavenProject project) {
+        if (shardModules != null && shardModules.length > 0) {
+            for (String shardModule : shardModules) {
+                String module = shardModule.trim();
+                if (module.equals(project.getArtifactId()) || module.equals(project.getGroupId() + ":" + project.getArtifactId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // String.hashCode is specified, so every node assigns the same shards
+        int hash = (project.getGroupId() + ":" + project.getArtifactId()).hashCode();
+        return (hash & Integer.MAX_VALUE) % shardCount == shardIndex;
+    }
+}
@@ -35,6 +35,7 @@ public final class Constants {
 	public static final String PRODUCT = PLUGIN_PREFIX + "product";
 	public static final String PRODUCT_VERSION = PLUGIN_PREFIX + "productVersion";
 	public static final String CHECK_POLICIES = PLUGIN_PREFIX + "checkPolicies";
+	public static final String POLICY_CHECK_BATCHES = PLUGIN_PREFIX + "policyCheckBatches";
 	public static final String FORCE_UPDATE = PLUGIN_PREFIX + "forceUpdate";
 	public static final String FORCE_CHECK_ALL_DEPENDENCIES = PLUGIN_PREFIX + "forceCheckAllDependencies";
 	public static final String OUTPUT_DIRECTORY = PLUGIN_PREFIX + "outputDirectory";
@@ -62,10 +63,48 @@ public final class Constants {
 	public static final String AUTO_DETECT_PROXY_SETTINGS = PLUGIN_PREFIX + "autoDetectProxySettings";
 	public static final String IGNORE_DEPENDENCY_RESOLUTION_ERRORS = PLUGIN_PREFIX + "ignoreDependencyResolutionErrors";
 	public static final String ENABLE_DEBUG = PLUGIN_PREFIX + "enableDebug";
+	public static final String REUSE_CONNECTIONS = PLUGIN_PREFIX + "reuseConnections";
+	public static final String MAX_CONCURRENT_REQUESTS = PLUGIN_PREFIX + "maxConcurrentRequests";
+	public static final String MAX_REQUESTS_PER_MINUTE = PLUGIN_PREFIX + "maxRequestsPerMinute";
+	public static final String REQUEST_LIMIT_DIRECTORY = PLUGIN_PREFIX + "requestLimitDirectory";
 	public static final String ORG_TOKEN_FILE = PLUGIN_PREFIX + "orgTokenFile";
     public static final String USER_KEY_FILE = PLUGIN_PREFIX + "userKeyFile";
 	public static final String COMMUNICATION_ERROR_WITH_SERVER = "Error communicating with service";
 	public static final String UPDATE_EMPTY_PROJECT = PLUGIN_PREFIX + "updateEmptyProject";
+	public static final String REUSE_RESOLVED_ARTIFACTS = PLUGIN_PREFIX + "reuseResolvedArtifacts";
+	public static final String CACHE_DIRECTORY = PLUGIN_PREFIX + "cacheDirectory";
+	public static final String USE_CHECKSUM_CACHE = PLUGIN_PREFIX + "useChecksumCache";
+	public static final String CHECKSUM_POLICY = PLUGIN_PREFIX + "checksumPolicy";
+	public static final String CHECKSUM_VERIFY_SAMPLE_RATE = PLUGIN_PREFIX + "checksumVerifySampleRate";
+	public static final String PREFETCH_CHECKSUMS = PLUGIN_PREFIX + "prefetchChecksums";
+	public static final String UPDATE_DEPENDENCY_INDEX = PLUGIN_PREFIX + "updateDependencyIndex";
+	public static final String SCAN_NESTED_ARCHIVES = PLUGIN_PREFIX + "scanNestedArchives";
+	public static final String NESTED_ARCHIVE_TYPES = PLUGIN_PREFIX + "nestedArchiveTypes";
+	public static final String IO_CONCURRENCY = PLUGIN_PREFIX + "ioConcurrency";
+	public static final String SCAN_TIME_BUDGET = PLUGIN_PREFIX + "scanTimeBudget";
+	public static final String SCAN_TIME_BUDGET_LARGE_FILE_MB = PLUGIN_PREFIX + "scanTimeBudgetLargeFileMB";
+	public static final String SHARD_COUNT = PLUGIN_PREFIX + "shardCount";
+	public static final String SHARD_INDEX = PLUGIN_PREFIX + "shardIndex";
+	public static final String SHARD_MODULES = PLUGIN_PREFIX + "shardModules";
+	public static final String SHARD_DIRECTORY = PLUGIN_PREFIX + "shardDirectory";
+	public static final String EXPORT_FILE = PLUGIN_PREFIX + "exportFile";
+	public static final String INVENTORY_FILE = PLUGIN_PREFIX + "inventoryFile";
+	public static final String WARM_DIRECTORY = PLUGIN_PREFIX + "warmDirectory";
+	public static final String WARM_EXTENSIONS = PLUGIN_PREFIX + "warmExtensions";
+	public static final String WARM_THREADS = PLUGIN_PREFIX + "warmThreads";
+	public static final String WARM_MAX_MB_PER_SECOND = PLUGIN_PREFIX + "warmMaxMBPerSecond";
+	public static final String WHERE_ARTIFACT = PLUGIN_PREFIX + "whereArtifact";
+	public static final String REMOTE_CACHE_URL = PLUGIN_PREFIX + "remoteCacheUrl";
+	public static final String REMOTE_CACHE_UPLOAD = PLUGIN_PREFIX + "remoteCacheUpload";
+	public static final String LOCAL_POLICY_CHECK = PLUGIN_PREFIX + "localPolicyCheck";
+	public static final String LOCAL_POLICY_FILE = PLUGIN_PREFIX + "localPolicyFile";
+	public static final String LOCAL_POLICY_URL = PLUGIN_PREFIX + "localPolicyUrl";
+	public static final String LOCAL_POLICY_REFRESH_HOURS = PLUGIN_PREFIX + "localPolicyRefreshHours";
+
+	/* --- Project Context Keys --- */
+
+	public static final String PROCESSED_PROJECT_INFO = PLUGIN_PREFIX + "processedProjectInfo";
+
 	/* --- Messages --- */
 
 	public static final String ATTEMPTING_TO_RECONNECT_MESSAGE = "Attempting to reconnect to WhiteSource";
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.DependencyInfo;
+
+import java.util.*;
+
+/**
+ * Flattens dependency trees into flat lists for the aggregate modules mode.
+ * <p>
+ * The trees are walked iteratively (no recursion, no intermediate lists) and dependencies that were already
+ * flattened by this instance, in the same module or in a previous one, are dropped. Two dependencies are considered
+ * identical if they share the same coordinates and SHA-1.
+ */
+class DependencyFlattener {
+
+    /* --- Static members --- */
+
+    private static final char KEY_SEPARATOR = ':';
+
+    /* --- Members --- */
+
+    private final Set<String> flattenedKeys = new HashSet<String>();
+
+    /* --- Public methods --- */
+
+    /**
+     * Flattens the given dependency trees. The children of each dependency are cleared in the process.
+     *
+     * @param dependencies root dependencies of a module.
+     * @return A list of all dependencies in the trees, in pre-order, without previously seen dependencies.
+     */
+    public List<DependencyInfo> flatten(Collection<DependencyInfo> dependencies) {
+        List<DependencyInfo> flatList = new ArrayList<DependencyInfo>(countNodes(dependencies));
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>();
+        pushReversed(stack, dependencies);
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.pop();
+            Collection<DependencyInfo> children = dependency.getChildren();
+            if (!children.isEmpty()) {
+                pushReversed(stack, children);
+                children.clear();
+            }
+            if (flattenedKeys.add(getKey(dependency))) {
+                flatList.add(dependency);
+            }
+        }
+        return flatList;
+    }
+
+    /* --- Private methods --- */
+
+    private int countNodes(Collection<DependencyInfo> dependencies) {
+        int count = 0;
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>(dependencies);
+        while (!stack.isEmpty()) {
+            count++;
+            stack.addAll(stack.pop().getChildren());
+        }
+        return count;
+    }
+
+    private void pushReversed(Deque<DependencyInfo> stack, Collection<DependencyInfo> dependencies) {
+        DependencyInfo[] array = dependencies.toArray(new DependencyInfo[dependencies.size()]);
+        for (int i = array.length - 1; i >= 0; i--) {
+            stack.push(array[i]);
+        }
+    }
+
+    private String getKey(DependencyInfo dependency) {
+        return new StringBuilder()
+                .append(dependency.getGroupId()).append(KEY_SEPARATOR)
+                .append(dependency.getArtifactId()).append(KEY_SEPARATOR)
+                .append(dependency.getVersion()).append(KEY_SEPARATOR)
+                .append(dependency.getClassifier()).append(KEY_SEPARATOR)
+                .append(dependency.getType()).append(KEY_SEPARATOR)
+                .append(dependency.getSha1())
+                .toString();
+    }
+}
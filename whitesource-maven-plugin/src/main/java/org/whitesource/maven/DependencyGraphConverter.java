@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.DependencyType;
+import org.whitesource.agent.api.model.ExclusionInfo;
+import org.whitesource.maven.utils.dependencies.compact.CompactDependencyGraph;
+import org.whitesource.maven.utils.dependencies.compact.StringPool;
+
+import java.util.*;
+
+import static org.whitesource.maven.utils.dependencies.compact.CompactDependencyGraph.*;
+
+/**
+ * Converts between {@link DependencyInfo} trees and {@link CompactDependencyGraph}s.
+ * Instances shared between several parents are converted once and stay shared on both sides.
+ */
+final class DependencyGraphConverter {
+
+    /* --- Static methods --- */
+
+    public static CompactDependencyGraph toGraph(Collection<DependencyInfo> dependencies) {
+        return toGraph(dependencies, new StringPool());
+    }
+
+    public static CompactDependencyGraph toGraph(Collection<DependencyInfo> dependencies, StringPool strings) {
+        CompactDependencyGraph.Builder builder = new CompactDependencyGraph.Builder(strings);
+        Map<DependencyInfo, Integer> nodeIds = new IdentityHashMap<DependencyInfo, Integer>();
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>();
+
+        for (DependencyInfo dependency : dependencies) {
+            builder.addRoot(nodeIdOf(dependency, builder, nodeIds, stack));
+        }
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.pop();
+            int nodeId = nodeIds.get(dependency);
+            for (DependencyInfo child : dependency.getChildren()) {
+                builder.addChild(nodeId, nodeIdOf(child, builder, nodeIds, stack));
+            }
+        }
+        return builder.build();
+    }
+
+    public static List<DependencyInfo> toDependencyInfos(CompactDependencyGraph graph) {
+        DependencyInfo[] infos = new DependencyInfo[graph.getNodeCount()];
+        for (int node = 0; node < infos.length; node++) {
+            infos[node] = toDependencyInfo(graph, node);
+        }
+        for (int node = 0; node < infos.length; node++) {
+            Collection<DependencyInfo> children = infos[node].getChildren();
+            for (int i = 0; i < graph.getChildCount(node); i++) {
+                children.add(infos[graph.getChild(node, i)]);
+            }
+        }
+
+        int[] roots = graph.getRoots();
+        List<DependencyInfo> result = new ArrayList<DependencyInfo>(roots.length);
+        for (int root : roots) {
+            result.add(infos[root]);
+        }
+        return result;
+    }
+
+    /* --- Private methods --- */
+
+    private static int nodeIdOf(DependencyInfo dependency, CompactDependencyGraph.Builder builder,
+                                Map<DependencyInfo, Integer> nodeIds, Deque<DependencyInfo> stack) {
+        Integer nodeId = nodeIds.get(dependency);
+        if (nodeId == null) {
+            nodeId = builder.addNode(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(),
+                    dependency.getClassifier(), dependency.getType(), dependency.getScope(), dependency.getOptional());
+            builder.setField(nodeId, SHA1, dependency.getSha1());
+            builder.setFile(nodeId, dependency.getSystemPath(), dependency.getFilename());
+            for (ExclusionInfo exclusion : dependency.getExclusions()) {
+                builder.addExclusion(nodeId, exclusion.getGroupId(), exclusion.getArtifactId());
+            }
+            nodeIds.put(dependency, nodeId);
+            stack.push(dependency);
+        }
+        return nodeId;
+    }
+
+    private static DependencyInfo toDependencyInfo(CompactDependencyGraph graph, int node) {
+        DependencyInfo info = new DependencyInfo();
+        info.setGroupId(graph.getField(node, GROUP_ID));
+        info.setArtifactId(graph.getField(node, ARTIFACT_ID));
+        info.setVersion(graph.getField(node, VERSION));
+        info.setClassifier(graph.getField(node, CLASSIFIER));
+        info.setType(graph.getField(node, EXTENSION));
+        info.setScope(graph.getField(node, SCOPE));
+        info.setOptional(graph.isOptional(node));
+        info.setSha1(graph.getField(node, SHA1));
+        info.setSystemPath(graph.getField(node, FILE));
+        info.setFilename(graph.getField(node, FILENAME));
+        if (info.getGroupId() != null) {
+            info.setDependencyType(DependencyType.MAVEN);
+        }
+        for (int i = 0; i < graph.getExclusionCount(node); i++) {
+            info.getExclusions().add(new ExclusionInfo(graph.getExclusionArtifactId(node, i), graph.getExclusionGroupId(node, i)));
+        }
+        return info;
+    }
+
+    /* --- Constructors --- */
+
+    private DependencyGraphConverter() {
+        // avoid instantiation
+    }
+}
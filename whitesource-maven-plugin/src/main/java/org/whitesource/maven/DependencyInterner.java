@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.ExclusionInfo;
+
+import java.util.*;
+
+/**
+ * Canonicalizes identical dependency subtrees so that each distinct subtree is held in memory only once.
+ * <p>
+ * Two subtrees are identical if their roots carry the same data and their children are, in order, the same
+ * canonical subtrees. After interning, the trees of all modules processed by this instance form a DAG in which
+ * repeated subtrees (the same transitive family under many parents) are shared instances.
+ * Shared instances must be treated as read only, apart from operations that are valid for every occurrence.
+ * A canonical node whose children were changed since it was interned, e.g. cleared by flattening, is replaced by the
+ * next identical subtree instead of being handed out. Thread safe.
+ */
+class DependencyInterner {
+
+    /* --- Members --- */
+
+    private final Map<NodeKey, DependencyInfo> canonicalNodes = new HashMap<NodeKey, DependencyInfo>();
+    private final Set<DependencyInfo> canonicalSet =
+            Collections.newSetFromMap(new IdentityHashMap<DependencyInfo, Boolean>());
+    private int visitedNodes;
+
+    /* --- Public methods --- */
+
+    /**
+     * Interns the given dependency trees.
+     *
+     * @param dependencies root dependencies of a module.
+     * @return The canonical instances of the given roots, in the same order.
+     */
+    public synchronized List<DependencyInfo> intern(Collection<DependencyInfo> dependencies) {
+        Map<DependencyInfo, DependencyInfo> resolved = new IdentityHashMap<DependencyInfo, DependencyInfo>();
+        Set<DependencyInfo> expanded = Collections.newSetFromMap(new IdentityHashMap<DependencyInfo, Boolean>());
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>(dependencies);
+
+        // iterative post-order walk, children are interned before their parent
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.peek();
+            if (resolved.containsKey(dependency) || canonicalSet.contains(dependency)) {
+                stack.pop();
+            } else if (expanded.add(dependency)) {
+                for (DependencyInfo child : dependency.getChildren()) {
+                    stack.push(child);
+                }
+            } else {
+                stack.pop();
+                resolved.put(dependency, internNode(dependency, resolved));
+            }
+        }
+
+        List<DependencyInfo> result = new ArrayList<DependencyInfo>(dependencies.size());
+        for (DependencyInfo dependency : dependencies) {
+            result.add(canonicalOf(dependency, resolved));
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of dependency nodes interned so far.
+     */
+    public synchronized int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return Number of distinct dependency nodes held after interning.
+     */
+    public synchronized int getCanonicalNodes() {
+        return canonicalSet.size();
+    }
+
+    /* --- Private methods --- */
+
+    private DependencyInfo internNode(DependencyInfo dependency, Map<DependencyInfo, DependencyInfo> resolved) {
+        visitedNodes++;
+        List<DependencyInfo> children = new ArrayList<DependencyInfo>(dependency.getChildren().size());
+        for (DependencyInfo child : dependency.getChildren()) {
+            children.add(canonicalOf(child, resolved));
+        }
+
+        NodeKey key = new NodeKey(dependency, children);
+        DependencyInfo canonical = canonicalNodes.get(key);
+        if (canonical != null && !key.isChildrenOf(canonical)) {
+            // changed since it was interned
+            canonicalSet.remove(canonical);
+            canonical = null;
+        }
+        if (canonical == null) {
+            canonical = dependency;
+            canonicalNodes.put(key, canonical);
+            canonicalSet.add(canonical);
+            dependency.getChildren().clear();
+            dependency.getChildren().addAll(children);
+        }
+        return canonical;
+    }
+
+    private DependencyInfo canonicalOf(DependencyInfo dependency, Map<DependencyInfo, DependencyInfo> resolved) {
+        DependencyInfo canonical = resolved.get(dependency);
+        return canonical == null ? dependency : canonical;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Identity of a subtree: the data of its root, compared field by field, and its canonical children, compared by
+     * reference. The key holds no copy of the data, only the root it was built for and its children at that time.
+     */
+    private static final class NodeKey {
+
+        private final DependencyInfo node;
+        private final DependencyInfo[] children;
+        private final int hash;
+
+        NodeKey(DependencyInfo node, List<DependencyInfo> canonicalChildren) {
+            this.node = node;
+            this.children = canonicalChildren.toArray(new DependencyInfo[canonicalChildren.size()]);
+            int h = Arrays.hashCode(new Object[] { node.getGroupId(), node.getArtifactId(), node.getVersion(),
+                    node.getClassifier(), node.getType(), node.getScope(), node.getOptional(), node.getSha1(),
+                    node.getSystemPath(), node.getFilename(), node.getDependencyType() });
+            for (ExclusionInfo exclusion : node.getExclusions()) {
+                h = 31 * h + hashOf(exclusion.getGroupId());
+                h = 31 * h + hashOf(exclusion.getArtifactId());
+            }
+            for (DependencyInfo child : children) {
+                h = 31 * h + System.identityHashCode(child);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof NodeKey)) {
+                return false;
+            }
+            NodeKey other = (NodeKey) o;
+            if (hash != other.hash || children.length != other.children.length) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != other.children[i]) {
+                    return false;
+                }
+            }
+            DependencyInfo a = node;
+            DependencyInfo b = other.node;
+            return equal(a.getGroupId(), b.getGroupId())
+                    && equal(a.getArtifactId(), b.getArtifactId())
+                    && equal(a.getVersion(), b.getVersion())
+                    && equal(a.getClassifier(), b.getClassifier())
+                    && equal(a.getType(), b.getType())
+                    && equal(a.getScope(), b.getScope())
+                    && a.getOptional() == b.getOptional()
+                    && equal(a.getSha1(), b.getSha1())
+                    && equal(a.getSystemPath(), b.getSystemPath())
+                    && equal(a.getFilename(), b.getFilename())
+                    && equal(a.getDependencyType(), b.getDependencyType())
+                    && sameExclusions(a.getExclusions(), b.getExclusions());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * @return Whether the node still has the children of this key, in the same order.
+         */
+        boolean isChildrenOf(DependencyInfo node) {
+            Collection<DependencyInfo> nodeChildren = node.getChildren();
+            if (nodeChildren.size() != children.length) {
+                return false;
+            }
+            int i = 0;
+            for (DependencyInfo child : nodeChildren) {
+                if (child != children[i++]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean sameExclusions(Collection<ExclusionInfo> a, Collection<ExclusionInfo> b) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            Iterator<ExclusionInfo> other = b.iterator();
+            for (ExclusionInfo exclusion : a) {
+                ExclusionInfo otherExclusion = other.next();
+                if (!equal(exclusion.getGroupId(), otherExclusion.getGroupId())
+                        || !equal(exclusion.getArtifactId(), otherExclusion.getArtifactId())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        private static int hashOf(Object o) {
+            return o == null ? 0 : o.hashCode();
+        }
+    }
+}
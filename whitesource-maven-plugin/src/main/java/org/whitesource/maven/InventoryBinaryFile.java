@@ -0,0 +1,384 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.api.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact, streamable binary file of collected projects, for exporting an inventory on one host and sending it from
+ * another.
+ * <p>
+ * The gzipped file is a sequence of records, each starting with a tag byte:
+ * <ul>
+ * <li>{@code STRING}: a string, added to the string table. Every distinct string is written once, before its first use,
+ * and referenced by its index afterwards.</li>
+ * <li>{@code NODE}: a dependency, referencing its strings and its children, which are written before it. Every distinct
+ * dependency instance is written once, so subtrees shared in memory stay shared in the file and when read back.</li>
+ * <li>{@code PROJECT}: a project, referencing its strings and its direct dependencies.</li>
+ * <li>{@code END}: the end of the file.</li>
+ * </ul>
+ * Integers are written as unsigned varints. String and node references are indices plus one, 0 stands for null.
+ * Readers never hold more than the distinct strings and dependencies.
+ */
+final class InventoryBinaryFile {
+
+    /* --- Static members --- */
+
+    private static final int MAGIC = 0x57535349; // "WSSI"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int END = 0;
+    private static final int STRING = 1;
+    private static final int NODE = 2;
+    private static final int PROJECT = 3;
+
+    private static final int FLAG_OPTIONAL = 1;
+    private static final int FLAG_PARENT_COORDINATES = 2;
+
+    /* --- Static methods --- */
+
+    public static void write(File file, Collection<AgentProjectInfo> projectInfos) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the directory " + directory);
+        }
+        write(new FileOutputStream(file), projectInfos);
+    }
+
+    /**
+     * Writes the projects to the stream and closes it.
+     */
+    public static void write(OutputStream stream, Collection<AgentProjectInfo> projectInfos) throws IOException {
+        DataOutputStream output;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(stream)));
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        try {
+            output.writeInt(MAGIC);
+            writeVarint(output, FORMAT_VERSION);
+            Writer writer = new Writer(output);
+            for (AgentProjectInfo projectInfo : projectInfos) {
+                writer.writeProject(projectInfo);
+            }
+            output.writeByte(END);
+        } finally {
+            output.close();
+        }
+    }
+
+    public static List<AgentProjectInfo> read(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    /**
+     * Reads the projects from the stream and closes it.
+     */
+    public static List<AgentProjectInfo> read(InputStream stream) throws IOException {
+        DataInputStream input;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream)));
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        try {
+            if (input.readInt() != MAGIC || readVarint(input) != FORMAT_VERSION) {
+                throw new IOException("Not an inventory file");
+            }
+            return new Reader(input).readProjects();
+        } catch (EOFException e) {
+            throw new IOException("Truncated inventory file", e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private static void writeVarint(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarint(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /* --- Nested classes --- */
+
+    private static final class Writer {
+
+        private final DataOutputStream output;
+        private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+        private final Map<DependencyInfo, Integer> nodeIds = new IdentityHashMap<DependencyInfo, Integer>();
+
+        Writer(DataOutputStream output) {
+            this.output = output;
+        }
+
+        void writeProject(AgentProjectInfo projectInfo) throws IOException {
+            List<DependencyInfo> dependencies = projectInfo.getDependencies();
+            int[] dependencyRefs = new int[dependencies.size()];
+            for (int i = 0; i < dependencyRefs.length; i++) {
+                dependencyRefs[i] = writeNodes(dependencies.get(i));
+            }
+
+            Coordinates coordinates = projectInfo.getCoordinates();
+            Coordinates parentCoordinates = projectInfo.getParentCoordinates();
+            int[] stringRefs = {
+                    stringRef(coordinates == null ? null : coordinates.getGroupId()),
+                    stringRef(coordinates == null ? null : coordinates.getArtifactId()),
+                    stringRef(coordinates == null ? null : coordinates.getVersion()),
+                    stringRef(parentCoordinates == null ? null : parentCoordinates.getGroupId()),
+                    stringRef(parentCoordinates == null ? null : parentCoordinates.getArtifactId()),
+                    stringRef(parentCoordinates == null ? null : parentCoordinates.getVersion()),
+                    stringRef(projectInfo.getProjectToken())};
+
+            output.writeByte(PROJECT);
+            writeVarint(output, (coordinates == null ? 0 : 1) | (parentCoordinates == null ? 0 : FLAG_PARENT_COORDINATES));
+            for (int stringRef : stringRefs) {
+                writeVarint(output, stringRef);
+            }
+            writeRefs(dependencyRefs);
+        }
+
+        /**
+         * Writes the node and the nodes below it, children before parents.
+         *
+         * @return The reference of the node.
+         */
+        private int writeNodes(DependencyInfo root) throws IOException {
+            Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>();
+            Deque<Boolean> expanded = new ArrayDeque<Boolean>();
+            stack.push(root);
+            expanded.push(Boolean.FALSE);
+            while (!stack.isEmpty()) {
+                DependencyInfo node = stack.peek();
+                if (nodeIds.containsKey(node)) {
+                    stack.pop();
+                    expanded.pop();
+                } else if (!expanded.peek()) {
+                    expanded.pop();
+                    expanded.push(Boolean.TRUE);
+                    for (DependencyInfo child : node.getChildren()) {
+                        if (!nodeIds.containsKey(child)) {
+                            stack.push(child);
+                            expanded.push(Boolean.FALSE);
+                        }
+                    }
+                } else {
+                    stack.pop();
+                    expanded.pop();
+                    writeNode(node);
+                }
+            }
+            return nodeIds.get(root) + 1;
+        }
+
+        private void writeNode(DependencyInfo node) throws IOException {
+            int[] stringRefs = {
+                    stringRef(node.getGroupId()),
+                    stringRef(node.getArtifactId()),
+                    stringRef(node.getVersion()),
+                    stringRef(node.getClassifier()),
+                    stringRef(node.getType()),
+                    stringRef(node.getScope()),
+                    stringRef(node.getSha1()),
+                    stringRef(node.getSystemPath()),
+                    stringRef(node.getFilename()),
+                    stringRef(node.getDependencyType() == null ? null : node.getDependencyType().name())};
+            Collection<ExclusionInfo> exclusions = node.getExclusions();
+            int[] exclusionRefs = new int[exclusions.size() * 2];
+            int i = 0;
+            for (ExclusionInfo exclusion : exclusions) {
+                exclusionRefs[i++] = stringRef(exclusion.getGroupId());
+                exclusionRefs[i++] = stringRef(exclusion.getArtifactId());
+            }
+            Collection<String> licenses = node.getLicenses() == null ? Collections.<String>emptyList() : node.getLicenses();
+            int[] licenseRefs = new int[licenses.size()];
+            i = 0;
+            for (String license : licenses) {
+                licenseRefs[i++] = stringRef(license);
+            }
+            int[] childRefs = new int[node.getChildren().size()];
+            i = 0;
+            for (DependencyInfo child : node.getChildren()) {
+                childRefs[i++] = nodeIds.get(child) + 1;
+            }
+
+            output.writeByte(NODE);
+            writeVarint(output, node.getOptional() ? FLAG_OPTIONAL : 0);
+            for (int stringRef : stringRefs) {
+                writeVarint(output, stringRef);
+            }
+            writeRefs(exclusionRefs);
+            writeRefs(licenseRefs);
+            writeRefs(childRefs);
+            nodeIds.put(node, nodeIds.size());
+        }
+
+        private void writeRefs(int[] refs) throws IOException {
+            writeVarint(output, refs.length);
+            for (int ref : refs) {
+                writeVarint(output, ref);
+            }
+        }
+
+        /**
+         * Writes the string if it wasn't written yet.
+         */
+        private int stringRef(String value) throws IOException {
+            if (value == null) {
+                return 0;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = stringIds.size();
+                stringIds.put(value, id);
+                output.writeByte(STRING);
+                output.writeUTF(value);
+            }
+            return id + 1;
+        }
+    }
+
+    private static final class Reader {
+
+        private final DataInputStream input;
+        private final List<String> strings = new ArrayList<String>();
+        private final List<DependencyInfo> nodes = new ArrayList<DependencyInfo>();
+
+        Reader(DataInputStream input) {
+            this.input = input;
+        }
+
+        List<AgentProjectInfo> readProjects() throws IOException {
+            List<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
+            int tag;
+            while ((tag = input.readUnsignedByte()) != END) {
+                switch (tag) {
+                    case STRING:
+                        strings.add(input.readUTF());
+                        break;
+                    case NODE:
+                        nodes.add(readNode());
+                        break;
+                    case PROJECT:
+                        projectInfos.add(readProject());
+                        break;
+                    default:
+                        throw new IOException("Unknown record " + tag);
+                }
+            }
+            return projectInfos;
+        }
+
+        private DependencyInfo readNode() throws IOException {
+            DependencyInfo node = new DependencyInfo();
+            node.setOptional((readVarint(input) & FLAG_OPTIONAL) != 0);
+            node.setGroupId(readString());
+            node.setArtifactId(readString());
+            node.setVersion(readString());
+            node.setClassifier(readString());
+            node.setType(readString());
+            node.setScope(readString());
+            node.setSha1(readString());
+            node.setSystemPath(readString());
+            node.setFilename(readString());
+            String dependencyType = readString();
+            if (dependencyType != null) {
+                node.setDependencyType(DependencyType.valueOf(dependencyType));
+            }
+            int exclusionCount = readVarint(input) / 2;
+            for (int i = 0; i < exclusionCount; i++) {
+                String groupId = readString();
+                String artifactId = readString();
+                node.getExclusions().add(new ExclusionInfo(artifactId, groupId));
+            }
+            int licenseCount = readVarint(input);
+            for (int i = 0; i < licenseCount; i++) {
+                node.getLicenses().add(readString());
+            }
+            int childCount = readVarint(input);
+            for (int i = 0; i < childCount; i++) {
+                node.getChildren().add(readNodeRef());
+            }
+            return node;
+        }
+
+        private AgentProjectInfo readProject() throws IOException {
+            int flags = readVarint(input);
+            AgentProjectInfo projectInfo = new AgentProjectInfo();
+            Coordinates coordinates = new Coordinates(readString(), readString(), readString());
+            Coordinates parentCoordinates = new Coordinates(readString(), readString(), readString());
+            if ((flags & 1) != 0) {
+                projectInfo.setCoordinates(coordinates);
+            }
+            if ((flags & FLAG_PARENT_COORDINATES) != 0) {
+                projectInfo.setParentCoordinates(parentCoordinates);
+            }
+            projectInfo.setProjectToken(readString());
+            int dependencyCount = readVarint(input);
+            for (int i = 0; i < dependencyCount; i++) {
+                projectInfo.getDependencies().add(readNodeRef());
+            }
+            return projectInfo;
+        }
+
+        private String readString() throws IOException {
+            int ref = readVarint(input);
+            if (ref == 0) {
+                return null;
+            } else if (ref > strings.size()) {
+                throw new IOException("Invalid string reference " + ref);
+            }
+            return strings.get(ref - 1);
+        }
+
+        private DependencyInfo readNodeRef() throws IOException {
+            int ref = readVarint(input);
+            if (ref == 0 || ref > nodes.size()) {
+                throw new IOException("Invalid dependency reference " + ref);
+            }
+            return nodes.get(ref - 1);
+        }
+    }
+
+    /* --- Constructors --- */
+
+    private InventoryBinaryFile() {
+        // avoid instantiation
+    }
+}
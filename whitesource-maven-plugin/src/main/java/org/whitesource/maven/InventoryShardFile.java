@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped JSON file holding the projects collected by one shard of a build.
+ */
+final class InventoryShardFile {
+
+    /* --- Static members --- */
+
+    static final String EXTENSION = ".json.gz";
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENCODING = "UTF-8";
+
+    /* --- Members --- */
+
+    private int formatVersion;
+    private int shardIndex;
+    private int shardCount;
+    private List<AgentProjectInfo> projects;
+
+    /* --- Static methods --- */
+
+    public static void write(File file, int shardIndex, int shardCount, Collection<AgentProjectInfo> projects) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the directory " + directory);
+        }
+
+        InventoryShardFile shard = new InventoryShardFile();
+        shard.formatVersion = FORMAT_VERSION;
+        shard.shardIndex = shardIndex;
+        shard.shardCount = shardCount;
+        shard.projects = new ArrayList<AgentProjectInfo>(projects);
+
+        Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), ENCODING);
+        try {
+            new Gson().toJson(shard, writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return The shard stored in the file.
+     */
+    public static InventoryShardFile read(File file) throws IOException {
+        Reader reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), ENCODING);
+        try {
+            InventoryShardFile shard = new Gson().fromJson(reader, InventoryShardFile.class);
+            if (shard == null || shard.formatVersion != FORMAT_VERSION || shard.projects == null
+                    || shard.shardCount < 1 || shard.shardIndex < 0 || shard.shardIndex >= shard.shardCount) {
+                throw new IOException("Not an inventory shard file: " + file);
+            }
+            return shard;
+        } catch (JsonParseException e) {
+            throw new IOException("Error reading the inventory shard file " + file + ": " + e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return The name of the file of the shard.
+     */
+    public static String getFilename(int shardIndex, int shardCount) {
+        return "shard-" + shardIndex + "-of-" + shardCount + EXTENSION;
+    }
+
+    /* --- Constructors --- */
+
+    private InventoryShardFile() {
+        // instantiated by the static methods and gson only
+    }
+
+    /* --- Getters --- */
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public List<AgentProjectInfo> getProjects() {
+        return projects;
+    }
+}
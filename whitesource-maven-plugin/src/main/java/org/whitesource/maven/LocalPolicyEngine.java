@@ -0,0 +1,327 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.model.*;
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+import org.whitesource.maven.utils.policy.LocalPolicy;
+import org.whitesource.maven.utils.policy.PolicyMatcher;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.*;
+
+/**
+ * Evaluates the organization's policies locally, without asking WhiteSource, from a JSON policy file:
+ * <pre>
+ * {
+ *   "organization": "My Organization",
+ *   "policies": [
+ *     { "name": "Approve our own", "action": "Approve", "groupId": "com.example*" },
+ *     { "name": "Vulnerable log4j", "action": "Reject", "groupId": "org.apache.logging.log4j", "artifactId": "log4j-core", "version": "[2.0,2.17.1)" },
+ *     { "name": "No GPL", "action": "Reject", "licenses": [ "GPL*", "*General Public License*" ] }
+ *   ]
+ * }
+ * </pre>
+ * Policies are listed in descending priority, each library gets the first policy matching it (see {@link LocalPolicy}).
+ * The licenses of a library are read from its pom file in the local repository (licenses inherited from a parent pom
+ * are not).
+ * The result has the structure of a WhiteSource result, with all projects as new projects, so it is reported the same
+ * way. Policies managed in WhiteSource may have criteria this file can't express, so the check is a fast
+ * approximation for e.g. pull request builds, release builds should still check policies in WhiteSource.
+ */
+final class LocalPolicyEngine {
+
+    /* --- Static members --- */
+
+    private static final String ENCODING = "UTF-8";
+    private static final String POM_EXTENSION = ".pom";
+    private static final String LOCK_EXTENSION = ".lock";
+
+    /* --- Members --- */
+
+    private final String organization;
+    private final PolicyMatcher matcher;
+    private final Map<String, Collection<String>> pomLicenses = new HashMap<String, Collection<String>>();
+
+    /* --- Constructors --- */
+
+    private LocalPolicyEngine(String organization, PolicyMatcher matcher) {
+        this.organization = organization;
+        this.matcher = matcher;
+    }
+
+    /* --- Static methods --- */
+
+    public static LocalPolicyEngine load(File policyFile) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(policyFile), ENCODING);
+        try {
+            PolicyFile file = new Gson().fromJson(reader, PolicyFile.class);
+            if (file == null || file.policies == null) {
+                throw new IOException("No policies found in " + policyFile);
+            }
+            List<LocalPolicy> policies = new ArrayList<LocalPolicy>();
+            for (PolicyEntry entry : file.policies) {
+                if (entry.name == null || entry.action == null) {
+                    throw new IOException("Policy without name or action in " + policyFile);
+                }
+                policies.add(new LocalPolicy(entry.name, entry.action, entry.groupId, entry.artifactId, entry.version, entry.licenses));
+            }
+            return new LocalPolicyEngine(file.organization, new PolicyMatcher(policies));
+        } catch (JsonParseException e) {
+            throw new IOException("Error reading the policy file " + policyFile + ": " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid policy in " + policyFile + ": " + e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Downloads the policy file to the given file, unless it was downloaded within maxAgeMillis. Builds sharing the
+     * file download it once, the others wait for the download and use it.
+     *
+     * @throws IOException if the download failed, the file is left unchanged.
+     */
+    public static void refresh(String url, File policyFile, long maxAgeMillis, int timeoutMillis) throws IOException {
+        if (isFresh(policyFile, maxAgeMillis)) {
+            return;
+        }
+        File directory = policyFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the directory " + directory);
+        }
+
+        CrossProcessLock.Lock lock = new CrossProcessLock(new File(directory, policyFile.getName() + LOCK_EXTENSION),
+                2L * timeoutMillis).acquire(policyFile.getAbsolutePath());
+        try {
+            // downloaded by another build in the meantime
+            if (lock == null || !isFresh(policyFile, maxAgeMillis)) {
+                download(url, policyFile, timeoutMillis);
+            }
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The policies applied to the dependencies of the projects.
+     */
+    public CheckPolicyComplianceResult evaluate(Collection<AgentProjectInfo> projectInfos) {
+        Map<String, PolicyCheckResourceNode> projects = new LinkedHashMap<String, PolicyCheckResourceNode>();
+        Map<DependencyInfo, PolicyCheckResourceNode> nodes = new IdentityHashMap<DependencyInfo, PolicyCheckResourceNode>();
+        for (AgentProjectInfo projectInfo : projectInfos) {
+            Coordinates coordinates = projectInfo.getCoordinates();
+            String projectName = coordinates == null ? projectInfo.getProjectToken() : coordinates.getArtifactId();
+
+            ResourceInfo resource = new ResourceInfo();
+            resource.setDisplayName(projectName);
+            PolicyCheckResourceNode root = new PolicyCheckResourceNode(resource, null);
+            root.setChildren(toNodes(projectInfo.getDependencies(), nodes));
+            projects.put(projectName, root);
+        }
+
+        CheckPolicyComplianceResult result = new CheckPolicyComplianceResult(organization);
+        result.setNewProjects(projects);
+        result.setExistingProjects(new HashMap<String, PolicyCheckResourceNode>());
+        return result;
+    }
+
+    public int getPolicyCount() {
+        return matcher.size();
+    }
+
+    /* --- Private methods --- */
+
+    private static boolean isFresh(File policyFile, long maxAgeMillis) {
+        return policyFile.isFile() && System.currentTimeMillis() - policyFile.lastModified() < maxAgeMillis;
+    }
+
+    private static void download(String url, File policyFile, int timeoutMillis) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        InputStream input = connection.getInputStream();
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(policyFile.getName(), ".tmp", policyFile.getAbsoluteFile().getParentFile());
+            OutputStream output = new FileOutputStream(tempFile);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            throw e;
+        } finally {
+            input.close();
+        }
+
+        // validate before replacing the last good file
+        try {
+            load(tempFile);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        if (!tempFile.renameTo(policyFile) && !(policyFile.delete() && tempFile.renameTo(policyFile))) {
+            tempFile.delete();
+            throw new IOException("Can't replace " + policyFile);
+        }
+    }
+
+    /**
+     * Evaluates each distinct dependency once, shared dependencies share their node.
+     * The tree is walked with an explicit stack, deep trees don't overflow the call stack.
+     */
+    private Collection<PolicyCheckResourceNode> toNodes(Collection<DependencyInfo> dependencies,
+                                                       Map<DependencyInfo, PolicyCheckResourceNode> nodes) {
+        Deque<DependencyInfo> stack = new ArrayDeque<DependencyInfo>();
+        Collection<PolicyCheckResourceNode> roots = toNodes(dependencies, nodes, stack);
+        while (!stack.isEmpty()) {
+            DependencyInfo dependency = stack.pop();
+            nodes.get(dependency).setChildren(toNodes(dependency.getChildren(), nodes, stack));
+        }
+        return roots;
+    }
+
+    /**
+     * @return The nodes of the dependencies, the dependencies evaluated here are pushed for their children.
+     */
+    private Collection<PolicyCheckResourceNode> toNodes(Collection<DependencyInfo> dependencies,
+                                                       Map<DependencyInfo, PolicyCheckResourceNode> nodes,
+                                                       Deque<DependencyInfo> stack) {
+        Collection<PolicyCheckResourceNode> children = new ArrayList<PolicyCheckResourceNode>(dependencies.size());
+        for (DependencyInfo dependency : dependencies) {
+            PolicyCheckResourceNode node = nodes.get(dependency);
+            if (node == null) {
+                Collection<String> licenses = getLicenses(dependency);
+                ResourceInfo resource = new ResourceInfo();
+                resource.setDisplayName(dependency.getFilename() != null ? dependency.getFilename()
+                        : dependency.getGroupId() + ':' + dependency.getArtifactId() + ':' + dependency.getVersion());
+                resource.setSha1(dependency.getSha1());
+                resource.setLicenses(licenses);
+
+                LocalPolicy policy = matcher.match(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(), licenses);
+                RequestPolicyInfo policyInfo = null;
+                if (policy != null) {
+                    policyInfo = new RequestPolicyInfo(policy.getName());
+                    policyInfo.setActionType(policy.getAction());
+                }
+                node = new PolicyCheckResourceNode(resource, policyInfo);
+                nodes.put(dependency, node);
+                stack.push(dependency);
+            }
+            children.add(node);
+        }
+        return children;
+    }
+
+    /**
+     * @return The licenses of the dependency, or of its pom next to the artifact file.
+     */
+    private Collection<String> getLicenses(DependencyInfo dependency) {
+        if (dependency.getLicenses() != null && !dependency.getLicenses().isEmpty()) {
+            return dependency.getLicenses();
+        }
+        String systemPath = dependency.getSystemPath();
+        if (systemPath == null || dependency.getArtifactId() == null || dependency.getVersion() == null) {
+            return Collections.emptyList();
+        }
+        File pomFile = new File(new File(systemPath).getParentFile(),
+                dependency.getArtifactId() + '-' + dependency.getVersion() + POM_EXTENSION);
+        String key = pomFile.getPath();
+        Collection<String> licenses = pomLicenses.get(key);
+        if (licenses == null) {
+            licenses = readLicenses(pomFile);
+            pomLicenses.put(key, licenses);
+        }
+        return licenses;
+    }
+
+    private static Collection<String> readLicenses(File pomFile) {
+        if (!pomFile.isFile()) {
+            return Collections.emptyList();
+        }
+        try {
+            // poms don't need a DTD, refuse it along with the external entities it could declare
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setXIncludeAware(false);
+            factory.setExpandEntityReferences(false);
+            Document pom = factory.newDocumentBuilder().parse(pomFile);
+            List<String> licenses = new ArrayList<String>();
+            NodeList licenseNodes = pom.getElementsByTagName("license");
+            for (int i = 0; i < licenseNodes.getLength(); i++) {
+                NodeList names = ((Element) licenseNodes.item(i)).getElementsByTagName("name");
+                Node name = names.getLength() > 0 ? names.item(0) : null;
+                if (name != null && name.getTextContent().trim().length() > 0) {
+                    licenses.add(name.getTextContent().trim());
+                }
+            }
+            return licenses;
+        } catch (ParserConfigurationException e) {
+            return Collections.emptyList();
+        } catch (SAXException e) {
+            return Collections.emptyList();
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    private static final class PolicyFile {
+
+        private String organization;
+        private List<PolicyEntry> policies;
+    }
+
+    private static final class PolicyEntry {
+
+        private String name;
+        private String action;
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private List<String> licenses;
+    }
+}
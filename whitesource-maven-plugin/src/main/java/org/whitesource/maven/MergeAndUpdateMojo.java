@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.DependencyInfo;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Send the open source software usage information stored by the {@code collect} goal on all shards of a build to
+ * WhiteSource, as the {@code update} goal does for the whole reactor. No dependencies are resolved.
+ */
+@Mojo(name = "mergeAndUpdate",
+        requiresDependencyResolution = ResolutionScope.NONE,
+        aggregator = true)
+public class MergeAndUpdateMojo extends UpdateMojo {
+
+    /* --- Members --- */
+
+    /**
+     * Optional. The directory holding the shard files of all shards.
+     */
+    @Parameter(alias = "shardDirectory", property = Constants.SHARD_DIRECTORY, required = false, defaultValue = "${project.build.directory}/whitesource/shards")
+    private File shardDirectory;
+
+    /* --- Constructors --- */
+
+    public MergeAndUpdateMojo() {
+    }
+
+    /* --- Protected methods --- */
+
+    @Override
+    protected void init() throws MojoFailureException {
+        super.init();
+        String shardDirectoryPath = session.getSystemProperties().getProperty(Constants.SHARD_DIRECTORY);
+        if (StringUtils.isNotBlank(shardDirectoryPath)) {
+            shardDirectory = new File(shardDirectoryPath);
+        }
+    }
+
+    /**
+     * @return The projects of all shard files in the shard directory, in the order of the shards.
+     * @throws MojoExecutionException unless the directory holds exactly one file of each shard of the same build.
+     */
+    @Override
+    protected Collection<AgentProjectInfo> collectProjectInfos() throws MojoExecutionException {
+        File[] shardFiles = shardDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(InventoryShardFile.EXTENSION);
+            }
+        });
+        if (shardFiles == null || shardFiles.length == 0) {
+            throw new MojoExecutionException("No shard files found in " + shardDirectory);
+        }
+        Arrays.sort(shardFiles);
+
+        // by shard index, checking all files are shards of the same split
+        int shardCount = 0;
+        File[] filesByIndex = null;
+        InventoryShardFile[] shards = null;
+        for (File shardFile : shardFiles) {
+            InventoryShardFile shard;
+            try {
+                shard = InventoryShardFile.read(shardFile);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error reading the shard file " + shardFile + ": " + e.getMessage(), e);
+            }
+            if (shards == null) {
+                shardCount = shard.getShardCount();
+                filesByIndex = new File[shardCount];
+                shards = new InventoryShardFile[shardCount];
+            } else if (shard.getShardCount() != shardCount) {
+                throw new MojoExecutionException("The shard file " + shardFile + " is one of " + shard.getShardCount()
+                        + " shards, " + shardFiles[0] + " one of " + shardCount
+                        + ". Remove the shard files of other builds from " + shardDirectory);
+            }
+            int shardIndex = shard.getShardIndex();
+            if (shards[shardIndex] != null) {
+                throw new MojoExecutionException("The shard files " + filesByIndex[shardIndex] + " and " + shardFile
+                        + " both hold shard " + shardIndex + ". Remove the shard files of other builds from " + shardDirectory);
+            }
+            filesByIndex[shardIndex] = shardFile;
+            shards[shardIndex] = shard;
+        }
+        List<Integer> missingShards = new ArrayList<Integer>();
+        for (int i = 0; i < shardCount; i++) {
+            if (shards[i] == null) {
+                missingShards.add(i);
+            }
+        }
+        if (!missingShards.isEmpty()) {
+            throw new MojoExecutionException("The shard files of shards " + missingShards + " of " + shardCount
+                    + " are missing in " + shardDirectory + ", the inventory would be incomplete");
+        }
+
+        List<AgentProjectInfo> projectInfos = new ArrayList<AgentProjectInfo>();
+        for (int i = 0; i < shardCount; i++) {
+            List<AgentProjectInfo> shardProjectInfos = shards[i].getProjects();
+            info("Merging " + shardProjectInfos.size() + " projects from " + filesByIndex[i].getName());
+            for (AgentProjectInfo projectInfo : shardProjectInfos) {
+                List<DependencyInfo> dependencies = internDependencies(projectInfo.getDependencies());
+                projectInfo.getDependencies().clear();
+                projectInfo.getDependencies().addAll(dependencies);
+                projectInfos.add(projectInfo);
+            }
+        }
+        return projectInfos;
+    }
+}
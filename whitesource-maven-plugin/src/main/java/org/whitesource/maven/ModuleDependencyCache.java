@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.whitesource.maven.utils.cache.SoftCache;
+import org.whitesource.maven.utils.checksum.Sha1;
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+import org.whitesource.maven.utils.dependencies.compact.CompactDependencyGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide cache of the dependencies collected per module, so builds in a long lived JVM (e.g. the Maven daemon)
+ * don't resolve and hash unchanged modules again.
+ * <p>
+ * An entry is valid while the module's fingerprint is unchanged: its pom files (including parents), its declared and
+ * managed dependencies, the files of its resolved artifacts and the plugin settings affecting the result. Modules
+ * declaring snapshot or version range dependencies without resolved artifacts can't be fingerprinted and aren't cached.
+ * Builds collecting the same module at the same time can coordinate with {@link #lock(MavenProject, File)}.
+ */
+final class ModuleDependencyCache {
+
+    /* --- Static members --- */
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final String SNAPSHOT = "SNAPSHOT";
+    private static final String LOCK_FILE = "modules.lock";
+    private static final long LOCK_MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final SoftCache<String, Entry> entries = new SoftCache<String, Entry>(MAX_ENTRIES);
+
+    /* --- Static methods --- */
+
+    /**
+     * @param project  the module.
+     * @param settings the plugin settings affecting the collected dependencies.
+     * @return the fingerprint of the module, or null if the module can't be cached.
+     */
+    public static String fingerprint(MavenProject project, String settings) {
+        return fingerprint(project, settings, false);
+    }
+
+    /**
+     * Like {@link #fingerprint(MavenProject, String)}, but independent of the host: files are identified by their
+     * content (pom files and snapshots) or coordinates and size (other artifacts), not by their path and modification
+     * time.
+     *
+     * @return the fingerprint of the module, or null if the module can't be cached.
+     */
+    public static String portableFingerprint(MavenProject project, String settings) {
+        return fingerprint(project, settings, true);
+    }
+
+    /**
+     * @return the dependencies collected for the module in the state described by the fingerprint, or null.
+     */
+    public static CompactDependencyGraph get(MavenProject project, String fingerprint) {
+        Entry entry = entries.get(keyOf(project));
+        return entry != null && entry.fingerprint.equals(fingerprint) ? entry.graph : null;
+    }
+
+    public static void put(MavenProject project, String fingerprint, CompactDependencyGraph graph) {
+        entries.put(keyOf(project), new Entry(fingerprint, graph));
+    }
+
+    /**
+     * Waits until no other build (or thread) sharing the cache directory collects the dependencies of the module and
+     * locks them, so they are collected once. The entry (and the remote cache) should be looked up again once locked,
+     * the module may have been collected in the meantime.
+     *
+     * @param cacheDirectory the root directory of the plugin caches.
+     * @return The lock, to release once the entry is stored, or null if the module couldn't be locked.
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    public static CrossProcessLock.Lock lock(MavenProject project, File cacheDirectory) throws InterruptedIOException {
+        return new CrossProcessLock(new File(cacheDirectory, LOCK_FILE), LOCK_MAX_WAIT_MILLIS).acquire(keyOf(project));
+    }
+
+    /* --- Private methods --- */
+
+    private static String fingerprint(MavenProject project, String settings, boolean portable) {
+        StringBuilder fingerprint = new StringBuilder(settings);
+        for (MavenProject current = project; current != null; current = current.getParent()) {
+            fingerprint.append('\n').append(current.getId());
+            if (portable) {
+                if (!appendContent(fingerprint, current.getFile())) {
+                    return null;
+                }
+            } else {
+                appendFile(fingerprint, current.getFile());
+            }
+        }
+
+        boolean artifactsResolved = project.getArtifacts() != null && !project.getArtifacts().isEmpty();
+        if (!appendDependencies(fingerprint, project.getDependencies(), artifactsResolved)) {
+            return null;
+        }
+        if (project.getDependencyManagement() != null
+                && !appendDependencies(fingerprint, project.getDependencyManagement().getDependencies(), artifactsResolved)) {
+            return null;
+        }
+        if (artifactsResolved) {
+            for (Artifact artifact : project.getArtifacts()) {
+                fingerprint.append('\n').append(artifact.getId());
+                if (portable && artifact.isSnapshot()) {
+                    // the content of a snapshot changes under the same coordinates
+                    if (!appendContent(fingerprint, artifact.getFile())) {
+                        return null;
+                    }
+                } else if (portable) {
+                    fingerprint.append(' ').append(artifact.getFile() == null ? -1 : artifact.getFile().length());
+                } else {
+                    appendFile(fingerprint, artifact.getFile());
+                }
+            }
+        }
+        return Sha1.calculate(fingerprint.toString());
+    }
+
+    private static String keyOf(MavenProject project) {
+        return project.getId() + '@' + project.getBasedir();
+    }
+
+    private static boolean appendDependencies(StringBuilder fingerprint, List<Dependency> dependencies, boolean artifactsResolved) {
+        for (Dependency dependency : dependencies) {
+            String version = dependency.getVersion();
+            if (!artifactsResolved && (version == null || version.endsWith(SNAPSHOT)
+                    || version.startsWith("[") || version.startsWith("("))) {
+                return false;
+            }
+            fingerprint.append('\n').append(dependency.getGroupId()).append(':').append(dependency.getArtifactId())
+                    .append(':').append(version).append(':').append(dependency.getType())
+                    .append(':').append(dependency.getClassifier()).append(':').append(dependency.getScope())
+                    .append(':').append(dependency.isOptional()).append(':').append(dependency.getSystemPath());
+            for (Exclusion exclusion : dependency.getExclusions()) {
+                fingerprint.append(" -").append(exclusion.getGroupId()).append(':').append(exclusion.getArtifactId());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the file can't be read.
+     */
+    private static boolean appendContent(StringBuilder fingerprint, File file) {
+        if (file != null) {
+            try {
+                fingerprint.append(' ').append(Sha1.calculate(file));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendFile(StringBuilder fingerprint, File file) {
+        if (file != null) {
+            fingerprint.append(' ').append(file.getAbsolutePath())
+                    .append(' ').append(file.length())
+                    .append(' ').append(file.lastModified());
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final CompactDependencyGraph graph;
+
+        Entry(String fingerprint, CompactDependencyGraph graph) {
+            this.fingerprint = fingerprint;
+            this.graph = graph;
+        }
+    }
+
+    /* --- Constructors --- */
+
+    private ModuleDependencyCache() {
+        // avoid instantiation
+    }
+}
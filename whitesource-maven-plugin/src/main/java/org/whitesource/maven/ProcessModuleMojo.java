@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.DependencyResolutionException;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+
+/**
+ * Collect the open source software usage information of the current module only.
+ * <p>
+ * Unlike the aggregator goals, this goal runs once per module, inside the module's own build slot, so in parallel
+ * builds ({@code mvn -T}) the dependency graphs and checksums of all modules are computed concurrently.
+ * The result is kept with the module and the {@code update} or {@code checkPolicies} goals executed later in the same
+ * build only merge and send it:
+ * <pre>
+ * mvn -T 1C verify whitesource:update
+ * </pre>
+ * with this goal bound to the {@code verify} phase of the modules.
+ */
+@Mojo(name = "processModule",
+        defaultPhase = LifecyclePhase.VERIFY,
+        requiresDependencyResolution = ResolutionScope.TEST,
+        threadSafe = true)
+public class ProcessModuleMojo extends AgentMojo {
+
+    /* --- Constructors --- */
+
+    public ProcessModuleMojo() {
+    }
+
+    /* --- Concrete implementation methods --- */
+
+    @Override
+    public void doExecute() throws MojoExecutionException, MojoFailureException, DependencyResolutionException {
+        // initialize
+        init();
+
+        // decide as the aggregator goals executed on the top level project would
+        if (shouldProcess(mavenProject, session.getTopLevelProject())) {
+            AgentProjectInfo projectInfo = processProject(mavenProject);
+            if (projectInfo != null) {
+                mavenProject.setContextValue(Constants.PROCESSED_PROJECT_INFO, projectInfo);
+            }
+        }
+    }
+
+    @Override
+    protected boolean isServiceRequired() {
+        return false;
+    }
+}
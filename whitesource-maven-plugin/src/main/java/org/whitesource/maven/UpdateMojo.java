@@ -26,12 +26,13 @@ import org.apache.maven.project.DependencyResolutionException;
 import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
 import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
 import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.PolicyCheckResourceNode;
 import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.maven.utils.concurrent.HostRateLimiter;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Properties;
+import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * Send updates of open source software usage information to White Source.
@@ -64,6 +65,13 @@ public class UpdateMojo extends AgentMojo {
     @Parameter(alias = "checkPolicies", property = Constants.CHECK_POLICIES, required = false, defaultValue = "false")
     private boolean checkPolicies;
 
+    /**
+     * Optional. The number of batches the modules are split into for the policy check. The batches are checked at
+     * the same time. Ignored when the modules are aggregated.
+     */
+    @Parameter(alias = "policyCheckBatches", property = Constants.POLICY_CHECK_BATCHES, required = false, defaultValue = "1")
+    private int policyCheckBatches;
+
     /* --- Constructors --- */
 
     public UpdateMojo() {
@@ -87,6 +95,8 @@ public class UpdateMojo extends AgentMojo {
         // send to white source
         if (projectInfos.isEmpty()) {
             info("No open source information found.");
+        } else if (getExportFile() != null) {
+            exportProjectInfos(projectInfos);
         } else {
             sendUpdate(projectInfos);
         }
@@ -98,6 +108,7 @@ public class UpdateMojo extends AgentMojo {
         super.init();
         Properties systemProperties = session.getSystemProperties();
         checkPolicies = Boolean.parseBoolean(systemProperties.getProperty(Constants.CHECK_POLICIES, Boolean.toString(checkPolicies)));
+        policyCheckBatches = Integer.parseInt(systemProperties.getProperty(Constants.POLICY_CHECK_BATCHES, String.valueOf(policyCheckBatches)));
     }
 
     private void sendUpdate(Collection<AgentProjectInfo> projectInfos) throws MojoFailureException, MojoExecutionException {
@@ -105,9 +116,7 @@ public class UpdateMojo extends AgentMojo {
             UpdateInventoryResult updateResult;
             if (checkPolicies) {
                 info("Checking Policies");
-                CheckPolicyComplianceResult result = service.checkPolicyCompliance(
-                        orgToken, product, productVersion, projectInfos, forceCheckAllDependencies, userKey, requesterEmail,
-                        aggregateModules, preserveModuleInfo, aggregateProjectName, aggregateProjectToken);
+                CheckPolicyComplianceResult result = sendCheckPolicies(projectInfos);
 
                 if (outputDirectory == null ||
                         (!outputDirectory.exists() && !outputDirectory.mkdirs())) {
@@ -123,8 +132,7 @@ public class UpdateMojo extends AgentMojo {
 
                 if (!hasRejections || forceUpdate) {
                     info(forceUpdate ? SENDING_FORCE_UPDATE : SENDING_UPDATE);
-                    updateResult = service.update(orgToken, requesterEmail, product, productVersion, projectInfos, userKey,
-                            aggregateModules, preserveModuleInfo, aggregateProjectName, aggregateProjectToken);
+                    updateResult = sendInventoryUpdate(projectInfos);
                     logResult(updateResult);
                 }
 
@@ -135,8 +143,7 @@ public class UpdateMojo extends AgentMojo {
                 }
             } else {
                 info(SENDING_UPDATE);
-                updateResult = service.update(orgToken, requesterEmail, product, productVersion, projectInfos, userKey,
-                        aggregateModules, preserveModuleInfo, aggregateProjectName, aggregateProjectToken);
+                updateResult = sendInventoryUpdate(projectInfos);
                 logResult(updateResult);
             }
         } catch (WssServiceException e) {
@@ -159,6 +166,75 @@ public class UpdateMojo extends AgentMojo {
         }
     }
 
+    /**
+     * Checks the policies of the projects, in batches checked at the same time unless the modules are aggregated.
+     */
+    private CheckPolicyComplianceResult sendCheckPolicies(Collection<AgentProjectInfo> projectInfos)
+            throws WssServiceException, MojoExecutionException {
+        List<Collection<AgentProjectInfo>> batches = aggregateModules
+                ? Collections.singletonList(projectInfos)
+                : splitIntoBatches(projectInfos, policyCheckBatches);
+        if (batches.size() < 2) {
+            return sendCheckPoliciesBatch(projectInfos);
+        }
+
+        debug("Checking policies in " + batches.size() + " batches");
+        AsyncWhitesourceService asyncService = createAsyncService(batches.size());
+        List<Future<CheckPolicyComplianceResult>> futures = new ArrayList<Future<CheckPolicyComplianceResult>>(batches.size());
+        try {
+            for (Collection<AgentProjectInfo> batch : batches) {
+                futures.add(asyncService.checkPolicyCompliance(orgToken, product, productVersion, batch,
+                        forceCheckAllDependencies, userKey, requesterEmail, aggregateModules, preserveModuleInfo,
+                        aggregateProjectName, aggregateProjectToken));
+            }
+            List<CheckPolicyComplianceResult> results = new ArrayList<CheckPolicyComplianceResult>(futures.size());
+            for (Future<CheckPolicyComplianceResult> future : futures) {
+                results.add(AsyncWhitesourceService.await(future));
+            }
+            return mergeResults(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for the policy check results", e);
+        } finally {
+            // batches not sent yet are dropped if another one failed
+            for (Future<CheckPolicyComplianceResult> future : futures) {
+                future.cancel(false);
+            }
+            asyncService.shutdown();
+        }
+    }
+
+    private CheckPolicyComplianceResult sendCheckPoliciesBatch(Collection<AgentProjectInfo> projectInfos) throws WssServiceException {
+        Object event = FlightRecorderEvents.beginServiceCall();
+        boolean succeeded = false;
+        HostRateLimiter.Permit permit = null;
+        try {
+            permit = acquireRequestPermit("checkPolicyCompliance");
+            CheckPolicyComplianceResult result = service.checkPolicyCompliance(
+                    orgToken, product, productVersion, projectInfos, forceCheckAllDependencies, userKey, requesterEmail,
+                    aggregateModules, preserveModuleInfo, aggregateProjectName, aggregateProjectToken);
+            succeeded = true;
+            return result;
+        } finally {
+            endServiceCall(event, "checkPolicyCompliance", projectInfos, succeeded, permit);
+        }
+    }
+
+    private UpdateInventoryResult sendInventoryUpdate(Collection<AgentProjectInfo> projectInfos) throws WssServiceException {
+        Object event = FlightRecorderEvents.beginServiceCall();
+        boolean succeeded = false;
+        HostRateLimiter.Permit permit = null;
+        try {
+            permit = acquireRequestPermit("update");
+            UpdateInventoryResult result = service.update(orgToken, requesterEmail, product, productVersion, projectInfos, userKey,
+                    aggregateModules, preserveModuleInfo, aggregateProjectName, aggregateProjectToken);
+            succeeded = true;
+            return result;
+        } finally {
+            endServiceCall(event, "update", projectInfos, succeeded, permit);
+        }
+    }
+
     private void logResult(UpdateInventoryResult result) {
         info("");
         info("------------------------------------------------------------------------");
@@ -199,6 +275,35 @@ public class UpdateMojo extends AgentMojo {
         }
     }
 
+    /**
+     * Splits the projects into at most the given number of batches of about the same size, keeping their order.
+     */
+    static List<Collection<AgentProjectInfo>> splitIntoBatches(Collection<AgentProjectInfo> projectInfos, int batchCount) {
+        List<AgentProjectInfo> projects = new ArrayList<AgentProjectInfo>(projectInfos);
+        int batchSize = (projects.size() + Math.max(1, batchCount) - 1) / Math.max(1, batchCount);
+        List<Collection<AgentProjectInfo>> batches = new ArrayList<Collection<AgentProjectInfo>>();
+        for (int from = 0; from < projects.size(); from += batchSize) {
+            batches.add(new ArrayList<AgentProjectInfo>(projects.subList(from, Math.min(from + batchSize, projects.size()))));
+        }
+        return batches;
+    }
+
+    /**
+     * Merges the policy check results of project batches into a single result.
+     */
+    static CheckPolicyComplianceResult mergeResults(List<CheckPolicyComplianceResult> results) {
+        CheckPolicyComplianceResult merged = new CheckPolicyComplianceResult(results.get(0).getOrganization());
+        Map<String, PolicyCheckResourceNode> existingProjects = new HashMap<String, PolicyCheckResourceNode>();
+        Map<String, PolicyCheckResourceNode> newProjects = new HashMap<String, PolicyCheckResourceNode>();
+        for (CheckPolicyComplianceResult result : results) {
+            existingProjects.putAll(result.getExistingProjects());
+            newProjects.putAll(result.getNewProjects());
+        }
+        merged.setExistingProjects(existingProjects);
+        merged.setNewProjects(newProjects);
+        return merged;
+    }
+
     private void removeEmptyProjects(Collection<AgentProjectInfo> projectInfos) {
         Collection<AgentProjectInfo> emptyProjects = new ArrayList<AgentProjectInfo>();
         if(!updateEmptyProject){
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Send the open source software usage information exported by a previous run with the exportFile parameter to
+ * WhiteSource, as the {@code update} goal does. No dependencies are resolved, so the export can be made on hosts
+ * without access to WhiteSource and uploaded from one that has it:
+ * <pre>
+ * mvn whitesource:update -Dorg.whitesource.exportFile=inventory.wsi
+ * mvn whitesource:upload -Dorg.whitesource.inventoryFile=inventory.wsi
+ * </pre>
+ * The checkPolicies and forceUpdate parameters apply as in the {@code update} goal.
+ */
+@Mojo(name = "upload",
+        requiresDependencyResolution = ResolutionScope.NONE,
+        aggregator = true)
+public class UploadMojo extends UpdateMojo {
+
+    /* --- Members --- */
+
+    /**
+     * The file written by the exportFile parameter.
+     */
+    @Parameter(alias = "inventoryFile", property = Constants.INVENTORY_FILE, required = false)
+    private File inventoryFile;
+
+    /* --- Constructors --- */
+
+    public UploadMojo() {
+    }
+
+    /* --- Protected methods --- */
+
+    @Override
+    protected void init() throws MojoFailureException {
+        super.init();
+        String inventoryFilePath = session.getSystemProperties().getProperty(Constants.INVENTORY_FILE);
+        if (StringUtils.isNotBlank(inventoryFilePath)) {
+            inventoryFile = new File(inventoryFilePath);
+        }
+    }
+
+    /**
+     * Always sends, the inventory file is the export.
+     */
+    @Override
+    protected File getExportFile() {
+        return null;
+    }
+
+    /**
+     * @return The projects of the inventory file. Dependencies shared by several projects are read once.
+     */
+    @Override
+    protected Collection<AgentProjectInfo> collectProjectInfos() throws MojoExecutionException {
+        if (inventoryFile == null || !inventoryFile.isFile()) {
+            throw new MojoExecutionException("Inventory file not found: " + inventoryFile);
+        }
+        try {
+            List<AgentProjectInfo> projectInfos = InventoryBinaryFile.read(inventoryFile);
+            info("Uploading " + projectInfos.size() + " projects from " + inventoryFile);
+            return projectInfos;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading the inventory file " + inventoryFile + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.whitesource.maven.utils.checksum.PersistentChecksumCache;
+import org.whitesource.maven.utils.checksum.RepositoryWarmer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Calculate the checksums of the new and changed artifacts of the local repository into the persistent checksum cache,
+ * so the scans of later builds find them ready.
+ * <p>
+ * Meant to run in the background, on a schedule or when a build agent starts, without a project:
+ * <pre>
+ * mvn org.whitesource:whitesource-maven-plugin:warm
+ * </pre>
+ * Artifacts are hashed in parallel, with the total read rate limited by warmMaxMBPerSecond so running builds aren't
+ * slowed down.
+ */
+@Mojo(name = "warm",
+        requiresProject = false,
+        requiresDependencyResolution = ResolutionScope.NONE,
+        aggregator = true)
+public class WarmMojo extends WhitesourceMojo {
+
+    /* --- Members --- */
+
+    /**
+     * Optional. The root directory of the plugin caches, as used by the scanning goals.
+     */
+    @Parameter(alias = "cacheDirectory", property = Constants.CACHE_DIRECTORY, required = false, defaultValue = "${user.home}/.whitesource/cache")
+    private File cacheDirectory;
+
+    /**
+     * Optional. The repository directory to warm.
+     */
+    @Parameter(alias = "warmDirectory", property = Constants.WARM_DIRECTORY, required = false, defaultValue = "${settings.localRepository}")
+    private File warmDirectory;
+
+    /**
+     * Optional. Extensions of the artifact files to hash.
+     */
+    @Parameter(alias = "warmExtensions", property = Constants.WARM_EXTENSIONS, required = false, defaultValue = "jar,war,ear,aar,zip")
+    private String[] warmExtensions;
+
+    /**
+     * Optional. The number of files hashed at the same time.
+     */
+    @Parameter(alias = "warmThreads", property = Constants.WARM_THREADS, required = false, defaultValue = "2")
+    private int warmThreads;
+
+    /**
+     * Optional. The maximal total read rate in MB per second, 0 for no limit.
+     */
+    @Parameter(alias = "warmMaxMBPerSecond", property = Constants.WARM_MAX_MB_PER_SECOND, required = false, defaultValue = "20")
+    private int warmMaxMBPerSecond;
+
+    /* --- Constructors --- */
+
+    public WarmMojo() {
+    }
+
+    /* --- Concrete implementation methods --- */
+
+    @Override
+    public void doExecute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (warmDirectory == null || !warmDirectory.isDirectory()) {
+            throw new MojoExecutionException("Repository directory not found: " + warmDirectory);
+        }
+
+        info("Warming the checksum cache " + cacheDirectory + " with the artifacts of " + warmDirectory);
+        long startTime = System.currentTimeMillis();
+        RepositoryWarmer warmer = new RepositoryWarmer(new PersistentChecksumCache(cacheDirectory),
+                Arrays.asList(warmExtensions), warmThreads, warmMaxMBPerSecond * 1024L * 1024L);
+        try {
+            warmer.warm(warmDirectory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while warming the checksum cache", e);
+        }
+        info("Warmed the checksum cache in " + (System.currentTimeMillis() - startTime) + " [msec], " + warmer.getStatistics());
+    }
+
+    /* --- Protected methods --- */
+
+    @Override
+    protected void init() throws MojoFailureException {
+        super.init();
+        Properties systemProperties = session.getSystemProperties();
+        String cacheDirectoryPath = systemProperties.getProperty(Constants.CACHE_DIRECTORY);
+        if (StringUtils.isNotBlank(cacheDirectoryPath)) {
+            cacheDirectory = new File(cacheDirectoryPath);
+        }
+        String warmDirectoryPath = systemProperties.getProperty(Constants.WARM_DIRECTORY);
+        if (StringUtils.isNotBlank(warmDirectoryPath)) {
+            warmDirectory = new File(warmDirectoryPath);
+        }
+        String warmExtensionsList = systemProperties.getProperty(Constants.WARM_EXTENSIONS);
+        if (StringUtils.isNotBlank(warmExtensionsList)) {
+            warmExtensions = warmExtensionsList.split(",");
+        }
+        warmThreads = Integer.parseInt(systemProperties.getProperty(Constants.WARM_THREADS, String.valueOf(warmThreads)));
+        warmMaxMBPerSecond = Integer.parseInt(systemProperties.getProperty(
+                Constants.WARM_MAX_MB_PER_SECOND, String.valueOf(warmMaxMBPerSecond)));
+    }
+
+    @Override
+    protected boolean isServiceRequired() {
+        return false;
+    }
+}
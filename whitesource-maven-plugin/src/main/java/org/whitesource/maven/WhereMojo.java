@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.whitesource.maven.utils.index.DependencyIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Lists the modules using an artifact, from the dependency index recorded by the scanning goals with
+ * {@code updateDependencyIndex}, without resolving anything:
+ * <pre>
+ * mvn org.whitesource:whitesource-maven-plugin:where -Dorg.whitesource.whereArtifact=commons-io:commons-io:2.4
+ * </pre>
+ * The artifact is given as groupId:artifactId (any version), groupId:artifactId:version or SHA-1.
+ */
+@Mojo(name = "where",
+        requiresProject = false,
+        requiresDependencyResolution = ResolutionScope.NONE,
+        aggregator = true)
+public class WhereMojo extends WhitesourceMojo {
+
+    /* --- Members --- */
+
+    /**
+     * Optional. The root directory of the plugin caches, as used by the scanning goals.
+     */
+    @Parameter(alias = "cacheDirectory", property = Constants.CACHE_DIRECTORY, required = false, defaultValue = "${user.home}/.whitesource/cache")
+    private File cacheDirectory;
+
+    /**
+     * The artifact to look for: groupId:artifactId, groupId:artifactId:version or SHA-1.
+     */
+    @Parameter(alias = "whereArtifact", property = Constants.WHERE_ARTIFACT, required = false)
+    private String whereArtifact;
+
+    /* --- Constructors --- */
+
+    public WhereMojo() {
+    }
+
+    /* --- Concrete implementation methods --- */
+
+    @Override
+    public void doExecute() throws MojoExecutionException, MojoFailureException {
+        init();
+        if (StringUtils.isBlank(whereArtifact)) {
+            throw new MojoExecutionException("No artifact to look for, set " + Constants.WHERE_ARTIFACT);
+        }
+
+        long startTime = System.currentTimeMillis();
+        DependencyIndex index = new DependencyIndex(cacheDirectory);
+        List<DependencyIndex.Match> matches;
+        try {
+            matches = index.find(whereArtifact);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading the dependency index " + index.getDirectory() + ": " + e.getMessage(), e);
+        }
+
+        Set<String> modules = new TreeSet<String>();
+        for (DependencyIndex.Match match : matches) {
+            DependencyIndex.Entry entry = match.getEntry();
+            String module = match.getProduct() + " / " + match.getModule() + ":" + match.getModuleVersion();
+            modules.add(module);
+            info(module + ": " + entry.getPath() + (entry.getScope() == null ? "" : " (" + entry.getScope() + ")"));
+        }
+        info(whereArtifact.trim() + " is used " + matches.size() + " times by " + modules.size() + " modules, found in "
+                + (System.currentTimeMillis() - startTime) + " [msec]");
+    }
+
+    /* --- Protected methods --- */
+
+    @Override
+    protected void init() throws MojoFailureException {
+        super.init();
+        Properties systemProperties = session.getSystemProperties();
+        String cacheDirectoryPath = systemProperties.getProperty(Constants.CACHE_DIRECTORY);
+        if (StringUtils.isNotBlank(cacheDirectoryPath)) {
+            cacheDirectory = new File(cacheDirectoryPath);
+        }
+        whereArtifact = systemProperties.getProperty(Constants.WHERE_ARTIFACT, whereArtifact);
+    }
+
+    @Override
+    protected boolean isServiceRequired() {
+        return false;
+    }
+}
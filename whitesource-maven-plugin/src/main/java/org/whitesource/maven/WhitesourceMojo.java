@@ -29,14 +29,17 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectDependenciesResolver;
 import org.whitesource.agent.client.ClientConstants;
 import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.agent.client.WssServiceException;
+import org.whitesource.maven.utils.concurrent.HostRateLimiter;
 import org.whitesource.maven.utils.proxy.ProxySettings;
-import org.whitesource.maven.utils.proxy.ProxySettingsProvider;
 import org.whitesource.maven.utils.proxy.ProxySettingsProviderFactory;
 
+import java.io.File;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Concrete implementation holding common functionality to all goals in this plugin.
@@ -52,6 +55,9 @@ public abstract class WhitesourceMojo extends AbstractMojo {
     private static final String DEFAULT_CONNECTION_RETRY_INTERVAL = "3000";
     private static final String DEFAULT_CONNECTION_IGNORE_CERTIFICATE_CHECK = "false";
     private static final String DEFAULT_ENABLE_DEBUG = "false";
+    private static final String DEFAULT_REUSE_CONNECTIONS = "true";
+    private static final long REQUEST_PERMIT_MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long REQUEST_PERMIT_LOGGED_WAIT_MILLIS = 1000;
 
     /* --- Members --- */
 
@@ -106,8 +112,41 @@ public abstract class WhitesourceMojo extends AbstractMojo {
     @Parameter(alias = "enableDebug", property = Constants.ENABLE_DEBUG, required = false, defaultValue = DEFAULT_ENABLE_DEBUG)
     protected boolean enableDebug;
 
+    /**
+     * Optional. Set to false to close the connections to WhiteSource at the end of each execution,
+     * instead of keeping them open for later executions in the same JVM.
+     */
+    @Parameter(alias = "reuseConnections", property = Constants.REUSE_CONNECTIONS, required = false, defaultValue = DEFAULT_REUSE_CONNECTIONS)
+    protected boolean reuseConnections;
+
+    /**
+     * Optional. The maximal number of requests sent to WhiteSource at the same time by all the builds of the host
+     * sharing the requestLimitDirectory, 0 for no limit.
+     */
+    @Parameter(alias = "maxConcurrentRequests", property = Constants.MAX_CONCURRENT_REQUESTS, required = false, defaultValue = "0")
+    protected int maxConcurrentRequests;
+
+    /**
+     * Optional. The maximal number of requests sent to WhiteSource per minute by all the builds of the host sharing
+     * the requestLimitDirectory, 0 for no limit.
+     */
+    @Parameter(alias = "maxRequestsPerMinute", property = Constants.MAX_REQUESTS_PER_MINUTE, required = false, defaultValue = "0")
+    protected int maxRequestsPerMinute;
+
+    /**
+     * Optional. The directory coordinating the request limits of the builds of the host.
+     */
+    @Parameter(alias = "requestLimitDirectory", property = Constants.REQUEST_LIMIT_DIRECTORY, required = false, defaultValue = "${java.io.tmpdir}/whitesource-requests")
+    protected File requestLimitDirectory;
+
     protected WhitesourceService service;
 
+    private int configuredConnectionRetries;
+    private String serviceUrl;
+    private ProxySettings proxySettings;
+    private String serviceKey;
+    private HostRateLimiter requestLimiter;
+
     /* --- Abstract methods --- */
 
     public abstract void doExecute() throws MojoExecutionException, MojoFailureException, DependencyResolutionException;
@@ -124,7 +163,9 @@ public abstract class WhitesourceMojo extends AbstractMojo {
             info("Skipping update");
         } else {
             try {
-                createService();
+                if (isServiceRequired()) {
+                    createService();
+                }
                 doExecute();
             } catch (DependencyResolutionException e) {
                 handleError(e);
@@ -133,9 +174,7 @@ public abstract class WhitesourceMojo extends AbstractMojo {
             } catch (RuntimeException e) {
                 throw new MojoFailureException("Unexpected error", e);
             } finally {
-                if (service != null) {
-                    service.shutdown();
-                }
+                releaseService();
             }
         }
 
@@ -144,6 +183,13 @@ public abstract class WhitesourceMojo extends AbstractMojo {
 
     /* --- Protected methods --- */
 
+    /**
+     * @return Whether the goal communicates with WhiteSource. Goals that don't, skip the service creation.
+     */
+    protected boolean isServiceRequired() {
+        return true;
+    }
+
     protected void init() throws MojoFailureException {
         Properties systemProperties = session.getSystemProperties();
         failOnError = Boolean.parseBoolean(systemProperties.getProperty(Constants.FAIL_ON_ERROR, Boolean.toString(failOnError)));
@@ -153,9 +199,21 @@ public abstract class WhitesourceMojo extends AbstractMojo {
                 ClientConstants.CONNECTION_TIMEOUT_KEYWORD, String.valueOf(connectionTimeoutMinutes)));
         failOnConnectionError = Boolean.parseBoolean(systemProperties.getProperty(Constants.FAIL_ON_CONNECTION_ERROR, Boolean.toString(failOnConnectionError)));
         connectionRetries = Integer.parseInt(systemProperties.getProperty(Constants.CONNECTION_RETRIES, String.valueOf(connectionRetries)));
+        configuredConnectionRetries = connectionRetries;
         connectionRetryInterval = Integer.parseInt(systemProperties.getProperty(Constants.CONNECTION_RETRY_INTERVAL, String.valueOf(connectionRetryInterval)));
         ignoreCertificateCheck = Boolean.parseBoolean(systemProperties.getProperty(Constants.CONNECTION_IGNORE_CERTIFICATE_CHECK, String.valueOf(ignoreCertificateCheck)));
         enableDebug = Boolean.parseBoolean(systemProperties.getProperty(Constants.ENABLE_DEBUG, String.valueOf(enableDebug)));
+        maxConcurrentRequests = Integer.parseInt(systemProperties.getProperty(
+                Constants.MAX_CONCURRENT_REQUESTS, String.valueOf(maxConcurrentRequests)));
+        maxRequestsPerMinute = Integer.parseInt(systemProperties.getProperty(
+                Constants.MAX_REQUESTS_PER_MINUTE, String.valueOf(maxRequestsPerMinute)));
+        String requestLimitDirectoryPath = systemProperties.getProperty(Constants.REQUEST_LIMIT_DIRECTORY);
+        if (StringUtils.isNotBlank(requestLimitDirectoryPath)) {
+            requestLimitDirectory = new File(requestLimitDirectoryPath);
+        }
+        requestLimiter = (maxConcurrentRequests > 0 || maxRequestsPerMinute > 0) && requestLimitDirectory != null
+                ? new HostRateLimiter(requestLimitDirectory, maxConcurrentRequests, maxRequestsPerMinute, REQUEST_PERMIT_MAX_WAIT_MILLIS)
+                : null;
 
         if (enableDebug) {
             log = new SystemStreamLog() {
@@ -171,26 +229,24 @@ public abstract class WhitesourceMojo extends AbstractMojo {
     }
 
     protected void createService() {
-        String serviceUrl = session.getSystemProperties().getProperty(ClientConstants.SERVICE_URL_KEYWORD);
+        serviceUrl = session.getSystemProperties().getProperty(ClientConstants.SERVICE_URL_KEYWORD);
         if (StringUtils.isBlank(serviceUrl)) {
             serviceUrl = session.getSystemProperties().getProperty(Constants.ALTERNATIVE_SERVICE_URL_KEYWORD, wssUrl);
         }
         info("Service URL is " + serviceUrl);
 
-        service = new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION, Constants.PLUGIN_VERSION,
-                serviceUrl, autoDetectProxySettings, connectionTimeoutMinutes, ignoreCertificateCheck);
-        if (service == null) {
-            info("Failed to initiate WhiteSource Service");
-        } else {
-            info("Initiated WhiteSource Service");
+        // get proxy configuration from session
+        proxySettings = ProxySettingsProviderFactory.getProxySettingsForUrl(serviceUrl, session);
+
+        reuseConnections = Boolean.parseBoolean(session.getSystemProperties().getProperty(
+                Constants.REUSE_CONNECTIONS, String.valueOf(reuseConnections)));
+        if (reuseConnections) {
+            serviceKey = WhitesourceServicePool.keyOf(serviceUrl, autoDetectProxySettings, connectionTimeoutMinutes,
+                    ignoreCertificateCheck, proxySettings);
         }
+        service = acquireService();
 
-        // get proxy configuration from session
-        ProxySettingsProvider proxySettingsProvider = ProxySettingsProviderFactory.getProxySettingsProviderForUrl(serviceUrl, session);
-        if (proxySettingsProvider.isProxyConfigured()) {
-            ProxySettings proxySettings = proxySettingsProvider.getProxySettings();
-            service.getClient().setProxy(proxySettings.getHostname(), proxySettings.getPort(),
-                    proxySettings.getUsername(), proxySettings.getPassword());
+        if (proxySettings != null) {
             info("Proxy hostname: " + proxySettings.getHostname());
             info("Proxy port: " + proxySettings.getPort());
             debug("Proxy username: " + proxySettings.getUsername());
@@ -200,6 +256,96 @@ public abstract class WhitesourceMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * @return A service for the exclusive use of the caller, idle in the pool or newly created.
+     * Must be returned with {@link #releaseService(WhitesourceService)}.
+     */
+    protected WhitesourceService acquireService() {
+        WhitesourceService acquiredService = serviceKey == null ? null : WhitesourceServicePool.lease(serviceKey);
+        if (acquiredService != null) {
+            info("Reusing WhiteSource Service");
+        } else {
+            acquiredService = new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION, Constants.PLUGIN_VERSION,
+                    serviceUrl, autoDetectProxySettings, connectionTimeoutMinutes, ignoreCertificateCheck);
+            info("Initiated WhiteSource Service");
+            if (proxySettings != null) {
+                acquiredService.getClient().setProxy(proxySettings.getHostname(), proxySettings.getPort(),
+                        proxySettings.getUsername(), proxySettings.getPassword());
+            }
+        }
+        return acquiredService;
+    }
+
+    /**
+     * Returns a service to the pool of idle services, or shuts it down when connections aren't reused.
+     */
+    protected void releaseService(WhitesourceService releasedService) {
+        if (serviceKey != null) {
+            WhitesourceServicePool.release(serviceKey, releasedService);
+        } else {
+            releasedService.shutdown();
+        }
+    }
+
+    /**
+     * @param maxInFlight the maximal number of requests sent at the same time.
+     * @return A service sending requests in the background, each on a service acquired for the request.
+     * Must be shut down by the caller. Available once the service was created.
+     */
+    protected AsyncWhitesourceService createAsyncService(int maxInFlight) {
+        return new AsyncWhitesourceService(new AsyncWhitesourceService.ServiceSource() {
+            @Override
+            public HostRateLimiter.Permit acquirePermit(String operation) throws WssServiceException {
+                return acquireRequestPermit(operation);
+            }
+
+            @Override
+            public WhitesourceService acquire() {
+                return acquireService();
+            }
+
+            @Override
+            public void release(WhitesourceService releasedService) {
+                releaseService(releasedService);
+            }
+        }, maxInFlight);
+    }
+
+    /**
+     * Waits until the host wide request limits allow sending a request.
+     *
+     * @return The permit, to release once the response is received, or null if requests aren't limited.
+     * @throws WssServiceException if interrupted while waiting.
+     */
+    protected HostRateLimiter.Permit acquireRequestPermit(String operation) throws WssServiceException {
+        if (requestLimiter == null) {
+            return null;
+        }
+        HostRateLimiter.Permit permit;
+        try {
+            permit = requestLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WssServiceException("Interrupted while waiting for the request limit", e);
+        }
+        String message = "Waited " + permit.getWaitMillis() + " [msec] for the request limit before " + operation;
+        if (!permit.isLimited()) {
+            warn(message + ", sending without it");
+        } else if (permit.getWaitMillis() >= REQUEST_PERMIT_LOGGED_WAIT_MILLIS) {
+            info(message);
+        } else {
+            debug(message);
+        }
+        return permit;
+    }
+
+    private void releaseService() {
+        if (service != null) {
+            releaseService(service);
+            service = null;
+        }
+    }
+
     protected void handleError(Exception error) throws MojoFailureException {
         String message = error.getMessage();
         boolean failOnError = Boolean.valueOf(session.getSystemProperties().getProperty(
@@ -219,6 +365,13 @@ public abstract class WhitesourceMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * @return The number of the current attempt to communicate with WhiteSource, 1 before any retry.
+     */
+    protected int getConnectionAttempt() {
+        return configuredConnectionRetries - connectionRetries + 1;
+    }
+
     protected boolean isConnectionError(Exception e) {
         // checks if a java network exception
         return e.getCause() != null && e.getCause().getClass().getCanonicalName().contains(Constants.JAVA_NETWORK_EXCEPTION);
@@ -238,7 +391,10 @@ public abstract class WhitesourceMojo extends AbstractMojo {
 
     protected CharSequence getFormattedContent(CharSequence content){
         Date date = new Date();
-        return dateFormat.format(date) + content;
+        // also called by background threads, the format is not thread safe
+        synchronized (dateFormat) {
+            return dateFormat.format(date) + content;
+        }
     }
 
     protected void info(CharSequence content) {
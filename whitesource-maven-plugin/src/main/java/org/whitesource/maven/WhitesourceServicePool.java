@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.maven.utils.checksum.Sha1;
+import org.whitesource.maven.utils.proxy.ProxySettings;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM wide pool of idle {@link WhitesourceService}s, keyed by their connection settings.
+ * <p>
+ * A service keeps its HTTP client, and with it the established (keep-alive) connections, TLS sessions and proxy
+ * authentication, for as long as it isn't shut down. Goals executed later in the same JVM (other executions of the
+ * build, or later builds in a Maven daemon) lease the idle service instead of connecting from scratch.
+ * A leased service is used by a single execution at a time. Services idle for longer than
+ * {@link #IDLE_TIMEOUT_MILLIS} are shut down by a daemon thread, the rest when the JVM exits.
+ */
+final class WhitesourceServicePool {
+
+    /* --- Static members --- */
+
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_IDLE_SERVICES_PER_KEY = 4;
+
+    private static final Map<String, Deque<IdleService>> idleServices = new HashMap<String, Deque<IdleService>>();
+    private static ScheduledExecutorService evictor;
+
+    /* --- Static methods --- */
+
+    /**
+     * @return the pool key of a service with the given connection settings. The proxy password is kept as its hash,
+     * as the keys live as long as the JVM.
+     */
+    public static String keyOf(String serviceUrl, boolean autoDetectProxySettings, int connectionTimeoutMinutes,
+                               boolean ignoreCertificateCheck, ProxySettings proxySettings) {
+        StringBuilder key = new StringBuilder(serviceUrl)
+                .append('|').append(autoDetectProxySettings)
+                .append('|').append(connectionTimeoutMinutes)
+                .append('|').append(ignoreCertificateCheck);
+        if (proxySettings != null) {
+            String password = proxySettings.getPassword();
+            key.append('|').append(proxySettings.getHostname())
+                    .append('|').append(proxySettings.getPort())
+                    .append('|').append(proxySettings.getUsername())
+                    .append('|').append(password == null ? null : Sha1.calculate(password));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key the connection settings of the service.
+     * @return the most recently released idle service with these settings, or null if there is none.
+     */
+    public static synchronized WhitesourceService lease(String key) {
+        Deque<IdleService> services = idleServices.get(key);
+        if (services == null || services.isEmpty()) {
+            return null;
+        }
+        return services.pop().service;
+    }
+
+    /**
+     * Returns a leased or newly created service to the pool. The service must not be used by the caller afterwards.
+     */
+    public static void release(String key, WhitesourceService service) {
+        WhitesourceService surplus = null;
+        synchronized (WhitesourceServicePool.class) {
+            Deque<IdleService> services = idleServices.get(key);
+            if (services == null) {
+                services = new ArrayDeque<IdleService>();
+                idleServices.put(key, services);
+            }
+            services.push(new IdleService(service));
+            if (services.size() > MAX_IDLE_SERVICES_PER_KEY) {
+                surplus = services.removeLast().service;
+            }
+            startEvictor();
+        }
+        if (surplus != null) {
+            surplus.shutdown();
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private static void startEvictor() {
+        if (evictor != null) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "whitesource-service-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = IDLE_TIMEOUT_MILLIS / 5;
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                shutdownIdleServices(System.currentTimeMillis() - IDLE_TIMEOUT_MILLIS);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread("whitesource-service-shutdown") {
+            @Override
+            public void run() {
+                shutdownIdleServices(Long.MAX_VALUE);
+            }
+        });
+    }
+
+    /**
+     * Shuts down the services released before the given time.
+     */
+    private static void shutdownIdleServices(long releasedBefore) {
+        List<WhitesourceService> expired = new ArrayList<WhitesourceService>();
+        synchronized (WhitesourceServicePool.class) {
+            Iterator<Deque<IdleService>> iterator = idleServices.values().iterator();
+            while (iterator.hasNext()) {
+                Deque<IdleService> services = iterator.next();
+                // the least recently released services are at the tail
+                while (!services.isEmpty() && services.peekLast().releaseTime < releasedBefore) {
+                    expired.add(services.removeLast().service);
+                }
+                if (services.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+        for (WhitesourceService service : expired) {
+            try {
+                service.shutdown();
+            } catch (RuntimeException e) {
+                // nothing to do, the service is discarded anyway
+            }
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    private static final class IdleService {
+
+        private final WhitesourceService service;
+        private final long releaseTime;
+
+        IdleService(WhitesourceService service) {
+            this.service = service;
+            this.releaseTime = System.currentTimeMillis();
+        }
+    }
+
+    /* --- Constructors --- */
+
+    private WhitesourceServicePool() {
+        // avoid instantiation
+    }
+}
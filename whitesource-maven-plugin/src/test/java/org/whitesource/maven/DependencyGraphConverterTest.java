@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.junit.Test;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.DependencyType;
+import org.whitesource.agent.api.model.ExclusionInfo;
+import org.whitesource.maven.utils.dependencies.compact.CompactDependencyGraph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DependencyGraphConverterTest {
+
+    /* --- Tests --- */
+
+    /**
+     * {@code b} is the child of both roots and must stay a single instance after the round trip.
+     */
+    @Test
+    public void roundTripKeepsSharedSubtrees() {
+        DependencyInfo c = node("c");
+        DependencyInfo b = node("b", c);
+        b.getExclusions().add(new ExclusionInfo("f", "e"));
+        b.setOptional(true);
+        b.setScope("runtime");
+        b.setSha1("sha1-of-b");
+        b.setSystemPath("/repository/b-1.0.jar");
+        b.setFilename("b-1.0.jar");
+        DependencyInfo a = node("a", b);
+        DependencyInfo x = node("x", b);
+
+        CompactDependencyGraph graph = DependencyGraphConverter.toGraph(Arrays.asList(a, x));
+        assertEquals(4, graph.getNodeCount());
+        List<DependencyInfo> roots = DependencyGraphConverter.toDependencyInfos(graph);
+
+        assertEquals(2, roots.size());
+        assertEquals("a", roots.get(0).getArtifactId());
+        assertEquals("x", roots.get(1).getArtifactId());
+        DependencyInfo copyB = roots.get(0).getChildren().iterator().next();
+        assertSame(copyB, roots.get(1).getChildren().iterator().next());
+        assertEquals("b", copyB.getArtifactId());
+        assertEquals("1.0", copyB.getVersion());
+        assertEquals("runtime", copyB.getScope());
+        assertTrue(copyB.getOptional());
+        assertEquals("sha1-of-b", copyB.getSha1());
+        assertEquals("/repository/b-1.0.jar", copyB.getSystemPath());
+        assertEquals("b-1.0.jar", copyB.getFilename());
+        assertEquals(DependencyType.MAVEN, copyB.getDependencyType());
+        ExclusionInfo exclusion = copyB.getExclusions().iterator().next();
+        assertEquals("e", exclusion.getGroupId());
+        assertEquals("f", exclusion.getArtifactId());
+
+        Iterator<DependencyInfo> children = copyB.getChildren().iterator();
+        assertEquals("c", children.next().getArtifactId());
+        assertFalse(children.hasNext());
+    }
+
+    @Test
+    public void roundTripKeepsNullFields() {
+        DependencyInfo file = new DependencyInfo();
+        file.setSha1("sha1-of-file");
+        file.setFilename("file.jar");
+
+        DependencyInfo copy = DependencyGraphConverter.toDependencyInfos(
+                DependencyGraphConverter.toGraph(Arrays.asList(node("a"), file))).get(1);
+
+        assertNull(copy.getGroupId());
+        assertNull(copy.getArtifactId());
+        assertNull(copy.getVersion());
+        assertNull(copy.getClassifier());
+        assertNull(copy.getScope());
+        assertNull(copy.getSystemPath());
+        assertNull(copy.getDependencyType());
+        assertEquals("sha1-of-file", copy.getSha1());
+        assertEquals("file.jar", copy.getFilename());
+        assertTrue(copy.getExclusions().isEmpty());
+        assertTrue(copy.getChildren().isEmpty());
+    }
+
+    /* --- Private methods --- */
+
+    private static DependencyInfo node(String artifactId, DependencyInfo... children) {
+        DependencyInfo dependency = new DependencyInfo();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion("1.0");
+        dependency.getChildren().addAll(Arrays.asList(children));
+        return dependency;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.junit.Test;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.ExclusionInfo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DependencyInternerTest {
+
+    @Test
+    public void sharesIdenticalSubtrees() {
+        DependencyInfo first = node("a", node("b", node("c")));
+        DependencyInfo second = node("x", node("b", node("c")));
+
+        DependencyInterner interner = new DependencyInterner();
+        List<DependencyInfo> roots = interner.intern(Arrays.asList(first, second));
+
+        assertSame(roots.get(0).getChildren().iterator().next(), roots.get(1).getChildren().iterator().next());
+        assertEquals(6, interner.getVisitedNodes());
+        assertEquals(4, interner.getCanonicalNodes());
+    }
+
+    @Test
+    public void keepsSubtreesWithDifferentChildrenApart() {
+        DependencyInfo first = node("b", node("c"));
+        DependencyInfo second = node("b", node("d"));
+
+        List<DependencyInfo> roots = new DependencyInterner().intern(Arrays.asList(first, second));
+
+        assertNotSame(roots.get(0), roots.get(1));
+    }
+
+    @Test
+    public void keepsNodesWithDifferentExclusionsApart() {
+        DependencyInfo first = node("b");
+        DependencyInfo second = node("b");
+        second.getExclusions().add(new ExclusionInfo("e", "g"));
+
+        List<DependencyInfo> roots = new DependencyInterner().intern(Arrays.asList(first, second));
+
+        assertNotSame(roots.get(0), roots.get(1));
+    }
+
+    @Test
+    public void keepsChildrenWhenCanonicalChildrenAreCleared() {
+        DependencyInterner interner = new DependencyInterner();
+        DependencyInfo first = interner.intern(Arrays.asList(node("b", node("c")))).get(0);
+        first.getChildren().clear();
+
+        DependencyInfo second = interner.intern(Arrays.asList(node("b", node("c")))).get(0);
+
+        assertNotSame(first, second);
+        assertEquals(1, second.getChildren().size());
+        assertEquals("c", second.getChildren().iterator().next().getArtifactId());
+        // the replacement is shared from now on
+        assertSame(second, interner.intern(Arrays.asList(node("b", node("c")))).get(0));
+    }
+
+    @Test
+    public void keepsSubtreesOfFlattenedModules() {
+        DependencyInterner interner = new DependencyInterner();
+        List<DependencyInfo> module = interner.intern(Arrays.asList(node("a", node("b", node("c")))));
+        new DependencyFlattener().flatten(module);
+
+        DependencyInfo root = interner.intern(Arrays.asList(node("a", node("b", node("c"))))).get(0);
+
+        DependencyInfo child = root.getChildren().iterator().next();
+        assertEquals("b", child.getArtifactId());
+        assertEquals("c", child.getChildren().iterator().next().getArtifactId());
+    }
+
+    /* --- Private methods --- */
+
+    private static DependencyInfo node(String artifactId, DependencyInfo... children) {
+        DependencyInfo dependency = new DependencyInfo();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion("1.0");
+        dependency.getChildren().addAll(Arrays.asList(children));
+        return dependency;
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+import org.whitesource.agent.api.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class InventoryBinaryFileTest {
+
+    /* --- Static members --- */
+
+    private static final int MAGIC = 0x57535349;
+
+    /* --- Round trip --- */
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        DependencyInfo dependency = dependency("commons-lang", "2.6");
+        dependency.setClassifier("sources");
+        dependency.setType("jar");
+        dependency.setScope("compile");
+        dependency.setOptional(true);
+        dependency.setSha1("0ce1edb914c94ebc388f086c6827e8bdeec71ac2");
+        dependency.setSystemPath("/lib/commons-lang.jar");
+        dependency.setFilename("commons-lang-2.6.jar");
+        dependency.setDependencyType(DependencyType.MAVEN);
+        dependency.getExclusions().add(new ExclusionInfo("junit", "junit"));
+        dependency.getLicenses().add("Apache 2.0");
+        dependency.getChildren().add(dependency("child", "1.0"));
+        AgentProjectInfo project = project("module", dependency);
+        project.setParentCoordinates(new Coordinates("g", "parent", "1.0"));
+        project.setProjectToken("token");
+
+        AgentProjectInfo read = roundTrip(Collections.singletonList(project)).get(0);
+
+        assertEquals("g:module:1.0", read.getCoordinates().toString());
+        assertEquals("g:parent:1.0", read.getParentCoordinates().toString());
+        assertEquals("token", read.getProjectToken());
+        DependencyInfo readDependency = read.getDependencies().get(0);
+        assertEquals("g", readDependency.getGroupId());
+        assertEquals("commons-lang", readDependency.getArtifactId());
+        assertEquals("2.6", readDependency.getVersion());
+        assertEquals("sources", readDependency.getClassifier());
+        assertEquals("jar", readDependency.getType());
+        assertEquals("compile", readDependency.getScope());
+        assertTrue(readDependency.getOptional());
+        assertEquals(dependency.getSha1(), readDependency.getSha1());
+        assertEquals("/lib/commons-lang.jar", readDependency.getSystemPath());
+        assertEquals("commons-lang-2.6.jar", readDependency.getFilename());
+        assertEquals(DependencyType.MAVEN, readDependency.getDependencyType());
+        ExclusionInfo exclusion = readDependency.getExclusions().iterator().next();
+        assertEquals("junit", exclusion.getGroupId());
+        assertEquals("junit", exclusion.getArtifactId());
+        assertEquals(Collections.singletonList("Apache 2.0"), new ArrayList<String>(readDependency.getLicenses()));
+        assertEquals("child", readDependency.getChildren().iterator().next().getArtifactId());
+    }
+
+    @Test
+    public void keepsNullFields() throws IOException {
+        AgentProjectInfo project = new AgentProjectInfo();
+        DependencyInfo dependency = new DependencyInfo();
+        project.getDependencies().add(dependency);
+
+        AgentProjectInfo read = roundTrip(Collections.singletonList(project)).get(0);
+
+        assertNull(read.getCoordinates());
+        assertNull(read.getParentCoordinates());
+        assertNull(read.getProjectToken());
+        DependencyInfo readDependency = read.getDependencies().get(0);
+        assertNull(readDependency.getGroupId());
+        assertNull(readDependency.getVersion());
+        assertNull(readDependency.getDependencyType());
+        assertFalse(readDependency.getOptional());
+    }
+
+    @Test
+    public void keepsSharedSubtreesShared() throws IOException {
+        DependencyInfo shared = dependency("shared", "1.0", dependency("leaf", "1.0"));
+        DependencyInfo first = dependency("first", "1.0", shared);
+        DependencyInfo second = dependency("second", "1.0", shared, shared);
+        List<AgentProjectInfo> projects = Arrays.asList(project("a", first, shared), project("b", second));
+
+        List<AgentProjectInfo> read = roundTrip(projects);
+
+        DependencyInfo readShared = read.get(0).getDependencies().get(1);
+        assertEquals("shared", readShared.getArtifactId());
+        assertSame(readShared, read.get(0).getDependencies().get(0).getChildren().iterator().next());
+        Iterator<DependencyInfo> secondChildren = read.get(1).getDependencies().get(0).getChildren().iterator();
+        assertSame(readShared, secondChildren.next());
+        assertSame(readShared, secondChildren.next());
+        assertEquals(1, readShared.getChildren().size());
+    }
+
+    @Test
+    public void keepsEqualButDistinctInstancesApart() throws IOException {
+        List<AgentProjectInfo> projects = Collections.singletonList(
+                project("a", dependency("same", "1.0"), dependency("same", "1.0")));
+
+        List<DependencyInfo> read = roundTrip(projects).get(0).getDependencies();
+
+        assertEquals(2, read.size());
+        assertNotSame(read.get(0), read.get(1));
+    }
+
+    @Test
+    public void writesEachStringOnce() throws IOException {
+        String marker = "org.example.repeated.group";
+        List<AgentProjectInfo> projects = new ArrayList<AgentProjectInfo>();
+        for (int i = 0; i < 10; i++) {
+            DependencyInfo dependency = dependency("artifact" + i, "1.0");
+            dependency.setGroupId(marker);
+            projects.add(project("module" + i, dependency));
+        }
+
+        byte[] content = gunzip(write(projects));
+
+        assertEquals(1, count(new String(content, "ISO-8859-1"), marker));
+        for (AgentProjectInfo project : InventoryBinaryFile.read(new ByteArrayInputStream(write(projects)))) {
+            assertEquals(marker, project.getDependencies().get(0).getGroupId());
+        }
+    }
+
+    @Test
+    public void handlesDeepTrees() throws IOException {
+        DependencyInfo root = dependency("level0", "1.0");
+        DependencyInfo parent = root;
+        for (int i = 1; i < 10000; i++) {
+            DependencyInfo child = dependency("level" + i, "1.0");
+            parent.getChildren().add(child);
+            parent = child;
+        }
+
+        DependencyInfo read = roundTrip(Collections.singletonList(project("a", root))).get(0).getDependencies().get(0);
+
+        int depth = 1;
+        while (!read.getChildren().isEmpty()) {
+            read = read.getChildren().iterator().next();
+            depth++;
+        }
+        assertEquals(10000, depth);
+        assertEquals("level9999", read.getArtifactId());
+    }
+
+    /* --- Corrupt input --- */
+
+    @Test
+    public void rejectsNonGzippedInput() {
+        assertRejected("not gzipped".getBytes(), null);
+    }
+
+    @Test
+    public void rejectsWrongMagic() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0x12345678);
+        output.writeByte(1);
+        output.writeByte(0);
+        assertRejected(gzip(bytes.toByteArray()), "Not an inventory file");
+    }
+
+    @Test
+    public void rejectsUnknownFormatVersion() throws IOException {
+        assertRejected(gzip(header(2, 0)), "Not an inventory file");
+    }
+
+    @Test
+    public void rejectsUnknownRecord() throws IOException {
+        assertRejected(gzip(header(1, 9)), "Unknown record 9");
+    }
+
+    @Test
+    public void rejectsInvalidStringReference() throws IOException {
+        // a project referencing string 5 while no string was written
+        assertRejected(gzip(header(1, 3, 1, 5)), "Invalid string reference 5");
+    }
+
+    @Test
+    public void rejectsInvalidDependencyReference() throws IOException {
+        // a project without coordinates referencing dependency 1 while no dependency was written
+        assertRejected(gzip(header(1, 3, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1)), "Invalid dependency reference 1");
+    }
+
+    @Test
+    public void rejectsNullDependencyReference() throws IOException {
+        assertRejected(gzip(header(1, 3, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0)), "Invalid dependency reference 0");
+    }
+
+    @Test
+    public void rejectsMalformedVarint() throws IOException {
+        assertRejected(gzip(header(0x80, 0x80, 0x80, 0x80, 0x80, 0x01)), "Malformed varint");
+    }
+
+    @Test
+    public void rejectsMissingEndRecord() throws IOException {
+        byte[] content = gunzip(write(Collections.singletonList(project("a", dependency("b", "1.0")))));
+        assertRejected(gzip(Arrays.copyOf(content, content.length - 1)), "Truncated inventory file");
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        byte[] file = write(Collections.singletonList(project("a", dependency("b", "1.0"))));
+        assertRejected(Arrays.copyOf(file, file.length / 2), "Truncated inventory file");
+    }
+
+    /* --- Size and load time --- */
+
+    /**
+     * Compares the file with the JSON the projects are sent as, for a reactor of modules sharing most of their
+     * dependencies, both loading to the same projects.
+     */
+    @Test
+    public void isSmallerThanJson() throws IOException {
+        List<AgentProjectInfo> projects = reactor(100, 300);
+        Gson gson = new Gson();
+
+        byte[] binary = write(projects);
+        byte[] json = gson.toJson(projects).getBytes("UTF-8");
+        byte[] gzippedJson = gzip(json);
+
+        assertEquals(projects.size(), InventoryBinaryFile.read(new ByteArrayInputStream(binary)).size());
+        List<AgentProjectInfo> parsed = gson.fromJson(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(gzippedJson)), "UTF-8"),
+                new TypeToken<List<AgentProjectInfo>>() { }.getType());
+        assertEquals(projects.size(), parsed.size());
+        assertTrue(binary.length < gzippedJson.length);
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @return Modules each depending on a few own dependencies and on a library family shared by all of them.
+     */
+    private static List<AgentProjectInfo> reactor(int modules, int sharedDependencies) {
+        DependencyInfo[] family = new DependencyInfo[sharedDependencies];
+        for (int i = 0; i < family.length; i++) {
+            family[i] = dependency("library" + i, "1." + i);
+            family[i].setSha1(String.format("%040x", i));
+            family[i].setScope("compile");
+            family[i].setType("jar");
+            if (i > 0) {
+                family[(i - 1) / 4].getChildren().add(family[i]);
+            }
+        }
+        List<AgentProjectInfo> projects = new ArrayList<AgentProjectInfo>();
+        for (int m = 0; m < modules; m++) {
+            DependencyInfo own = dependency("module" + m + "-dependency", "2.0");
+            own.setSha1(String.format("%040x", sharedDependencies + m));
+            projects.add(project("module" + m, own, family[0]));
+        }
+        return projects;
+    }
+
+    private static List<AgentProjectInfo> roundTrip(List<AgentProjectInfo> projects) throws IOException {
+        return InventoryBinaryFile.read(new ByteArrayInputStream(write(projects)));
+    }
+
+    private static byte[] write(List<AgentProjectInfo> projects) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InventoryBinaryFile.write(bytes, projects);
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] file, String message) {
+        try {
+            InventoryBinaryFile.read(new ByteArrayInputStream(file));
+            fail("Corrupt file read");
+        } catch (IOException e) {
+            if (message != null) {
+                assertEquals(message, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The file header followed by the given bytes.
+     */
+    private static byte[] header(int... bytes) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(content);
+        output.writeInt(MAGIC);
+        for (int b : bytes) {
+            output.writeByte(b);
+        }
+        output.flush();
+        return content.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream output = new GZIPOutputStream(bytes);
+        output.write(content);
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        InputStream input = new GZIPInputStream(new ByteArrayInputStream(content));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        input.close();
+        return bytes.toByteArray();
+    }
+
+    private static int count(String text, String value) {
+        int count = 0;
+        for (int i = text.indexOf(value); i >= 0; i = text.indexOf(value, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static AgentProjectInfo project(String artifactId, DependencyInfo... dependencies) {
+        AgentProjectInfo project = new AgentProjectInfo();
+        project.setCoordinates(new Coordinates("g", artifactId, "1.0"));
+        project.getDependencies().addAll(Arrays.asList(dependencies));
+        return project;
+    }
+
+    private static DependencyInfo dependency(String artifactId, String version, DependencyInfo... children) {
+        DependencyInfo dependency = new DependencyInfo();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        dependency.getChildren().addAll(Arrays.asList(children));
+        return dependency;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
+import org.whitesource.agent.api.model.DependencyInfo;
+import org.whitesource.agent.api.model.PolicyCheckResourceNode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class LocalPolicyEngineTest {
+
+    /* --- Static members --- */
+
+    private static final int DEPTH = 100000;
+
+    /* --- Members --- */
+
+    private File directory;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("policy", "");
+        assertTrue(directory.delete() && directory.mkdir());
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void readsPomLicenses() throws Exception {
+        File pom = write("lib.pom", "<project><licenses><license><name> Apache 2.0 </name></license>"
+                + "<license><name>MIT</name></license></licenses></project>");
+
+        assertEquals("[Apache 2.0, MIT]", readLicenses(pom).toString());
+    }
+
+    @Test
+    public void ignoresPomsWithExternalEntities() throws Exception {
+        File secret = write("secret.txt", "secret");
+        File pom = write("lib.pom", "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE project [<!ENTITY secret SYSTEM \"" + secret.toURI() + "\">]>"
+                + "<project><licenses><license><name>&secret;</name></license></licenses></project>");
+
+        assertEquals(Collections.emptyList(), readLicenses(pom));
+    }
+
+    /**
+     * A chain deeper than the call stack allows to recurse over, with a dependency shared by its first and last node.
+     */
+    @Test
+    public void evaluatesDeepTrees() throws Exception {
+        LocalPolicyEngine engine = LocalPolicyEngine.load(write("policies.json", "{\"organization\": \"org\", \"policies\": ["
+                + "{\"name\": \"no shared\", \"action\": \"Reject\", \"groupId\": \"g\", \"artifactId\": \"shared\"}]}"));
+        DependencyInfo shared = dependency("shared");
+        DependencyInfo first = dependency("0");
+        first.getChildren().add(shared);
+        DependencyInfo last = first;
+        for (int i = 1; i < DEPTH; i++) {
+            DependencyInfo next = dependency(Integer.toString(i));
+            last.getChildren().add(next);
+            last = next;
+        }
+        last.getChildren().add(shared);
+        AgentProjectInfo project = new AgentProjectInfo();
+        project.setCoordinates(new Coordinates("g", "project", "1.0"));
+        project.getDependencies().add(first);
+
+        CheckPolicyComplianceResult result = engine.evaluate(Collections.singletonList(project));
+
+        PolicyCheckResourceNode node = result.getNewProjects().get("project").getChildren().iterator().next();
+        PolicyCheckResourceNode sharedNode = null;
+        for (int i = 0; i < DEPTH; i++) {
+            assertEquals("g:" + i + ":1.0", node.getResource().getDisplayName());
+            assertNull(node.getPolicy());
+            Iterator<PolicyCheckResourceNode> children = node.getChildren().iterator();
+            PolicyCheckResourceNode child = children.next();
+            if (i == 0) {
+                sharedNode = child;
+                child = children.next();
+            } else if (i == DEPTH - 1) {
+                assertSame(sharedNode, child);
+                break;
+            }
+            node = child;
+        }
+        assertEquals("no shared", sharedNode.getPolicy().getDisplayName());
+        assertTrue(sharedNode.getChildren().isEmpty());
+    }
+
+    /* --- Private methods --- */
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> readLicenses(File pom) throws Exception {
+        Method readLicenses = LocalPolicyEngine.class.getDeclaredMethod("readLicenses", File.class);
+        readLicenses.setAccessible(true);
+        return (Collection<String>) readLicenses.invoke(null, pom);
+    }
+
+    private static DependencyInfo dependency(String artifactId) {
+        DependencyInfo dependency = new DependencyInfo();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion("1.0");
+        return dependency;
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+}
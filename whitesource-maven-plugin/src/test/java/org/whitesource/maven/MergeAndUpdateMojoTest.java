@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.api.model.AgentProjectInfo;
+import org.whitesource.agent.api.model.Coordinates;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Merges the shard files written by the collect goal.
+ */
+public class MergeAndUpdateMojoTest {
+
+    /* --- Members --- */
+
+    private File shardDirectory;
+    private MergeAndUpdateMojo mojo;
+
+    /* --- Setup --- */
+
+    @Before
+    public void setUp() throws Exception {
+        shardDirectory = File.createTempFile("shards", "");
+        assertTrue(shardDirectory.delete() && shardDirectory.mkdir());
+        mojo = new MergeAndUpdateMojo();
+        Field field = MergeAndUpdateMojo.class.getDeclaredField("shardDirectory");
+        field.setAccessible(true);
+        field.set(mojo, shardDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = shardDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        shardDirectory.delete();
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void mergesShardsInTheirOrder() throws Exception {
+        writeShard(2, 3, "c");
+        writeShard(0, 3, "a");
+        writeShard(1, 3, "b");
+
+        assertEquals("a,b,c", artifactIds(mojo.collectProjectInfos()));
+    }
+
+    @Test
+    public void failsOnMissingShard() throws Exception {
+        writeShard(0, 3, "a");
+        writeShard(2, 3, "c");
+
+        assertMergeFails("[1]");
+    }
+
+    @Test
+    public void failsOnShardsOfDifferentSplits() throws Exception {
+        writeShard(0, 2, "a");
+        writeShard(1, 2, "b");
+        // left over from a build split differently
+        writeShard(0, 4, "a");
+
+        assertMergeFails("one of 4 shards");
+    }
+
+    @Test
+    public void failsOnShardStoredTwice() throws Exception {
+        writeShard(0, 2, "a");
+        writeShard(1, 2, "b");
+        InventoryShardFile.write(new File(shardDirectory, "copy-of-shard-1" + InventoryShardFile.EXTENSION), 1, 2,
+                projects("b"));
+
+        assertMergeFails("both hold shard 1");
+    }
+
+    @Test
+    public void readsShardHeader() throws IOException {
+        File file = writeShard(1, 4, "a", "b");
+
+        InventoryShardFile shard = InventoryShardFile.read(file);
+
+        assertEquals(1, shard.getShardIndex());
+        assertEquals(4, shard.getShardCount());
+        assertEquals("a,b", artifactIds(shard.getProjects()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsShardOutsideItsSplit() throws IOException {
+        File file = new File(shardDirectory, InventoryShardFile.getFilename(4, 4));
+        InventoryShardFile.write(file, 4, 4, projects("a"));
+
+        InventoryShardFile.read(file);
+    }
+
+    /* --- Private methods --- */
+
+    private void assertMergeFails(String expectedMessage) {
+        try {
+            mojo.collectProjectInfos();
+            fail("Incomplete shards merged");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    private File writeShard(int shardIndex, int shardCount, String... artifactIds) throws IOException {
+        File file = new File(shardDirectory, InventoryShardFile.getFilename(shardIndex, shardCount));
+        InventoryShardFile.write(file, shardIndex, shardCount, projects(artifactIds));
+        return file;
+    }
+
+    private static List<AgentProjectInfo> projects(String... artifactIds) {
+        List<AgentProjectInfo> projects = new ArrayList<AgentProjectInfo>();
+        for (String artifactId : artifactIds) {
+            AgentProjectInfo project = new AgentProjectInfo();
+            project.setCoordinates(new Coordinates("g", artifactId, "1.0"));
+            projects.add(project);
+        }
+        return projects;
+    }
+
+    private static String artifactIds(Collection<AgentProjectInfo> projects) {
+        StringBuilder artifactIds = new StringBuilder();
+        for (AgentProjectInfo project : projects) {
+            if (artifactIds.length() > 0) {
+                artifactIds.append(',');
+            }
+            artifactIds.append(project.getCoordinates().getArtifactId());
+        }
+        return artifactIds.toString();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ModuleDependencyCacheTest {
+
+    /* --- Members --- */
+
+    private File cacheDirectory;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createDirectory() throws IOException {
+        cacheDirectory = File.createTempFile("cache", "");
+        assertTrue(cacheDirectory.delete() && cacheDirectory.mkdir());
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void locksModuleUntilReleased() throws Exception {
+        final MavenProject project = project("a");
+        CrossProcessLock.Lock lock = ModuleDependencyCache.lock(project, cacheDirectory);
+        assertNotNull(lock);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicLong lockedAt = new AtomicLong();
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    started.countDown();
+                    CrossProcessLock.Lock otherLock = ModuleDependencyCache.lock(project("a"), cacheDirectory);
+                    lockedAt.set(System.currentTimeMillis());
+                    otherLock.release();
+                } catch (IOException e) {
+                    // fails the test
+                }
+            }
+        });
+        other.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        long releasedAt = System.currentTimeMillis();
+        lock.release();
+        other.join();
+
+        assertTrue(lockedAt.get() >= releasedAt);
+    }
+
+    @Test
+    public void locksModulesIndependently() throws Exception {
+        CrossProcessLock.Lock lock = ModuleDependencyCache.lock(project("a"), cacheDirectory);
+        try {
+            CrossProcessLock.Lock otherLock = ModuleDependencyCache.lock(project("b"), cacheDirectory);
+            assertNotNull(otherLock);
+            otherLock.release();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private static MavenProject project(String artifactId) {
+        Model model = new Model();
+        model.setGroupId("g");
+        model.setArtifactId(artifactId);
+        model.setVersion("1.0");
+        return new MavenProject(model);
+    }
+}
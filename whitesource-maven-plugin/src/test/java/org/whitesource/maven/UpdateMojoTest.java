@@ -0,0 +1,449 @@
+/**
+ * Copyright (C) 2011 White Source Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.whitesource.maven;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.agent.api.dispatch.CheckPolicyComplianceResult;
+import org.whitesource.agent.api.dispatch.UpdateInventoryResult;
+import org.whitesource.agent.api.model.*;
+import org.whitesource.agent.client.WhitesourceService;
+import org.whitesource.maven.utils.budget.TimeBudget;
+import org.whitesource.maven.utils.checksum.ChecksumPolicy;
+import org.whitesource.maven.utils.checksum.ChecksumResolver;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sends updates to a stub WhiteSource server answering each request after a fixed latency.
+ */
+public class UpdateMojoTest {
+
+    /* --- Static members --- */
+
+    private static final long LATENCY_MILLIS = 400;
+
+    /* --- Members --- */
+
+    private StubServer server;
+
+    /* --- Setup --- */
+
+    @Before
+    public void startServer() throws IOException {
+        server = new StubServer(LATENCY_MILLIS);
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void sendsUpdateAfterPolicyCheck() throws Exception {
+        UpdateMojo mojo = createMojo(false, 1);
+
+        sendUpdate(mojo, projects("a", "b"));
+
+        List<Request> requests = server.getRequests();
+        assertEquals(2, requests.size());
+        assertEquals("CHECK_POLICY_COMPLIANCE", requests.get(0).type);
+        assertEquals("UPDATE", requests.get(1).type);
+        assertTrue(requests.get(1).receivedNanos >= requests.get(0).answeredNanos);
+    }
+
+    @Test
+    public void sendsForcedUpdateAfterPolicyCheckWithRejections() throws Exception {
+        server.reject("b");
+        UpdateMojo mojo = createMojo(true, 1);
+
+        try {
+            sendUpdate(mojo, projects("a", "b"));
+            fail("Policy violations not reported");
+        } catch (MojoExecutionException e) {
+            assertEquals(UpdateMojo.POLICY_VIOLATIONS_FOUND, e.getMessage());
+        }
+
+        List<Request> requests = server.getRequests();
+        assertEquals(2, requests.size());
+        assertEquals("CHECK_POLICY_COMPLIANCE", requests.get(0).type);
+        assertEquals("UPDATE", requests.get(1).type);
+        assertTrue(requests.get(1).receivedNanos >= requests.get(0).answeredNanos);
+    }
+
+    @Test
+    public void skipsUpdateOnRejectionsWithoutForceUpdate() throws Exception {
+        server.reject("a");
+        UpdateMojo mojo = createMojo(false, 1);
+
+        try {
+            sendUpdate(mojo, projects("a", "b"));
+            fail("Policy violations not reported");
+        } catch (MojoExecutionException e) {
+            assertEquals(UpdateMojo.POLICY_VIOLATIONS_FOUND, e.getMessage());
+        }
+
+        List<Request> requests = server.getRequests();
+        assertEquals(1, requests.size());
+        assertEquals("CHECK_POLICY_COMPLIANCE", requests.get(0).type);
+    }
+
+    @Test
+    public void checksPolicyBatchesAtTheSameTime() throws Exception {
+        server.reject("d");
+        UpdateMojo mojo = createMojo(true, 4);
+
+        long start = System.nanoTime();
+        try {
+            sendUpdate(mojo, projects("a", "b", "c", "d"));
+            fail("Policy violations not reported");
+        } catch (MojoExecutionException e) {
+            assertEquals(UpdateMojo.POLICY_VIOLATIONS_FOUND, e.getMessage());
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        List<Request> requests = server.getRequests();
+        assertEquals(5, requests.size());
+        long lastCheckAnswered = 0;
+        for (Request request : requests.subList(0, 4)) {
+            assertEquals("CHECK_POLICY_COMPLIANCE", request.type);
+            assertEquals(1, request.projects.size());
+            lastCheckAnswered = Math.max(lastCheckAnswered, request.answeredNanos);
+        }
+        Request update = requests.get(4);
+        assertEquals("UPDATE", update.type);
+        assertEquals(4, update.projects.size());
+        assertTrue(update.receivedNanos >= lastCheckAnswered);
+
+        // four sequential checks and the update would take five latencies
+        assertTrue("took " + elapsedMillis + " [msec]", elapsedMillis < 4 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void doesNotUseScanWithDeferredModules() throws Exception {
+        UpdateMojo mojo = createMojo(false, 1);
+        MavenProject project = new MavenProject();
+        project.setGroupId("g");
+        project.setArtifactId("a");
+        set(mojo, "reactorProjects", Collections.singletonList(project));
+        set(mojo, "includes", new String[0]);
+        set(mojo, "excludes", new String[0]);
+        set(mojo, "checksumResolver", new ChecksumResolver(ChecksumPolicy.TRUSTED, null, 1));
+        TimeBudget timeBudget = new TimeBudget(1, 0);
+        Thread.sleep(10);
+        set(mojo, "timeBudget", timeBudget);
+
+        try {
+            mojo.extractProjectInfos();
+            fail("Incomplete scan used");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("1 modules"));
+        }
+
+        assertEquals(Collections.singletonList("g:a"), timeBudget.getDeferredModules());
+        assertTrue(server.getRequests().isEmpty());
+    }
+
+    @Test
+    public void splitsProjectsIntoBatches() {
+        List<AgentProjectInfo> projects = projects("a", "b", "c", "d", "e");
+
+        List<Collection<AgentProjectInfo>> batches = UpdateMojo.splitIntoBatches(projects, 2);
+
+        assertEquals(2, batches.size());
+        assertEquals(projects.subList(0, 3), batches.get(0));
+        assertEquals(projects.subList(3, 5), batches.get(1));
+        assertEquals(5, UpdateMojo.splitIntoBatches(projects, 10).size());
+        assertEquals(1, UpdateMojo.splitIntoBatches(projects, 0).size());
+    }
+
+    @Test
+    public void mergesBatchResults() {
+        CheckPolicyComplianceResult first = new CheckPolicyComplianceResult("org");
+        first.getNewProjects().put("a", new PolicyCheckResourceNode());
+        CheckPolicyComplianceResult second = new CheckPolicyComplianceResult("org");
+        second.getExistingProjects().put("b", rejected());
+
+        CheckPolicyComplianceResult merged = UpdateMojo.mergeResults(Arrays.asList(first, second));
+
+        assertEquals("org", merged.getOrganization());
+        assertEquals(Collections.singleton("a"), merged.getNewProjects().keySet());
+        assertEquals(Collections.singleton("b"), merged.getExistingProjects().keySet());
+        assertTrue(merged.hasRejections());
+    }
+
+    @Test
+    public void scansOnlyArchivesOfNestedArchiveTypes() throws Exception {
+        UpdateMojo mojo = createMojo(false, 1);
+        set(mojo, "nestedArchiveTypes", new String[]{"war", " EAR"});
+        File directory = File.createTempFile("archives", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        try {
+            DependencyInfo war = archive(directory, "app.war", "war");
+            DependencyInfo ear = archive(directory, "app.ear", "ear");
+            DependencyInfo zip = archive(directory, "app.zip", "zip");
+            war.getChildren().add(ear);
+            DependencyInfo corrupt = archive(directory, "corrupt.war", "war");
+            OutputStream outputStream = new FileOutputStream(corrupt.getSystemPath());
+            outputStream.write("not a zip file".getBytes("UTF-8"));
+            outputStream.close();
+
+            Method addNestedArchiveEntries = AgentMojo.class.getDeclaredMethod("addNestedArchiveEntries", Collection.class);
+            addNestedArchiveEntries.setAccessible(true);
+            addNestedArchiveEntries.invoke(mojo, Arrays.asList(war, zip, corrupt));
+
+            assertEquals(2, war.getChildren().size());
+            assertEquals(1, ear.getChildren().size());
+            DependencyInfo library = ear.getChildren().iterator().next();
+            assertEquals("lib.jar", library.getArtifactId());
+            assertEquals("compile", library.getScope());
+            assertEquals(ear.getSystemPath() + "!/WEB-INF/lib/lib.jar", library.getSystemPath());
+            assertTrue(zip.getChildren().isEmpty());
+            assertTrue(corrupt.getChildren().isEmpty());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private UpdateMojo createMojo(boolean forceUpdate, int policyCheckBatches) throws Exception {
+        UpdateMojo mojo = new UpdateMojo();
+        set(mojo, "serviceUrl", server.getUrl());
+        set(mojo, "connectionTimeoutMinutes", 1);
+        set(mojo, "orgToken", "token");
+        set(mojo, "product", "product");
+        set(mojo, "checkPolicies", true);
+        set(mojo, "forceUpdate", forceUpdate);
+        set(mojo, "policyCheckBatches", policyCheckBatches);
+        set(mojo, "service", new WhitesourceService(Constants.AGENT_TYPE, Constants.AGENT_VERSION,
+                Constants.PLUGIN_VERSION, server.getUrl(), false, 1, false));
+        return mojo;
+    }
+
+    private static void sendUpdate(UpdateMojo mojo, Collection<AgentProjectInfo> projectInfos) throws Exception {
+        Method sendUpdate = UpdateMojo.class.getDeclaredMethod("sendUpdate", Collection.class);
+        sendUpdate.setAccessible(true);
+        try {
+            sendUpdate.invoke(mojo, projectInfos);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // declared by a super class
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    private static List<AgentProjectInfo> projects(String... artifactIds) {
+        List<AgentProjectInfo> projects = new ArrayList<AgentProjectInfo>();
+        for (String artifactId : artifactIds) {
+            AgentProjectInfo project = new AgentProjectInfo();
+            project.setCoordinates(new Coordinates("g", artifactId, "1.0"));
+            DependencyInfo dependency = new DependencyInfo();
+            dependency.setGroupId("g");
+            dependency.setArtifactId(artifactId + "-dependency");
+            dependency.setVersion("1.0");
+            project.getDependencies().add(dependency);
+            projects.add(project);
+        }
+        return projects;
+    }
+
+    /**
+     * @return A dependency on a new archive holding a single library.
+     */
+    private static DependencyInfo archive(File directory, String name, String type) throws IOException {
+        File file = new File(directory, name);
+        ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry("WEB-INF/lib/lib.jar"));
+            zipOutputStream.write(name.getBytes("UTF-8"));
+            zipOutputStream.closeEntry();
+        } finally {
+            zipOutputStream.close();
+        }
+        DependencyInfo dependency = new DependencyInfo();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(name);
+        dependency.setVersion("1.0");
+        dependency.setType(type);
+        dependency.setScope("compile");
+        dependency.setSystemPath(file.getAbsolutePath());
+        return dependency;
+    }
+
+    private static PolicyCheckResourceNode rejected() {
+        RequestPolicyInfo policy = new RequestPolicyInfo("reject all");
+        policy.setActionType("Reject");
+        return new PolicyCheckResourceNode(new ResourceInfo(), policy);
+    }
+
+    /* --- Nested classes --- */
+
+    private static class Request {
+
+        private final String type;
+        private final List<AgentProjectInfo> projects;
+        private final long receivedNanos;
+        private long answeredNanos;
+
+        Request(String type, List<AgentProjectInfo> projects, long receivedNanos) {
+            this.type = type;
+            this.projects = projects;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    /**
+     * Answers update and policy check requests in the envelope of the WhiteSource service after a fixed latency.
+     */
+    private static class StubServer implements HttpHandler {
+
+        private final HttpServer httpServer;
+        private final long latencyMillis;
+        private final List<Request> requests = new ArrayList<Request>();
+        private final Set<String> rejectedProjects = Collections.synchronizedSet(new HashSet<String>());
+        private final Gson gson = new Gson();
+
+        StubServer(long latencyMillis) throws IOException {
+            this.latencyMillis = latencyMillis;
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            httpServer.createContext("/", this);
+            httpServer.setExecutor(Executors.newCachedThreadPool());
+            httpServer.start();
+        }
+
+        String getUrl() {
+            return "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/agent";
+        }
+
+        void reject(String artifactId) {
+            rejectedProjects.add(artifactId);
+        }
+
+        synchronized List<Request> getRequests() {
+            List<Request> sorted = new ArrayList<Request>(requests);
+            Collections.sort(sorted, new Comparator<Request>() {
+                @Override
+                public int compare(Request a, Request b) {
+                    return a.receivedNanos < b.receivedNanos ? -1 : a.receivedNanos == b.receivedNanos ? 0 : 1;
+                }
+            });
+            return sorted;
+        }
+
+        void stop() {
+            httpServer.stop(0);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long received = System.nanoTime();
+            Map<String, String> form = parseForm(read(exchange.getRequestBody()));
+            List<AgentProjectInfo> projects = gson.fromJson(form.get("diff"),
+                    new TypeToken<List<AgentProjectInfo>>() { }.getType());
+            Request request = new Request(form.get("type"), projects, received);
+
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            Object data;
+            if ("UPDATE".equals(request.type)) {
+                data = new UpdateInventoryResult("org");
+            } else {
+                CheckPolicyComplianceResult result = new CheckPolicyComplianceResult("org");
+                for (AgentProjectInfo project : projects) {
+                    String artifactId = project.getCoordinates().getArtifactId();
+                    result.getNewProjects().put(artifactId,
+                            rejectedProjects.contains(artifactId) ? rejected() : new PolicyCheckResourceNode());
+                }
+                data = result;
+            }
+            Map<String, Object> envelope = new HashMap<String, Object>();
+            envelope.put("status", 1);
+            envelope.put("message", "ok");
+            envelope.put("data", gson.toJson(data));
+            byte[] response = gson.toJson(envelope).getBytes("UTF-8");
+
+            synchronized (this) {
+                request.answeredNanos = System.nanoTime();
+                requests.add(request);
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(response);
+            out.close();
+        }
+
+        private static String read(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            in.close();
+            return out.toString("UTF-8");
+        }
+
+        private static Map<String, String> parseForm(String body) throws IOException {
+            Map<String, String> form = new HashMap<String, String>();
+            for (String pair : body.split("&")) {
+                int separator = pair.indexOf('=');
+                form.put(pair.substring(0, separator), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+            return form;
+        }
+    }
+}
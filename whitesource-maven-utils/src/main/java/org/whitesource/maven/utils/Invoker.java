@@ -1,19 +1,25 @@
 package org.whitesource.maven.utils;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Author: Itai Marko
  */
 public final class Invoker {
 
+    // looked up methods per class and signature
+    private static final Map<Class<?>, Map<String, Method>> methods = new HashMap<Class<?>, Map<String, Method>>();
+
     public static Object invoke(Object object, String method) {
         return invoke(object.getClass(), object, method);
     }
 
     public static Object invoke(Class<?> objectClazz, Object object, String method) {
         try {
-            return objectClazz.getMethod(method).invoke( object );
+            return getMethod(objectClazz, method).invoke( object );
         } catch (IllegalAccessException e) {
             throw new RuntimeException(e.getMessage(), e);
         } catch (InvocationTargetException e) {
@@ -26,7 +32,7 @@ public final class Invoker {
     public static Object invoke(Object object, String method, Class<?> clazz, Object arg) {
         final Class<?> objectClazz = object.getClass();
         try {
-            return objectClazz.getMethod(method, clazz).invoke(object, arg);
+            return getMethod(objectClazz, method, clazz).invoke(object, arg);
         } catch (IllegalAccessException e) {
             throw new RuntimeException(e.getMessage(), e);
         } catch (InvocationTargetException e) {
@@ -36,6 +42,27 @@ public final class Invoker {
         }
     }
 
+    private static Method getMethod(Class<?> objectClazz, String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        StringBuilder signature = new StringBuilder(method);
+        for (Class<?> parameterType : parameterTypes) {
+            signature.append(',').append(parameterType.getName());
+        }
+        String key = signature.toString();
+
+        synchronized (methods) {
+            Map<String, Method> classMethods = methods.get(objectClazz);
+            if (classMethods == null) {
+                classMethods = new HashMap<String, Method>();
+                methods.put(objectClazz, classMethods);
+            }
+            Method result = classMethods.get(key);
+            if (result == null) {
+                result = objectClazz.getMethod(method, parameterTypes);
+                classMethods.put(key, result);
+            }
+            return result;
+        }
+    }
 
     // prevent instantiation
     private Invoker() {}
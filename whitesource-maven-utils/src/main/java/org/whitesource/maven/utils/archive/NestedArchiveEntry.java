@@ -0,0 +1,50 @@
+package org.whitesource.maven.utils.archive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A library archive found inside another archive.
+ */
+public class NestedArchiveEntry {
+
+    /* --- Private Members --- */
+
+    private final String path;
+    private final String sha1;
+    private final List<NestedArchiveEntry> children = new ArrayList<NestedArchiveEntry>();
+
+    /* --- Constructors --- */
+
+    NestedArchiveEntry(String path, String sha1) {
+        this.path = path;
+        this.sha1 = sha1;
+    }
+
+    /* --- Getters --- */
+
+    /**
+     * @return The path of the entry inside its archive.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The file name of the entry.
+     */
+    public String getFilename() {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * @return The library entries of this entry, if it is an archive that may hold libraries itself (e.g. a war in an ear).
+     */
+    public List<NestedArchiveEntry> getChildren() {
+        return children;
+    }
+}
@@ -0,0 +1,168 @@
+package org.whitesource.maven.utils.archive;
+
+import org.whitesource.maven.utils.checksum.Sha1;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Finds the libraries packaged inside archives (jars in a war, wars and jars in an ear, etc.) and calculates their
+ * SHA-1 while streaming through the archive entries, nothing is extracted to disk.
+ * <p>
+ * Entries with the library extension ({@code .jar}) are hashed. Entries with one of the container extensions are
+ * hashed and scanned in turn, up to a fixed nesting depth.
+ */
+public class NestedArchiveScanner {
+
+    /* --- Static members --- */
+
+    private static final String LIBRARY_EXTENSION = ".jar";
+    private static final int MAX_DEPTH = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* --- Private Members --- */
+
+    private final Collection<String> containerExtensions;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param containerExtensions extensions (without the dot) of the archives that may hold libraries, e.g. war, ear.
+     */
+    public NestedArchiveScanner(Collection<String> containerExtensions) {
+        this.containerExtensions = new HashSet<String>();
+        for (String extension : containerExtensions) {
+            this.containerExtensions.add("." + extension.trim().toLowerCase());
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Scans several archives concurrently.
+     *
+     * @param archives archive files to scan.
+     * @param threads  maximal number of archives scanned at once.
+     * @return The entries found in each archive. Archives that couldn't be read are missing from the result.
+     * @throws InterruptedException if interrupted while waiting for the scans.
+     */
+    public Map<File, List<NestedArchiveEntry>> scan(Collection<File> archives, int threads) throws InterruptedException {
+        Map<File, List<NestedArchiveEntry>> result = new HashMap<File, List<NestedArchiveEntry>>();
+        if (archives.isEmpty()) {
+            return result;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, archives.size())));
+        try {
+            Map<File, Future<List<NestedArchiveEntry>>> futures = new LinkedHashMap<File, Future<List<NestedArchiveEntry>>>();
+            for (final File archive : archives) {
+                futures.put(archive, executorService.submit(new Callable<List<NestedArchiveEntry>>() {
+                    @Override
+                    public List<NestedArchiveEntry> call() throws IOException {
+                        return scan(archive);
+                    }
+                }));
+            }
+            for (Map.Entry<File, Future<List<NestedArchiveEntry>>> future : futures.entrySet()) {
+                try {
+                    result.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    // unreadable archive, leave it out
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * @return The library entries found in the archive.
+     */
+    public List<NestedArchiveEntry> scan(File archive) throws IOException {
+        List<NestedArchiveEntry> entries = new ArrayList<NestedArchiveEntry>();
+        ZipFile zipFile = new ZipFile(archive);
+        try {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (isScanned(zipEntry)) {
+                    InputStream inputStream = zipFile.getInputStream(zipEntry);
+                    try {
+                        entries.add(scanEntry(zipEntry.getName(), inputStream, 1));
+                    } finally {
+                        inputStream.close();
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        return entries;
+    }
+
+    /* --- Private methods --- */
+
+    private NestedArchiveEntry scanEntry(String path, InputStream inputStream, int depth) throws IOException {
+        MessageDigest digest = Sha1.newDigest();
+        DigestInputStream digestInputStream = new DigestInputStream(new NonClosingInputStream(inputStream), digest);
+        List<NestedArchiveEntry> children = Collections.emptyList();
+        if (depth < MAX_DEPTH && isContainer(path)) {
+            children = new ArrayList<NestedArchiveEntry>();
+            ZipInputStream zipInputStream = new ZipInputStream(digestInputStream);
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                if (isScanned(zipEntry)) {
+                    children.add(scanEntry(zipEntry.getName(), zipInputStream, depth + 1));
+                }
+            }
+        }
+
+        // hash whatever the nested scan didn't read
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (digestInputStream.read(buffer) != -1) {
+            // digest is updated by the stream
+        }
+
+        NestedArchiveEntry entry = new NestedArchiveEntry(path, Sha1.toHex(digest.digest()));
+        entry.getChildren().addAll(children);
+        return entry;
+    }
+
+    private boolean isScanned(ZipEntry zipEntry) {
+        return !zipEntry.isDirectory() && (zipEntry.getName().toLowerCase().endsWith(LIBRARY_EXTENSION) || isContainer(zipEntry.getName()));
+    }
+
+    private boolean isContainer(String path) {
+        String lowerCasePath = path.toLowerCase();
+        for (String extension : containerExtensions) {
+            if (lowerCasePath.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Keeps nested zip streams from closing the stream of the enclosing entry.
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+
+        NonClosingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public void close() {
+            // the enclosing stream is closed by its owner
+        }
+    }
+}
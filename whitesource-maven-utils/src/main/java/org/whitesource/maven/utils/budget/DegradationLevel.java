@@ -0,0 +1,27 @@
+package org.whitesource.maven.utils.budget;
+
+/**
+ * The stages of a scan running out of its {@link TimeBudget}, in the order they are entered.
+ */
+public enum DegradationLevel {
+
+    /**
+     * Scan everything.
+     */
+    NONE,
+
+    /**
+     * Don't calculate the checksum of large files, checksums available without reading the file are still used.
+     */
+    SKIP_LARGE_FILES,
+
+    /**
+     * Don't calculate checksums at all, dependencies without an available checksum are sent by coordinates only.
+     */
+    COORDINATES_ONLY,
+
+    /**
+     * Don't start scanning more modules, they are deferred to a later run.
+     */
+    DEFER_MODULES
+}
@@ -0,0 +1,176 @@
+package org.whitesource.maven.utils.budget;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time budget of a scan, counted from the creation of the budget.
+ * <p>
+ * As the budget is used up, the scan degrades in stages (see {@link DegradationLevel}): at 60% of the budget it stops
+ * hashing large files, at 80% it stops hashing at all, once the budget is exhausted it defers the remaining modules.
+ * Records what was degraded, for the report. The deferred modules can be saved, for the next run to scan them first.
+ * Thread safe.
+ */
+public class TimeBudget {
+
+    /* --- Static members --- */
+
+    private static final double SKIP_LARGE_FILES_FRACTION = 0.6;
+    private static final double COORDINATES_ONLY_FRACTION = 0.8;
+    private static final String ENCODING = "UTF-8";
+
+    /* --- Private Members --- */
+
+    private final long budgetMillis;
+    private final long largeFileSize;
+    private final long startTime;
+
+    private final AtomicInteger skippedLargeFiles = new AtomicInteger();
+    private final AtomicInteger coordinatesOnlyDependencies = new AtomicInteger();
+    private final List<String> deferredModules = Collections.synchronizedList(new ArrayList<String>());
+
+    /* --- Constructors --- */
+
+    /**
+     * @param budgetMillis  the budget, 0 or less for an unlimited budget.
+     * @param largeFileSize files larger than this many bytes are large files.
+     */
+    public TimeBudget(long budgetMillis, long largeFileSize) {
+        this.budgetMillis = budgetMillis;
+        this.largeFileSize = largeFileSize;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /* --- Public methods --- */
+
+    public DegradationLevel getLevel() {
+        if (budgetMillis <= 0) {
+            return DegradationLevel.NONE;
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (elapsed >= budgetMillis) {
+            return DegradationLevel.DEFER_MODULES;
+        } else if (elapsed >= budgetMillis * COORDINATES_ONLY_FRACTION) {
+            return DegradationLevel.COORDINATES_ONLY;
+        } else if (elapsed >= budgetMillis * SKIP_LARGE_FILES_FRACTION) {
+            return DegradationLevel.SKIP_LARGE_FILES;
+        }
+        return DegradationLevel.NONE;
+    }
+
+    /**
+     * @param level    the current level, see {@link #getLevel()}.
+     * @param fileSize the size of the file.
+     * @return Whether the checksum of the file may still be calculated.
+     */
+    public boolean canHash(DegradationLevel level, long fileSize) {
+        return level == DegradationLevel.NONE || (level == DegradationLevel.SKIP_LARGE_FILES && fileSize <= largeFileSize);
+    }
+
+    /**
+     * @return Whether another module may still be scanned.
+     */
+    public boolean canStartModule() {
+        return getLevel() != DegradationLevel.DEFER_MODULES;
+    }
+
+    /**
+     * Records a dependency sent without its checksum, because the file wasn't hashed.
+     *
+     * @param level the level at which hashing was skipped.
+     */
+    public void recordUnhashed(DegradationLevel level) {
+        if (level == DegradationLevel.SKIP_LARGE_FILES) {
+            skippedLargeFiles.incrementAndGet();
+        } else {
+            coordinatesOnlyDependencies.incrementAndGet();
+        }
+    }
+
+    public void recordDeferred(String module) {
+        deferredModules.add(module);
+    }
+
+    public boolean isDegraded() {
+        return skippedLargeFiles.get() > 0 || coordinatesOnlyDependencies.get() > 0 || !deferredModules.isEmpty();
+    }
+
+    public int getSkippedLargeFiles() {
+        return skippedLargeFiles.get();
+    }
+
+    public int getCoordinatesOnlyDependencies() {
+        return coordinatesOnlyDependencies.get();
+    }
+
+    public List<String> getDeferredModules() {
+        synchronized (deferredModules) {
+            return new ArrayList<String>(deferredModules);
+        }
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    public long getLargeFileSize() {
+        return largeFileSize;
+    }
+
+    /**
+     * Writes the deferred modules to the file, one per line, or deletes the file if no module was deferred.
+     * Failures are ignored.
+     */
+    public void saveDeferredModules(File file) {
+        List<String> modules = getDeferredModules();
+        if (modules.isEmpty()) {
+            file.delete();
+            return;
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+            try {
+                for (String module : modules) {
+                    writer.write(module + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            // ignore, the modules are scanned in their usual order
+        }
+    }
+
+    /* --- Static methods --- */
+
+    /**
+     * @return The modules saved by {@link #saveDeferredModules(File)}, empty if none.
+     */
+    public static Set<String> readDeferredModules(File file) {
+        Set<String> modules = new LinkedHashSet<String>();
+        if (file.isFile()) {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().length() > 0) {
+                            modules.add(line.trim());
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                modules.clear();
+            }
+        }
+        return modules;
+    }
+}
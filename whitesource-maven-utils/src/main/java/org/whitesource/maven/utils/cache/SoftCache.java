@@ -0,0 +1,72 @@
+package org.whitesource.maven.utils.cache;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, memory sensitive cache.
+ * <p>
+ * Holds at most {@code maxEntries} entries, evicting the least recently used one first. Values are softly reachable,
+ * so the garbage collector may also drop them before the JVM runs out of memory. Meant for static, process wide
+ * caches which outlive a single build when the plugin class loader is kept alive (e.g. by the Maven daemon).
+ * Thread safe.
+ */
+public class SoftCache<K, V> {
+
+    /* --- Private Members --- */
+
+    private final Map<K, SoftReference<V>> entries;
+    private long hits;
+    private long misses;
+
+    /* --- Constructors --- */
+
+    public SoftCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<K, SoftReference<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, SoftReference<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The cached value, or null if there is none or it was garbage collected.
+     */
+    public synchronized V get(K key) {
+        SoftReference<V> reference = entries.get(key);
+        V value = reference == null ? null : reference.get();
+        if (value == null) {
+            if (reference != null) {
+                entries.remove(key);
+            }
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new SoftReference<V>(value));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+}
@@ -0,0 +1,22 @@
+package org.whitesource.maven.utils.checksum;
+
+/**
+ * How far checksums provided by the repository (the {@code .sha1} files next to the artifacts) are trusted.
+ */
+public enum ChecksumPolicy {
+
+    /**
+     * Use repository checksums as is.
+     */
+    TRUSTED,
+
+    /**
+     * Use repository checksums, but verify a sample of them, and of the remote cache checksums, against the file content.
+     */
+    VERIFY_SAMPLE,
+
+    /**
+     * Ignore repository checksums and cached values, always read the file.
+     */
+    ALWAYS_VERIFY
+}
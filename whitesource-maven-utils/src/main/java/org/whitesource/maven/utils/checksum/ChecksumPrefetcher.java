@@ -0,0 +1,163 @@
+package org.whitesource.maven.utils.checksum;
+
+import org.whitesource.maven.utils.concurrent.IoExecutor;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Resolves the checksums of the artifact files used by the previous run on background threads, while the dependency
+ * graphs of the current run are being resolved, so the disk isn't idle until hashing starts and the lookups of the
+ * current run mostly find the checksums ready (see {@link ChecksumResolver#resolveAhead(File)}).
+ * <p>
+ * The files used by the current run are recorded for the next one. Thread safe.
+ */
+public class ChecksumPrefetcher {
+
+    /* --- Static members --- */
+
+    private static final String ENCODING = "UTF-8";
+
+    /* --- Private Members --- */
+
+    private final ChecksumResolver resolver;
+    private final File listFile;
+    private final int concurrency;
+    private final Set<String> usedFiles = Collections.synchronizedSet(new LinkedHashSet<String>());
+
+    private IoExecutor executor;
+    private volatile boolean stopped;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param resolver    the resolver to resolve the checksums with.
+     * @param listFile    the file listing the artifact files used by the previous run.
+     * @param concurrency the number of files resolved at the same time.
+     */
+    public ChecksumPrefetcher(ChecksumResolver resolver, File listFile, int concurrency) {
+        this.resolver = resolver;
+        this.listFile = listFile;
+        this.concurrency = concurrency;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Starts resolving the checksums of the files used by the previous run in the background.
+     *
+     * @return The number of files to resolve.
+     */
+    public synchronized int start() {
+        List<File> files = new ArrayList<File>();
+        for (String path : readList()) {
+            File file = new File(path);
+            if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            return 0;
+        }
+
+        executor = new IoExecutor(concurrency, "whitesource-prefetch");
+        for (final File file : files) {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if (!stopped) {
+                        try {
+                            resolver.resolveAhead(file);
+                        } catch (IOException e) {
+                            // the lookup will report it, if the file is still used
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        return files.size();
+    }
+
+    /**
+     * Records a file used by the current run.
+     */
+    public void record(File file) {
+        usedFiles.add(file.getAbsolutePath());
+    }
+
+    /**
+     * Skips the files not resolved yet, they are no longer needed ahead.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Writes the files used by the current run for the next one, atomically. Failures are ignored, the prefetch is
+     * best effort.
+     */
+    public void save() {
+        List<String> paths;
+        synchronized (usedFiles) {
+            paths = new ArrayList<String>(usedFiles);
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        File directory = listFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        try {
+            File tempFile = File.createTempFile(listFile.getName(), ".tmp", directory);
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING);
+            try {
+                for (String path : paths) {
+                    writer.write(path + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+            if (!tempFile.renameTo(listFile)) {
+                // some platforms don't replace existing files
+                listFile.delete();
+                if (!tempFile.renameTo(listFile)) {
+                    tempFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            // ignore, the prefetch is best effort
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private List<String> readList() {
+        List<String> paths = new ArrayList<String>();
+        if (!listFile.isFile()) {
+            return paths;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(listFile), ENCODING));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().length() > 0) {
+                        paths.add(line.trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            paths.clear();
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,522 @@
+package org.whitesource.maven.utils.checksum;
+
+import org.whitesource.maven.utils.cache.SoftCache;
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+import org.whitesource.maven.utils.jfr.FlightRecorderEvents;
+import org.whitesource.maven.utils.remote.RemoteCacheClient;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the SHA-1 of artifact files from the cheapest available source, in this order:
+ * <ol>
+ * <li>the checksums already provided in this JVM, while the file's size and modification time are unchanged</li>
+ * <li>the checksum file stored by the repository next to the artifact (e.g. {@code foo-1.0.jar.sha1} in the local
+ * repository), depending on the {@link ChecksumPolicy}</li>
+ * <li>the {@link PersistentChecksumCache}, if any</li>
+ * <li>the {@link RemoteCacheClient remote cache}, if any, for files of the local repository identified by their
+ * coordinates</li>
+ * <li>the file content, the result is then added to the caches. Each file is read once, even if it is reachable under
+ * several paths (hard links), see {@link FileIdentity}.</li>
+ * </ol>
+ * Remote entries are keyed by the coordinates and size of the file, and its modification time for snapshots, since
+ * the path and modification time of an artifact differ from host to host. Files outside the local repository, e.g. the
+ * artifacts of reactor modules, are rebuilt under the same coordinates and often with the same size, so their
+ * checksums are neither looked up remotely nor uploaded.
+ * Concurrent calculations of the same file are done once. Counts which source served each checksum. Thread safe.
+ */
+public class ChecksumResolver {
+
+    /* --- Static members --- */
+
+    private static final String SHA1_EXTENSION = ".sha1";
+    private static final int SHA1_LENGTH = 40;
+
+    /**
+     * Checksum files older than their artifact by more than this were left behind by a rebuilt artifact.
+     */
+    private static final long REPOSITORY_CHECKSUM_TOLERANCE_MILLIS = 60 * 1000L;
+
+    private static final String REMOTE_NAMESPACE = "sha1";
+    private static final String SNAPSHOT = "SNAPSHOT";
+    private static final String ENCODING = "UTF-8";
+
+    private static final int MAX_MEMORY_ENTRIES = 50000;
+    private static final SoftCache<String, FileChecksum> memoryCache = new SoftCache<String, FileChecksum>(MAX_MEMORY_ENTRIES);
+
+    /* --- Private Members --- */
+
+    private final ChecksumPolicy policy;
+    private final PersistentChecksumCache cache;
+    private final int verifySampleRate;
+    private final RemoteCacheClient remoteCache;
+
+    /**
+     * Paths of the local repository (as given and canonical), ending with a separator.
+     */
+    private final String[] repositoryPaths;
+
+    /**
+     * Checksums calculated by this resolver, by {@link FileIdentity#getFileKey(File) file key}.
+     */
+    private final Map<String, String> identicalFiles = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Remote checksums fetched ahead by {@link #prefetch(Map)}, by path.
+     */
+    private final Map<String, FileChecksum> remoteChecksums = new ConcurrentHashMap<String, FileChecksum>();
+
+    /**
+     * Checksums being calculated, so concurrent lookups of a file wait for the same calculation, by path.
+     */
+    private final ConcurrentMap<String, Calculation> calculations = new ConcurrentHashMap<String, Calculation>();
+
+    /**
+     * Files resolved ahead by {@link #resolveAhead(File)} and not looked up since.
+     */
+    private final Set<String> resolvedAhead = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger resolvedAheadCount = new AtomicInteger();
+    private final AtomicInteger resolvedAheadHits = new AtomicInteger();
+
+    private final Map<ChecksumSource, AtomicInteger> sourceCounts = new EnumMap<ChecksumSource, AtomicInteger>(ChecksumSource.class);
+    private final AtomicInteger sampledChecksums = new AtomicInteger();
+    private final AtomicInteger verifiedChecksums = new AtomicInteger();
+    private final AtomicInteger mismatchedChecksums = new AtomicInteger();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param policy           trust level of repository checksums.
+     * @param cache            persistent cache, may be null.
+     * @param verifySampleRate with {@link ChecksumPolicy#VERIFY_SAMPLE}, one of every verifySampleRate repository and
+     *                         remote checksums is verified.
+     */
+    public ChecksumResolver(ChecksumPolicy policy, PersistentChecksumCache cache, int verifySampleRate) {
+        this(policy, cache, verifySampleRate, null, null);
+    }
+
+    /**
+     * @param remoteCache     remote cache shared with other hosts, may be null.
+     * @param localRepository the local repository, the remote cache is used for its files only.
+     */
+    public ChecksumResolver(ChecksumPolicy policy, PersistentChecksumCache cache, int verifySampleRate,
+                            RemoteCacheClient remoteCache, File localRepository) {
+        this.policy = policy;
+        this.cache = cache;
+        this.verifySampleRate = Math.max(1, verifySampleRate);
+        this.remoteCache = localRepository == null ? null : remoteCache;
+        this.repositoryPaths = localRepository == null ? new String[0] : getDirectoryPaths(localRepository);
+        for (ChecksumSource source : ChecksumSource.values()) {
+            sourceCounts.put(source, new AtomicInteger());
+        }
+    }
+
+    /* --- Public methods --- */
+
+    public String getSha1(File file) throws IOException {
+        return getSha1(file, null, true, false);
+    }
+
+    /**
+     * @param coordinates the coordinates of the artifact in the file (e.g. groupId:artifactId:version:classifier:type),
+     *                    for the remote cache.
+     */
+    public String getSha1(File file, String coordinates) throws IOException {
+        return getSha1(file, coordinates, true, false);
+    }
+
+    /**
+     * Like {@link #getSha1(File)}, but never reads the file itself.
+     *
+     * @return The SHA-1 of the file, or null if it isn't available without calculating it.
+     */
+    public String getAvailableSha1(File file) throws IOException {
+        return getSha1(file, null, false, false);
+    }
+
+    /**
+     * Like {@link #getSha1(File, String)}, but never reads the file itself.
+     *
+     * @return The SHA-1 of the file, or null if it isn't available without calculating it.
+     */
+    public String getAvailableSha1(File file, String coordinates) throws IOException {
+        return getSha1(file, coordinates, false, false);
+    }
+
+    /**
+     * Looks the remote checksums of the files up with a single request, for the files without a checksum in memory.
+     *
+     * @param coordinatesByFile the coordinates of the artifact in each file.
+     */
+    public void prefetch(Map<File, String> coordinatesByFile) {
+        if (remoteCache == null || !remoteCache.isAvailable() || policy == ChecksumPolicy.ALWAYS_VERIFY) {
+            return;
+        }
+        Map<String, File> filesByKey = new HashMap<String, File>();
+        for (Map.Entry<File, String> entry : coordinatesByFile.entrySet()) {
+            File file = entry.getKey();
+            if (!isInRepository(file)) {
+                continue;
+            }
+            FileChecksum checksum = memoryCache.get(file.getAbsolutePath());
+            if (checksum == null || checksum.length != file.length() || checksum.lastModified != file.lastModified()) {
+                filesByKey.put(getRemoteKey(file, entry.getValue()), file);
+            }
+        }
+        if (filesByKey.isEmpty()) {
+            return;
+        }
+        Map<String, String> checksums = remoteCache.getAll(REMOTE_NAMESPACE, filesByKey.keySet());
+        if (!remoteCache.isAvailable()) {
+            return;
+        }
+        // misses are recorded too, so they aren't looked up again one by one
+        for (Map.Entry<String, File> entry : filesByKey.entrySet()) {
+            File file = entry.getValue();
+            remoteChecksums.put(file.getAbsolutePath(), new FileChecksum(file.length(), file.lastModified(),
+                    checksums.get(entry.getKey()), false));
+        }
+    }
+
+    /**
+     * Resolves the checksum of a file expected to be looked up soon, e.g. on a background thread, so the lookup finds
+     * it in memory. A lookup of the file while it is being calculated waits for the same calculation.
+     */
+    public void resolveAhead(File file) throws IOException {
+        // counted up front, a lookup may use the resolution before it returns
+        resolvedAheadCount.incrementAndGet();
+        boolean resolved = false;
+        try {
+            resolved = getSha1(file, null, true, true) != null;
+        } finally {
+            if (!resolved) {
+                resolvedAheadCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return A one line summary of the checksums resolved ahead.
+     */
+    public String getResolveAheadStatistics() {
+        int count = resolvedAheadCount.get();
+        int hits = resolvedAheadHits.get();
+        return "resolved ahead: " + count + ", used: " + hits + (count == 0 ? "" : " (" + (100 * hits / count) + "%)");
+    }
+
+    public int getCount(ChecksumSource source) {
+        return sourceCounts.get(source).get();
+    }
+
+    public int getVerifiedCount() {
+        return verifiedChecksums.get();
+    }
+
+    public int getMismatchCount() {
+        return mismatchedChecksums.get();
+    }
+
+    /**
+     * @return A one line summary of the checksum sources.
+     */
+    public String getStatistics() {
+        return "memory: " + getCount(ChecksumSource.MEMORY)
+                + ", repository checksum files: " + getCount(ChecksumSource.REPOSITORY)
+                + ", cache: " + getCount(ChecksumSource.CACHE)
+                + ", remote: " + getCount(ChecksumSource.REMOTE)
+                + ", same file: " + getCount(ChecksumSource.SAME_FILE)
+                + ", computed: " + getCount(ChecksumSource.COMPUTED)
+                + " (verified: " + getVerifiedCount() + ", mismatches: " + getMismatchCount() + ")";
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @param ahead whether the checksum is resolved ahead of its lookup, such resolutions aren't counted as lookups.
+     */
+    private String getSha1(File file, String coordinates, boolean allowCompute, boolean ahead) throws IOException {
+        Object event = FlightRecorderEvents.beginChecksum();
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        String sha1 = null;
+        ChecksumSource source = null;
+        boolean remote = coordinates != null && remoteCache != null && isInRepository(file);
+        FileChecksum checksum = memoryCache.get(path);
+        if (checksum != null && checksum.length == length && checksum.lastModified == lastModified
+                && (policy != ChecksumPolicy.ALWAYS_VERIFY || checksum.computed)) {
+            sha1 = checksum.sha1;
+            source = ChecksumSource.MEMORY;
+            if (!ahead && resolvedAhead.remove(path)) {
+                resolvedAheadHits.incrementAndGet();
+            }
+        } else {
+            if (policy != ChecksumPolicy.ALWAYS_VERIFY) {
+                sha1 = readRepositoryChecksum(file);
+                if (sha1 != null) {
+                    source = ChecksumSource.REPOSITORY;
+                } else {
+                    sha1 = cache == null ? null : cache.get(file);
+                    source = sha1 == null ? null : ChecksumSource.CACHE;
+                }
+                if (sha1 == null && remote) {
+                    sha1 = getRemoteSha1(file, coordinates, length, lastModified);
+                    source = sha1 == null ? null : ChecksumSource.REMOTE;
+                }
+                // checksums not calculated on this host are sampled
+                if ((source == ChecksumSource.REPOSITORY || source == ChecksumSource.REMOTE) && isSampled(allowCompute)) {
+                    String verified = verify(file, length, lastModified, sha1, ahead);
+                    if (source == ChecksumSource.REMOTE && !verified.equals(sha1)) {
+                        remoteCache.put(REMOTE_NAMESPACE, getRemoteKey(file, coordinates), verified.getBytes(ENCODING));
+                    }
+                    sha1 = verified;
+                    source = ChecksumSource.COMPUTED;
+                }
+            }
+            if (sha1 == null && allowCompute) {
+                sha1 = calculate(file, length, lastModified, ahead, policy != ChecksumPolicy.ALWAYS_VERIFY).getResult();
+                source = ChecksumSource.COMPUTED;
+                if (remote) {
+                    remoteCache.put(REMOTE_NAMESPACE, getRemoteKey(file, coordinates), sha1.getBytes(ENCODING));
+                }
+            }
+            if (sha1 != null) {
+                // computed checksums are recorded by calculate
+                if (ahead && source != ChecksumSource.COMPUTED) {
+                    resolvedAhead.add(path);
+                }
+                memoryCache.put(path, new FileChecksum(length, lastModified, sha1, source == ChecksumSource.COMPUTED));
+            }
+        }
+
+        // computed checksums are counted by compute
+        if (source != null && source != ChecksumSource.COMPUTED && !ahead) {
+            sourceCounts.get(source).incrementAndGet();
+        }
+        FlightRecorderEvents.endChecksum(event, path, length, source == null ? null : source.name(),
+                source == ChecksumSource.MEMORY || source == ChecksumSource.CACHE);
+        return sha1;
+    }
+
+    private String getRemoteSha1(File file, String coordinates, long length, long lastModified) throws IOException {
+        String sha1;
+        FileChecksum checksum = remoteChecksums.remove(file.getAbsolutePath());
+        if (checksum != null && checksum.length == length && checksum.lastModified == lastModified) {
+            // looked up already, possibly without a result
+            sha1 = checksum.sha1;
+        } else {
+            byte[] value = remoteCache.get(REMOTE_NAMESPACE, getRemoteKey(file, coordinates));
+            sha1 = value == null ? null : new String(value, ENCODING).trim();
+        }
+        // not kept in the persistent cache, which only holds checksums calculated on this host
+        return sha1 == null || !Sha1.isSha1(sha1) ? null : sha1;
+    }
+
+    private boolean isSampled(boolean allowCompute) {
+        return allowCompute && policy == ChecksumPolicy.VERIFY_SAMPLE
+                && sampledChecksums.incrementAndGet() % verifySampleRate == 0;
+    }
+
+    private boolean isInRepository(File file) {
+        String path = file.getAbsolutePath();
+        for (String repositoryPath : repositoryPaths) {
+            if (path.startsWith(repositoryPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] getDirectoryPaths(File directory) {
+        String absolutePath = directory.getAbsolutePath() + File.separator;
+        try {
+            return new String[]{absolutePath, directory.getCanonicalPath() + File.separator};
+        } catch (IOException e) {
+            return new String[]{absolutePath};
+        }
+    }
+
+    private static String getRemoteKey(File file, String coordinates) {
+        return coordinates + ':' + file.length() + (coordinates.contains(SNAPSHOT) ? ":" + file.lastModified() : "");
+    }
+
+    private String verify(File file, long length, long lastModified, String repositoryChecksum, boolean ahead) throws IOException {
+        String sha1 = calculate(file, length, lastModified, ahead, false).getResult();
+        verifiedChecksums.incrementAndGet();
+        if (!sha1.equals(repositoryChecksum)) {
+            mismatchedChecksums.incrementAndGet();
+        }
+        return sha1;
+    }
+
+    /**
+     * Computes the checksum, or joins the calculation of the same file already running. The checksum is kept in
+     * memory before the calculation is released, so a lookup finds either of them.
+     *
+     * @param cached whether a checksum cached by another build while waiting for it may be used.
+     * @return The completed calculation.
+     */
+    private Calculation calculate(File file, long length, long lastModified, boolean ahead, boolean cached) throws IOException {
+        String path = file.getAbsolutePath();
+        Calculation calculation = new Calculation(file, ahead, cached);
+        Calculation running = calculations.putIfAbsent(path, calculation);
+        if (running == null) {
+            try {
+                calculation.run();
+                String sha1 = calculation.getResult();
+                synchronized (calculation) {
+                    if (calculation.ahead) {
+                        resolvedAhead.add(path);
+                    }
+                }
+                memoryCache.put(path, new FileChecksum(length, lastModified, sha1, true));
+            } finally {
+                calculations.remove(path, calculation);
+            }
+            return calculation;
+        }
+        synchronized (running) {
+            if (running.ahead && !ahead) {
+                // the lookup is served by the resolution ahead, which isn't counted again
+                resolvedAheadHits.incrementAndGet();
+                resolvedAhead.remove(path);
+                running.ahead = false;
+            }
+        }
+        return running;
+    }
+
+    private String compute(File file, boolean cached) throws IOException {
+        String fileKey = FileIdentity.getFileKey(file);
+        String sha1 = fileKey == null ? null : identicalFiles.get(fileKey);
+        if (sha1 != null) {
+            sourceCounts.get(ChecksumSource.SAME_FILE).incrementAndGet();
+            if (cache != null) {
+                cache.put(file, sha1);
+            }
+        } else {
+            sha1 = computeOnce(file, cached);
+        }
+        if (fileKey != null) {
+            identicalFiles.put(fileKey, sha1);
+        }
+        return sha1;
+    }
+
+    /**
+     * Calculates the checksum, unless another build sharing the cache is calculating it already, in which case its
+     * result is awaited and used.
+     */
+    private String computeOnce(File file, boolean cached) throws IOException {
+        CrossProcessLock.Lock lock = cache == null ? null : cache.lock(file);
+        try {
+            String sha1 = lock != null && cached ? cache.get(file) : null;
+            if (sha1 != null) {
+                sourceCounts.get(ChecksumSource.CACHE).incrementAndGet();
+                return sha1;
+            }
+            sha1 = Sha1.calculate(file);
+            sourceCounts.get(ChecksumSource.COMPUTED).incrementAndGet();
+            if (cache != null) {
+                cache.put(file, sha1);
+            }
+            return sha1;
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * @return The SHA-1 of the checksum file stored by the repository next to the file, or null if it isn't valid.
+     */
+    static String readRepositoryChecksum(File file) {
+        File checksumFile = new File(file.getPath() + SHA1_EXTENSION);
+        if (!checksumFile.isFile() || checksumFile.lastModified() + REPOSITORY_CHECKSUM_TOLERANCE_MILLIS < file.lastModified()) {
+            return null;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(checksumFile));
+            try {
+                // the checksum may be followed by a file name
+                String line = reader.readLine();
+                if (line != null && line.trim().length() >= SHA1_LENGTH) {
+                    String sha1 = line.trim().substring(0, SHA1_LENGTH).toLowerCase();
+                    return Sha1.isSha1(sha1) ? sha1 : null;
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // fall back to the next source
+        }
+        return null;
+    }
+
+    /* --- Nested classes --- */
+
+    private final class Calculation extends FutureTask<String> {
+
+        /**
+         * Whether the calculation is ahead of any lookup, guarded by the calculation.
+         */
+        private boolean ahead;
+
+        Calculation(final File file, boolean ahead, final boolean cached) {
+            super(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return compute(file, cached);
+                }
+            });
+            this.ahead = ahead;
+        }
+
+        /**
+         * Waits for the calculation to complete.
+         */
+        String getResult() throws IOException {
+            try {
+                return get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a checksum");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private static final class FileChecksum {
+
+        private final long length;
+        private final long lastModified;
+        private final String sha1;
+        private final boolean computed;
+
+        FileChecksum(long length, long lastModified, String sha1, boolean computed) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.sha1 = sha1;
+            this.computed = computed;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.whitesource.maven.utils.checksum;
+
+/**
+ * Where a checksum returned by a {@link ChecksumResolver} came from.
+ */
+public enum ChecksumSource {
+
+    /**
+     * Checksums already provided in this JVM, possibly in a previous build.
+     */
+    MEMORY,
+
+    /**
+     * The checksum file stored by the repository next to the artifact.
+     */
+    REPOSITORY,
+
+    /**
+     * The persistent checksum cache.
+     */
+    CACHE,
+
+    /**
+     * The remote cache shared with other hosts.
+     */
+    REMOTE,
+
+    /**
+     * Calculated already in this run for another path to the same file (a hard link).
+     */
+    SAME_FILE,
+
+    /**
+     * Calculated from the file content.
+     */
+    COMPUTED
+}
@@ -0,0 +1,77 @@
+package org.whitesource.maven.utils.checksum;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+/**
+ * Identifies files independently of their path, so a file reachable under several paths is only hashed once.
+ * The file system identity of a file (e.g. device and inode) is shared by all hard links to the file. Needs Java 7 and
+ * a file system providing file keys.
+ */
+public final class FileIdentity {
+
+    /* --- Static members --- */
+
+    /**
+     * Files.readAttributes(Path, Class, LinkOption...) and BasicFileAttributes.fileKey(), looked up reflectively since
+     * the plugin runs on Java 6; null if unavailable.
+     */
+    private static final Method toPath;
+    private static final Method readAttributes;
+    private static final Method fileKey;
+    private static final Class<?> attributesClass;
+    private static final Object noLinkOptions;
+
+    static {
+        Method toPathMethod = null;
+        Method readAttributesMethod = null;
+        Method fileKeyMethod = null;
+        Class<?> attributes = null;
+        Object linkOptions = null;
+        try {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Class<?> linkOptionClass = Class.forName("java.nio.file.LinkOption");
+            attributes = Class.forName("java.nio.file.attribute.BasicFileAttributes");
+            toPathMethod = File.class.getMethod("toPath");
+            readAttributesMethod = Class.forName("java.nio.file.Files").getMethod("readAttributes",
+                    pathClass, Class.class, Array.newInstance(linkOptionClass, 0).getClass());
+            fileKeyMethod = attributes.getMethod("fileKey");
+            linkOptions = Array.newInstance(linkOptionClass, 0);
+        } catch (ClassNotFoundException e) {
+            toPathMethod = null;
+        } catch (NoSuchMethodException e) {
+            toPathMethod = null;
+        }
+        toPath = toPathMethod;
+        readAttributes = toPathMethod == null ? null : readAttributesMethod;
+        fileKey = toPathMethod == null ? null : fileKeyMethod;
+        attributesClass = attributes;
+        noLinkOptions = linkOptions;
+    }
+
+    /* --- Static methods --- */
+
+    /**
+     * @return The file system identity of the file with its size and modification time, or null if not available.
+     */
+    public static String getFileKey(File file) {
+        if (toPath == null) {
+            return null;
+        }
+        try {
+            Object attributes = readAttributes.invoke(null, toPath.invoke(file), attributesClass, noLinkOptions);
+            Object key = fileKey.invoke(attributes);
+            return key == null ? null : key + ":" + file.length() + ":" + file.lastModified();
+        } catch (Exception e) {
+            // e.g. the file was deleted, treat as unknown
+            return null;
+        }
+    }
+
+    /* --- Constructors --- */
+
+    private FileIdentity() {
+        // avoid instantiation
+    }
+}
@@ -0,0 +1,125 @@
+package org.whitesource.maven.utils.checksum;
+
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checksums of files persisted across builds, one small entry file per cached file.
+ * <p>
+ * Entries are keyed by the absolute path of the file and are only valid while the size and modification time of the
+ * file are those recorded with the checksum. Entries are written atomically, so several builds may share the cache.
+ * Builds computing the same entry at the same time can coordinate with {@link #lock(File)}.
+ */
+public class PersistentChecksumCache {
+
+    /* --- Static members --- */
+
+    private static final String CHECKSUMS_DIRECTORY = "checksums";
+    private static final String ENCODING = "UTF-8";
+    private static final String FIELD_SEPARATOR = " ";
+    private static final String LOCK_FILE = ".lock";
+    private static final long LOCK_MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /* --- Private Members --- */
+
+    private final File directory;
+    private final CrossProcessLock lock;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param cacheDirectory the root directory of the plugin caches.
+     */
+    public PersistentChecksumCache(File cacheDirectory) {
+        this.directory = new File(cacheDirectory, CHECKSUMS_DIRECTORY);
+        this.lock = new CrossProcessLock(new File(directory, LOCK_FILE), LOCK_MAX_WAIT_MILLIS);
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The cached SHA-1 of the file, or null if there's no valid entry for the file in its current state.
+     */
+    public String get(File file) {
+        File entryFile = getEntryFile(file);
+        if (!entryFile.isFile()) {
+            return null;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(entryFile), ENCODING));
+            try {
+                String[] fields = reader.readLine().split(FIELD_SEPARATOR);
+                String path = reader.readLine();
+                if (fields.length == 3 && file.getAbsolutePath().equals(path)
+                        && Long.parseLong(fields[0]) == file.length()
+                        && Long.parseLong(fields[1]) == file.lastModified()
+                        && Sha1.isSha1(fields[2])) {
+                    return fields[2];
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // treat as a cache miss
+        } catch (RuntimeException e) {
+            // corrupted entry, treat as a cache miss
+        }
+        return null;
+    }
+
+    /**
+     * Stores the SHA-1 of the file in its current state. Failures are ignored, the cache is best effort.
+     */
+    public void put(File file, String sha1) {
+        File entryFile = getEntryFile(file);
+        File entryDirectory = entryFile.getParentFile();
+        if (!entryDirectory.isDirectory() && !entryDirectory.mkdirs()) {
+            return;
+        }
+
+        try {
+            File tempFile = File.createTempFile(entryFile.getName(), ".tmp", entryDirectory);
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING);
+            try {
+                writer.write(file.length() + FIELD_SEPARATOR + file.lastModified() + FIELD_SEPARATOR + sha1 + "\n");
+                writer.write(file.getAbsolutePath() + "\n");
+            } finally {
+                writer.close();
+            }
+            if (!tempFile.renameTo(entryFile)) {
+                // some platforms don't replace existing files
+                entryFile.delete();
+                if (!tempFile.renameTo(entryFile)) {
+                    tempFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            // ignore, the cache is best effort
+        }
+    }
+
+    /**
+     * Waits until no other build (or thread) computes the entry of the file and locks it, so the entry is computed
+     * once. The entry should be looked up again once locked, it may have been computed in the meantime.
+     *
+     * @return The lock, to release once the entry is stored, or null if the entry couldn't be locked.
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    public CrossProcessLock.Lock lock(File file) throws InterruptedIOException {
+        return lock.acquire(file.getAbsolutePath());
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /* --- Private methods --- */
+
+    private File getEntryFile(File file) {
+        String key = Sha1.calculate(file.getAbsolutePath());
+        return new File(new File(directory, key.substring(0, 2)), key);
+    }
+}
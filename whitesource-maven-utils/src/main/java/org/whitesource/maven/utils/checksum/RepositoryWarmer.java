@@ -0,0 +1,168 @@
+package org.whitesource.maven.utils.checksum;
+
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+import org.whitesource.maven.utils.concurrent.IoExecutor;
+import org.whitesource.maven.utils.concurrent.RateLimiter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills a {@link PersistentChecksumCache} with the checksums of the artifacts of a repository directory ahead of the
+ * scans, so they don't pay for hashing new artifacts inline.
+ * <p>
+ * Only artifacts without a valid entry and without a checksum file of the repository (which the scans use instead of
+ * the cache) are hashed. Hashing runs in parallel, with the total read rate limited so running builds aren't slowed down.
+ */
+public class RepositoryWarmer {
+
+    /* --- Static members --- */
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /* --- Private Members --- */
+
+    private final PersistentChecksumCache cache;
+    private final Set<String> extensions;
+    private final int concurrency;
+    private final RateLimiter rateLimiter;
+
+    private final AtomicInteger artifacts = new AtomicInteger();
+    private final AtomicInteger upToDate = new AtomicInteger();
+    private final AtomicInteger hashed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong hashedBytes = new AtomicLong();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param cache             the cache to fill.
+     * @param extensions        extensions of the artifact files, e.g. jar.
+     * @param concurrency       the number of files hashed at the same time.
+     * @param maxBytesPerSecond the maximal total read rate, 0 or less for no limit.
+     */
+    public RepositoryWarmer(PersistentChecksumCache cache, Collection<String> extensions, int concurrency, long maxBytesPerSecond) {
+        this.cache = cache;
+        this.extensions = new HashSet<String>();
+        for (String extension : extensions) {
+            this.extensions.add(extension.trim().toLowerCase());
+        }
+        this.concurrency = concurrency;
+        this.rateLimiter = new RateLimiter(maxBytesPerSecond);
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Hashes the new and changed artifacts under the directory.
+     */
+    public void warm(File directory) throws InterruptedException {
+        IoExecutor executor = new IoExecutor(concurrency, "whitesource-warm");
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            Deque<File> directories = new ArrayDeque<File>();
+            directories.push(directory);
+            while (!directories.isEmpty()) {
+                File[] files = directories.pop().listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (final File file : files) {
+                    if (file.isDirectory()) {
+                        directories.push(file);
+                    } else if (isArtifact(file)) {
+                        artifacts.incrementAndGet();
+                        if (cache.get(file) != null || ChecksumResolver.readRepositoryChecksum(file) != null) {
+                            upToDate.incrementAndGet();
+                        } else {
+                            futures.add(executor.submit(new Callable<Void>() {
+                                @Override
+                                public Void call() throws InterruptedException {
+                                    hash(file);
+                                    return null;
+                                }
+                            }));
+                        }
+                    }
+                }
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return A one line summary of the warmed files.
+     */
+    public String getStatistics() {
+        return "artifacts: " + artifacts.get() + ", up to date: " + upToDate.get() + ", hashed: " + hashed.get()
+                + " (" + hashedBytes.get() / (1024 * 1024) + " MB), failed: " + failed.get();
+    }
+
+    /* --- Private methods --- */
+
+    private boolean isArtifact(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && extensions.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    private void hash(File file) throws InterruptedException {
+        try {
+            CrossProcessLock.Lock lock = cache.lock(file);
+            try {
+                // hashed by a build in the meantime
+                if (lock != null && cache.get(file) != null) {
+                    upToDate.incrementAndGet();
+                    return;
+                }
+                hashLocked(file);
+            } finally {
+                if (lock != null) {
+                    lock.release();
+                }
+            }
+        } catch (InterruptedIOException e) {
+            throw new InterruptedException(e.getMessage());
+        } catch (IOException e) {
+            // e.g. deleted meanwhile
+            failed.incrementAndGet();
+        }
+    }
+
+    private void hashLocked(File file) throws IOException, InterruptedException {
+        MessageDigest digest = Sha1.newDigest();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                rateLimiter.acquire(read);
+                digest.update(buffer, 0, read);
+                hashedBytes.addAndGet(read);
+            }
+        } finally {
+            input.close();
+        }
+        cache.put(file, Sha1.toHex(digest.digest()));
+        hashed.incrementAndGet();
+    }
+}
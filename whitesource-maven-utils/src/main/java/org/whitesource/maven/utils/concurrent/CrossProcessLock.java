@@ -0,0 +1,248 @@
+package org.whitesource.maven.utils.concurrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mutual exclusion per key between the processes (and threads) sharing a lock file, e.g. builds sharing a cache
+ * directory, so only one of them computes a cache entry while the others wait and reuse it.
+ * <p>
+ * Each key locks a single byte region of the lock file, selected by the hash of the key, so a single file serves any
+ * number of keys. The locks are operating system file locks: the locks of a process that dies are released with it,
+ * and a holder that hangs is given up on after the maximal wait time. Where the file system doesn't support locks,
+ * no exclusion takes place. Thread safe.
+ * <p>
+ * File locks are held by the process, and on POSIX systems closing any descriptor of a file drops all the locks of the
+ * process on it. The threads of a process therefore share a single channel per lock file, closed once none of them
+ * holds or waits for a lock, and are excluded from each other by the key before locking the file.
+ */
+public class CrossProcessLock {
+
+    /* --- Static members --- */
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    /**
+     * The open lock files of this process, by canonical path.
+     */
+    private static final Map<File, SharedFile> openFiles = new HashMap<File, SharedFile>();
+
+    /* --- Private Members --- */
+
+    private final File lockFile;
+    private final long maxWaitMillis;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param lockFile      the file locked, created when missing.
+     * @param maxWaitMillis the maximal time to wait for a lock held by another process or thread.
+     */
+    public CrossProcessLock(File lockFile, long maxWaitMillis) {
+        this.lockFile = canonicalFile(lockFile);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Waits until the lock of the key is free and acquires it.
+     *
+     * @return The lock, to release when done, or null if it couldn't be acquired (not supported, or held for longer
+     * than the maximal wait time), in which case the caller proceeds without exclusion.
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    public Lock acquire(String key) throws InterruptedIOException {
+        File directory = lockFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return null;
+        }
+
+        long position = key.hashCode() & 0x7fffffffL;
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        SharedFile file = SharedFile.open(lockFile);
+        if (file == null) {
+            return null;
+        }
+        boolean acquired = false;
+        try {
+            // first among the threads of this process, then among the processes
+            if (!file.reserve(position, deadline)) {
+                return null;
+            }
+            try {
+                while (true) {
+                    FileLock fileLock;
+                    try {
+                        fileLock = file.channel.tryLock(position, 1, false);
+                    } catch (OverlappingFileLockException e) {
+                        // locked through another channel of this process, e.g. by other code
+                        fileLock = null;
+                    }
+                    if (fileLock != null) {
+                        acquired = true;
+                        return new Lock(file, position, fileLock);
+                    }
+                    if (System.currentTimeMillis() >= deadline) {
+                        return null;
+                    }
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                }
+            } finally {
+                if (!acquired) {
+                    file.unreserve(position);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a lock of " + lockFile);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (!acquired) {
+                file.close();
+            }
+        }
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @return The file under a single path, so all the instances locking it share the same {@link SharedFile}.
+     */
+    private static File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A lock held, released once.
+     */
+    public static final class Lock {
+
+        private final SharedFile file;
+        private final long position;
+        private final FileLock fileLock;
+        private boolean released;
+
+        Lock(SharedFile file, long position, FileLock fileLock) {
+            this.file = file;
+            this.position = position;
+            this.fileLock = fileLock;
+        }
+
+        public void release() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                // released when the file is closed
+            } finally {
+                file.unreserve(position);
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * A lock file opened once by this process, with the positions locked or being locked by its threads.
+     */
+    private static final class SharedFile {
+
+        private final File path;
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final Set<Long> reservedPositions = new HashSet<Long>();
+
+        /**
+         * Number of locks held or being acquired, guarded by {@link #openFiles}.
+         */
+        private int users;
+
+        private SharedFile(File path, RandomAccessFile file) {
+            this.path = path;
+            this.file = file;
+            this.channel = file.getChannel();
+        }
+
+        /**
+         * Opens the file, or shares it if open already. Must be closed with {@link #close()}.
+         *
+         * @return The file, or null if it can't be opened.
+         */
+        static SharedFile open(File path) {
+            synchronized (openFiles) {
+                SharedFile shared = openFiles.get(path);
+                if (shared == null) {
+                    try {
+                        shared = new SharedFile(path, new RandomAccessFile(path, "rw"));
+                    } catch (IOException e) {
+                        return null;
+                    }
+                    openFiles.put(path, shared);
+                }
+                shared.users++;
+                return shared;
+            }
+        }
+
+        /**
+         * Closes the file once no thread uses it, since closing would release the locks of all of them. Closed before
+         * the file can be opened again, which would have its locks released by this close as well.
+         */
+        void close() {
+            synchronized (openFiles) {
+                if (--users > 0) {
+                    return;
+                }
+                openFiles.remove(path);
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // nothing to do
+                }
+            }
+        }
+
+        /**
+         * Waits until no other thread of this process locks the position and reserves it.
+         *
+         * @return false if the deadline passed.
+         */
+        synchronized boolean reserve(long position, long deadline) throws InterruptedException {
+            while (reservedPositions.contains(position)) {
+                long waitTime = deadline - System.currentTimeMillis();
+                if (waitTime <= 0) {
+                    return false;
+                }
+                wait(waitTime);
+            }
+            reservedPositions.add(position);
+            return true;
+        }
+
+        synchronized void unreserve(long position) {
+            reservedPositions.remove(position);
+            notifyAll();
+        }
+    }
+}
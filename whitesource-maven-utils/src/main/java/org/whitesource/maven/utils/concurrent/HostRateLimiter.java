@@ -0,0 +1,212 @@
+package org.whitesource.maven.utils.concurrent;
+
+import java.io.*;
+
+/**
+ * Limits the requests sent by all the processes sharing a directory, e.g. the builds running on a host: at most
+ * maxConcurrent requests at the same time and maxPerMinute requests a minute, with bursts of up to maxConcurrent.
+ * <p>
+ * The rate is a token bucket kept in a file of the directory, updated under a {@link CrossProcessLock}. Each request in
+ * flight holds the lock of one of maxConcurrent slots, released by the operating system if the process dies. The bucket
+ * and the slots are locked in separate files, so their locks never share a region. Callers
+ * waiting longer than the maximal wait time proceed without a permit, so a stuck process can't stall the others.
+ * Where the directory can't be used, requests aren't limited. Thread safe.
+ */
+public class HostRateLimiter {
+
+    /* --- Static members --- */
+
+    private static final String BUCKET_LOCK_FILE = "requests.bucket.lock";
+    private static final String SLOTS_LOCK_FILE = "requests.slots.lock";
+    private static final String BUCKET_FILE = "requests.bucket";
+    private static final String BUCKET_KEY = "bucket";
+    private static final String ENCODING = "UTF-8";
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final long MILLIS_PER_MINUTE = 60000;
+
+    /* --- Private Members --- */
+
+    private final File bucketFile;
+    private final CrossProcessLock bucketLock;
+    private final CrossProcessLock slotLock;
+    private final int maxConcurrent;
+    private final int maxPerMinute;
+    private final long maxWaitMillis;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param directory     the directory shared by the processes.
+     * @param maxConcurrent the maximal number of requests in flight, 0 or less for no limit.
+     * @param maxPerMinute  the maximal number of requests a minute, 0 or less for no limit.
+     * @param maxWaitMillis the maximal time to wait for a permit.
+     */
+    public HostRateLimiter(File directory, int maxConcurrent, int maxPerMinute, long maxWaitMillis) {
+        this.bucketFile = new File(directory, BUCKET_FILE);
+        this.bucketLock = new CrossProcessLock(new File(directory, BUCKET_LOCK_FILE), maxWaitMillis);
+        // a single attempt, slots are polled in turn
+        this.slotLock = new CrossProcessLock(new File(directory, SLOTS_LOCK_FILE), 0);
+        this.maxConcurrent = maxConcurrent;
+        this.maxPerMinute = maxPerMinute;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Waits until a request may be sent.
+     *
+     * @return The permit, to release once the response is received.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Permit acquire() throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + maxWaitMillis;
+        boolean limited = takeToken(deadline);
+        CrossProcessLock.Lock slot = null;
+        if (limited && maxConcurrent > 0) {
+            slot = takeSlot(deadline);
+            limited = slot != null;
+        }
+        return new Permit(slot, System.currentTimeMillis() - startTime, limited);
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @return false if the deadline passed or the bucket can't be used.
+     */
+    private boolean takeToken(long deadline) throws InterruptedException {
+        if (maxPerMinute <= 0) {
+            return true;
+        }
+        double tokensPerMilli = (double) maxPerMinute / MILLIS_PER_MINUTE;
+        int capacity = Math.max(1, maxConcurrent);
+        while (true) {
+            long waitTime;
+            CrossProcessLock.Lock lock = acquire(bucketLock, BUCKET_KEY);
+            if (lock == null) {
+                return false;
+            }
+            try {
+                long now = System.currentTimeMillis();
+                double[] bucket = readBucket();
+                double tokens = bucket == null ? capacity
+                        : Math.min(capacity, bucket[0] + Math.max(0, now - (long) bucket[1]) * tokensPerMilli);
+                if (tokens >= 1) {
+                    writeBucket(tokens - 1, now);
+                    return true;
+                }
+                writeBucket(tokens, now);
+                waitTime = (long) Math.ceil((1 - tokens) / tokensPerMilli);
+            } finally {
+                lock.release();
+            }
+            if (System.currentTimeMillis() + waitTime > deadline) {
+                return false;
+            }
+            Thread.sleep(waitTime);
+        }
+    }
+
+    private CrossProcessLock.Lock takeSlot(long deadline) throws InterruptedException {
+        while (true) {
+            for (int i = 0; i < maxConcurrent; i++) {
+                CrossProcessLock.Lock slot = acquire(slotLock, String.valueOf(i));
+                if (slot != null) {
+                    return slot;
+                }
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return null;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    private static CrossProcessLock.Lock acquire(CrossProcessLock lock, String key) throws InterruptedException {
+        try {
+            return lock.acquire(key);
+        } catch (InterruptedIOException e) {
+            throw new InterruptedException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return The tokens and the time they were counted at, or null if unknown.
+     */
+    private double[] readBucket() {
+        if (!bucketFile.isFile()) {
+            return null;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(bucketFile), ENCODING));
+            try {
+                String[] fields = reader.readLine().trim().split(" ");
+                return new double[]{Double.parseDouble(fields[0]), Long.parseLong(fields[1])};
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // corrupted, start over
+            return null;
+        }
+    }
+
+    private void writeBucket(double tokens, long time) {
+        try {
+            // written in place, readers hold the lock
+            Writer writer = new OutputStreamWriter(new FileOutputStream(bucketFile), ENCODING);
+            try {
+                writer.write(tokens + " " + time + "\n");
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            // ignore, the limit is best effort
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * The permission to send a request.
+     */
+    public static final class Permit {
+
+        private final CrossProcessLock.Lock slot;
+        private final long waitMillis;
+        private final boolean limited;
+
+        Permit(CrossProcessLock.Lock slot, long waitMillis, boolean limited) {
+            this.slot = slot;
+            this.waitMillis = waitMillis;
+            this.limited = limited;
+        }
+
+        /**
+         * Frees the slot of the request, once its response is received.
+         */
+        public void release() {
+            if (slot != null) {
+                slot.release();
+            }
+        }
+
+        /**
+         * @return The time waited for the permit.
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        /**
+         * @return false if the permit was given up on (waited too long, or the limit couldn't be applied).
+         */
+        public boolean isLimited() {
+            return limited;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.whitesource.maven.utils.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking I/O tasks (dependency resolution, file hashing, uploads) with a bounded concurrency.
+ * <p>
+ * On JDK 21 and later each task runs on a virtual thread of its own and a semaphore limits how many of them run at the
+ * same time, so waiting tasks don't hold a platform thread. Older JDKs use a classic fixed pool of platform threads.
+ * The virtual thread executor is looked up reflectively, the plugin is built for older JDKs.
+ */
+public class IoExecutor {
+
+    /* --- Static members --- */
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    /* --- Private Members --- */
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param concurrency the maximal number of tasks running at the same time.
+     * @param threadName  the name prefix of platform threads.
+     */
+    public IoExecutor(int concurrency, final String threadName) {
+        concurrency = Math.max(1, concurrency);
+        this.permits = new Semaphore(concurrency);
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualThreadExecutor != null;
+        if (virtualThreads) {
+            this.executor = virtualThreadExecutor;
+        } else {
+            final AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /* --- Public methods --- */
+
+    public <T> Future<T> submit(final Callable<T> task) {
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Whether the tasks run on virtual threads.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting tasks, tasks already submitted still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /* --- Private methods --- */
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (Exception e) {
+            // e.g. a preview API on JDK 19 and 20
+            return null;
+        }
+    }
+}
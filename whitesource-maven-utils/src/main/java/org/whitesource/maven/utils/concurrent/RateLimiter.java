@@ -0,0 +1,43 @@
+package org.whitesource.maven.utils.concurrent;
+
+/**
+ * Limits the rate of a resource (e.g. bytes read) shared by several threads, by making callers wait for their share.
+ * Thread safe.
+ */
+public class RateLimiter {
+
+    /* --- Private Members --- */
+
+    private final double permitsPerMilli;
+    private long nextFreeTime = System.currentTimeMillis();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param permitsPerSecond the maximal rate, 0 or less for no limit.
+     */
+    public RateLimiter(long permitsPerSecond) {
+        this.permitsPerMilli = permitsPerSecond / 1000.0;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Waits until the permits may be used without exceeding the rate.
+     */
+    public void acquire(long permits) throws InterruptedException {
+        if (permitsPerMilli <= 0) {
+            return;
+        }
+        long waitTime;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long start = Math.max(now, nextFreeTime);
+            nextFreeTime = start + (long) (permits / permitsPerMilli);
+            waitTime = start - now;
+        }
+        if (waitTime > 0) {
+            Thread.sleep(waitTime);
+        }
+    }
+}
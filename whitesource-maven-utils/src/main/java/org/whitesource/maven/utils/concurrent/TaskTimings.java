@@ -0,0 +1,93 @@
+package org.whitesource.maven.utils.concurrent;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durations of named tasks, persisted across builds to estimate the cost of the same tasks in the next build.
+ * A recorded duration is the mean of the previous estimate and the latest measurement, to smooth out noise.
+ * Thread safe.
+ */
+public class TaskTimings {
+
+    /* --- Private Members --- */
+
+    private final File file;
+    private final Map<String, Long> timings = new ConcurrentHashMap<String, Long>();
+
+    /* --- Constructors --- */
+
+    /**
+     * Loads the timings stored in the file, if any. Unreadable files are ignored.
+     */
+    public TaskTimings(File file) {
+        this.file = file;
+        if (file.isFile()) {
+            try {
+                Properties properties = new Properties();
+                InputStream inputStream = new FileInputStream(file);
+                try {
+                    properties.load(inputStream);
+                } finally {
+                    inputStream.close();
+                }
+                for (String key : properties.stringPropertyNames()) {
+                    timings.put(key, Long.valueOf(properties.getProperty(key)));
+                }
+            } catch (IOException e) {
+                timings.clear();
+            } catch (NumberFormatException e) {
+                timings.clear();
+            }
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The estimated duration of the task in milliseconds, or null if it was never recorded.
+     */
+    public Long get(String task) {
+        return timings.get(task);
+    }
+
+    public void record(String task, long millis) {
+        Long previous = timings.get(task);
+        timings.put(task, previous == null ? millis : (previous + millis) / 2);
+    }
+
+    /**
+     * Writes the timings to the file, atomically. Failures are ignored, the timings are best effort.
+     */
+    public void save() {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> timing : timings.entrySet()) {
+            properties.setProperty(timing.getKey(), String.valueOf(timing.getValue()));
+        }
+        try {
+            File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+            OutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                properties.store(outputStream, null);
+            } finally {
+                outputStream.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                // some platforms don't replace existing files
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    tempFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            // ignore, the timings are best effort
+        }
+    }
+}
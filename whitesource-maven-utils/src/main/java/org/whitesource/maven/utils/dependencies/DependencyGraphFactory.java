@@ -5,6 +5,7 @@ import org.apache.maven.project.DependencyResolutionException;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectDependenciesResolver;
 import org.whitesource.maven.utils.dependencies.impl.eclipse.EclipseAetherDependencyGraphBuilder;
+import org.whitesource.maven.utils.dependencies.impl.maven.ResolvedArtifactsDependencyGraphBuilder;
 import org.whitesource.maven.utils.dependencies.impl.sonatype.SonatypeAetherDependencyGraphBuilder;
 
 /**
@@ -12,6 +13,12 @@ import org.whitesource.maven.utils.dependencies.impl.sonatype.SonatypeAetherDepe
  */
 public class DependencyGraphFactory {
 
+    /**
+     * Key of the {@link MavenProject} context value holding the dependency graph resolved for the project earlier in
+     * the build, if it was captured (see the whitesource-maven-extension module).
+     */
+    public static final String CAPTURED_DEPENDENCY_GRAPH_KEY = "org.whitesource.maven.capturedDependencyGraph";
+
     private final static boolean isEclipseAetherLoaded;
 
     static {
@@ -28,6 +35,30 @@ public class DependencyGraphFactory {
     }
 
     public static AetherDependencyNode getAetherDependencyGraphRootNode(MavenProject project, ProjectDependenciesResolver projectDependenciesResolver, MavenSession session) throws DependencyResolutionException {
+        return getAetherDependencyGraphRootNode(project, projectDependenciesResolver, session, true);
+    }
+
+    /**
+     * Returns the dependency graph of the project, resolving it only if maven didn't already do so during the build.
+     * The first available source is used: the graph captured during the build, the artifacts maven resolved for the
+     * project (if reuseResolvedArtifacts is set) and finally a new resolution.
+     */
+    public static AetherDependencyNode getAetherDependencyGraphRootNode(MavenProject project, ProjectDependenciesResolver projectDependenciesResolver,
+                                                                        MavenSession session, boolean reuseResolvedArtifacts) throws DependencyResolutionException {
+        if (isEclipseAetherLoaded) {
+            AetherDependencyNode capturedGraph = new EclipseAetherDependencyGraphBuilder(project, projectDependenciesResolver, session).getCapturedGraph();
+            if (capturedGraph != null) {
+                return capturedGraph;
+            }
+        }
+
+        if (reuseResolvedArtifacts) {
+            AetherDependencyNode resolvedGraph = new ResolvedArtifactsDependencyGraphBuilder(project).build();
+            if (resolvedGraph != null) {
+                return resolvedGraph;
+            }
+        }
+
         if (isEclipseAetherLoaded) {
             return new EclipseAetherDependencyGraphBuilder(project, projectDependenciesResolver, session).build();
         } else {
@@ -0,0 +1,402 @@
+package org.whitesource.maven.utils.dependencies.compact;
+
+import org.whitesource.maven.utils.dependencies.AetherArtifact;
+import org.whitesource.maven.utils.dependencies.AetherDependency;
+import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.AetherExclusion;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Immutable dependency graph held in primitive arrays.
+ * <p>
+ * Nodes are dense int ids. All strings (coordinates, scopes, checksums, paths) live in a shared {@link StringPool}
+ * and each node stores only their ids. Children and exclusions are kept in CSR form: the entries of node {@code n}
+ * are the range {@code [offsets[n], offsets[n + 1])} of a single flat array. A node may be the child of several
+ * parents, so the graph can hold shared subtrees without copying them.
+ */
+public final class CompactDependencyGraph {
+
+    /* --- Static members --- */
+
+    public static final int GROUP_ID = 0;
+    public static final int ARTIFACT_ID = 1;
+    public static final int VERSION = 2;
+    public static final int CLASSIFIER = 3;
+    public static final int EXTENSION = 4;
+    public static final int SCOPE = 5;
+    public static final int SHA1 = 6;
+    public static final int FILE = 7;
+    public static final int FILENAME = 8;
+    public static final int FIELD_COUNT = 9;
+
+    public static final int FLAG_OPTIONAL = 1;
+
+    /* --- Private Members --- */
+
+    private final StringPool strings;
+    private final int nodeCount;
+    private final int[] fields;
+    private final byte[] flags;
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] exclusionOffsets;
+    private final int[] exclusions;
+    private final int[] roots;
+    private final NodeView[] views;
+
+    /* --- Constructors --- */
+
+    private CompactDependencyGraph(Builder builder) {
+        this.strings = builder.strings;
+        this.nodeCount = builder.nodeCount;
+        this.fields = Arrays.copyOf(builder.fields, nodeCount * FIELD_COUNT);
+        this.flags = Arrays.copyOf(builder.flags, nodeCount);
+        this.roots = builder.roots.toArray();
+
+        this.childOffsets = new int[nodeCount + 1];
+        this.children = toCsr(builder.edges, 1, childOffsets);
+        this.exclusionOffsets = new int[nodeCount + 1];
+        this.exclusions = toCsr(builder.exclusions, 2, exclusionOffsets);
+        this.views = new NodeView[nodeCount];
+    }
+
+    /* --- Static methods --- */
+
+    /**
+     * Converts a resolved dependency graph. Nodes shared in the source graph stay shared.
+     *
+     * @param rootNode the project node, its children become the roots of the graph.
+     * @return the compact graph.
+     */
+    public static CompactDependencyGraph fromAetherGraph(AetherDependencyNode rootNode) {
+        Builder builder = new Builder();
+        Map<AetherDependencyNode, Integer> nodeIds = new IdentityHashMap<AetherDependencyNode, Integer>();
+        Deque<AetherDependencyNode> stack = new ArrayDeque<AetherDependencyNode>();
+
+        for (AetherDependencyNode child : rootNode.getChildren()) {
+            builder.addRoot(nodeIdOf(child, builder, nodeIds, stack));
+        }
+        while (!stack.isEmpty()) {
+            AetherDependencyNode node = stack.pop();
+            int nodeId = nodeIds.get(node);
+            for (AetherDependencyNode child : node.getChildren()) {
+                builder.addChild(nodeId, nodeIdOf(child, builder, nodeIds, stack));
+            }
+        }
+        return builder.build();
+    }
+
+    private static int nodeIdOf(AetherDependencyNode node, Builder builder,
+                                Map<AetherDependencyNode, Integer> nodeIds, Deque<AetherDependencyNode> stack) {
+        Integer nodeId = nodeIds.get(node);
+        if (nodeId == null) {
+            AetherDependency dependency = node.getDependency();
+            AetherArtifact artifact = dependency.getArtifact();
+            nodeId = builder.addNode(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                    artifact.getClassifier(), artifact.getExtension(), dependency.getScope(), dependency.isOptional());
+            File file = artifact.getFile();
+            if (file != null) {
+                builder.setFile(nodeId, file.getAbsolutePath(), file.getName());
+            }
+            for (AetherExclusion exclusion : dependency.getExclusions()) {
+                builder.addExclusion(nodeId, exclusion.getGroupId(), exclusion.getArtifactId());
+            }
+            nodeIds.put(node, nodeId);
+            stack.push(node);
+        }
+        return nodeId;
+    }
+
+    private static int[] toCsr(IntList entries, int entrySize, int[] offsets) {
+        // stable counting sort of (node, value...) tuples by node
+        int entryCount = entries.size() / (entrySize + 1);
+        for (int i = 0; i < entryCount; i++) {
+            offsets[entries.get(i * (entrySize + 1)) + 1] += entrySize;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] values = new int[entryCount * entrySize];
+        int[] positions = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int i = 0; i < entryCount; i++) {
+            int base = i * (entrySize + 1);
+            int node = entries.get(base);
+            for (int j = 0; j < entrySize; j++) {
+                values[positions[node]++] = entries.get(base + 1 + j);
+            }
+        }
+        return values;
+    }
+
+    /* --- Public methods --- */
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int[] getRoots() {
+        return roots.clone();
+    }
+
+    public String getField(int node, int field) {
+        return strings.get(fields[node * FIELD_COUNT + field]);
+    }
+
+    public boolean isOptional(int node) {
+        return (flags[node] & FLAG_OPTIONAL) != 0;
+    }
+
+    public int getChildCount(int node) {
+        return childOffsets[node + 1] - childOffsets[node];
+    }
+
+    public int getChild(int node, int index) {
+        return children[childOffsets[node] + index];
+    }
+
+    public int getExclusionCount(int node) {
+        return (exclusionOffsets[node + 1] - exclusionOffsets[node]) / 2;
+    }
+
+    public String getExclusionGroupId(int node, int index) {
+        return strings.get(exclusions[exclusionOffsets[node] + index * 2]);
+    }
+
+    public String getExclusionArtifactId(int node, int index) {
+        return strings.get(exclusions[exclusionOffsets[node] + index * 2 + 1]);
+    }
+
+    /**
+     * @return a read only view of the graph as an Aether style tree, rooted at a node without a dependency.
+     * Each node has a single view, so shared subtrees stay shared in the tree.
+     */
+    public AetherDependencyNode getRootNode() {
+        return new RootNodeView();
+    }
+
+    /* --- Private methods --- */
+
+    private NodeView viewOf(int node) {
+        // racy but benign, the view of a node holds only final state
+        NodeView view = views[node];
+        if (view == null) {
+            view = new NodeView(node);
+            views[node] = view;
+        }
+        return view;
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Incrementally builds a {@link CompactDependencyGraph}. Not thread safe.
+     */
+    public static final class Builder {
+
+        private final StringPool strings;
+        private int nodeCount;
+        private int[] fields = new int[16 * FIELD_COUNT];
+        private byte[] flags = new byte[16];
+        private final IntList edges = new IntList();
+        private final IntList exclusions = new IntList();
+        private final IntList roots = new IntList();
+
+        public Builder() {
+            this(new StringPool());
+        }
+
+        /**
+         * @param strings pool to share with other graphs.
+         */
+        public Builder(StringPool strings) {
+            this.strings = strings;
+        }
+
+        public int addNode(String groupId, String artifactId, String version, String classifier, String extension,
+                           String scope, boolean optional) {
+            if (nodeCount == flags.length) {
+                flags = Arrays.copyOf(flags, nodeCount * 2);
+                fields = Arrays.copyOf(fields, nodeCount * 2 * FIELD_COUNT);
+            }
+            int node = nodeCount++;
+            Arrays.fill(fields, node * FIELD_COUNT, (node + 1) * FIELD_COUNT, StringPool.NULL_ID);
+            setField(node, GROUP_ID, groupId);
+            setField(node, ARTIFACT_ID, artifactId);
+            setField(node, VERSION, version);
+            setField(node, CLASSIFIER, classifier);
+            setField(node, EXTENSION, extension);
+            setField(node, SCOPE, scope);
+            flags[node] = optional ? (byte) FLAG_OPTIONAL : 0;
+            return node;
+        }
+
+        public void setField(int node, int field, String value) {
+            fields[node * FIELD_COUNT + field] = strings.add(value);
+        }
+
+        public void setFile(int node, String path, String filename) {
+            setField(node, FILE, path);
+            setField(node, FILENAME, filename);
+        }
+
+        public void addExclusion(int node, String groupId, String artifactId) {
+            exclusions.add(node);
+            exclusions.add(strings.add(groupId));
+            exclusions.add(strings.add(artifactId));
+        }
+
+        public void addChild(int parent, int child) {
+            edges.add(parent);
+            edges.add(child);
+        }
+
+        public void addRoot(int node) {
+            roots.add(node);
+        }
+
+        public CompactDependencyGraph build() {
+            return new CompactDependencyGraph(this);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[32];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private final class RootNodeView implements AetherDependencyNode {
+
+        @Override
+        public List<AetherDependencyNode> getChildren() {
+            List<AetherDependencyNode> nodes = new ArrayList<AetherDependencyNode>(roots.length);
+            for (int root : roots) {
+                nodes.add(viewOf(root));
+            }
+            return nodes;
+        }
+
+        @Override
+        public AetherDependency getDependency() {
+            return null;
+        }
+    }
+
+    private final class NodeView implements AetherDependencyNode, AetherDependency, AetherArtifact {
+
+        private final int node;
+
+        NodeView(int node) {
+            this.node = node;
+        }
+
+        @Override
+        public List<AetherDependencyNode> getChildren() {
+            int childCount = getChildCount(node);
+            List<AetherDependencyNode> nodes = new ArrayList<AetherDependencyNode>(childCount);
+            for (int i = 0; i < childCount; i++) {
+                nodes.add(viewOf(getChild(node, i)));
+            }
+            return nodes;
+        }
+
+        @Override
+        public AetherDependency getDependency() {
+            return this;
+        }
+
+        @Override
+        public String getScope() {
+            return getField(node, SCOPE);
+        }
+
+        @Override
+        public AetherArtifact getArtifact() {
+            return this;
+        }
+
+        @Override
+        public boolean isOptional() {
+            return CompactDependencyGraph.this.isOptional(node);
+        }
+
+        @Override
+        public Collection<AetherExclusion> getExclusions() {
+            int exclusionCount = getExclusionCount(node);
+            List<AetherExclusion> result = new ArrayList<AetherExclusion>(exclusionCount);
+            for (int i = 0; i < exclusionCount; i++) {
+                final String groupId = getExclusionGroupId(node, i);
+                final String artifactId = getExclusionArtifactId(node, i);
+                result.add(new AetherExclusion() {
+                    @Override
+                    public String getArtifactId() {
+                        return artifactId;
+                    }
+
+                    @Override
+                    public String getGroupId() {
+                        return groupId;
+                    }
+                });
+            }
+            return result;
+        }
+
+        @Override
+        public String getGroupId() {
+            return getField(node, GROUP_ID);
+        }
+
+        @Override
+        public String getArtifactId() {
+            return getField(node, ARTIFACT_ID);
+        }
+
+        @Override
+        public String getVersion() {
+            return getField(node, VERSION);
+        }
+
+        @Override
+        public String getClassifier() {
+            return getField(node, CLASSIFIER);
+        }
+
+        @Override
+        public String getExtension() {
+            return getField(node, EXTENSION);
+        }
+
+        @Override
+        public String getProperty(String key, String defaultValue) {
+            return defaultValue;
+        }
+
+        @Override
+        public File getFile() {
+            String path = getField(node, FILE);
+            return path == null ? null : new File(path);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.whitesource.maven.utils.dependencies.compact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of distinct strings, each identified by a dense int id.
+ * The id {@link #NULL_ID} stands for {@code null}.
+ */
+public class StringPool {
+
+    /* --- Static members --- */
+
+    public static final int NULL_ID = -1;
+
+    /* --- Private Members --- */
+
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+
+    /* --- Public methods --- */
+
+    /**
+     * @param value the string to add, may be null.
+     * @return the id of the pooled string.
+     */
+    public int add(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param id the id of a pooled string, or {@link #NULL_ID}.
+     * @return the pooled string, or null.
+     */
+    public String get(int id) {
+        return id == NULL_ID ? null : strings.get(id);
+    }
+
+    public int size() {
+        return strings.size();
+    }
+}
@@ -3,8 +3,10 @@ package org.whitesource.maven.utils.dependencies.impl.eclipse;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.*;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.graph.DependencyNode;
 import org.whitesource.maven.utils.Invoker;
 import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.DependencyGraphFactory;
 
 /**
  * Author: Itai Marko
@@ -21,6 +23,17 @@ public class EclipseAetherDependencyGraphBuilder {
         this.session = session;
     }
 
+    /**
+     * @return The graph captured when maven resolved the project during the build, or null if none was captured.
+     */
+    public AetherDependencyNode getCapturedGraph() {
+        Object capturedGraph = project.getContextValue(DependencyGraphFactory.CAPTURED_DEPENDENCY_GRAPH_KEY);
+        if (capturedGraph instanceof DependencyNode) {
+            return new EclipseAetherDependencyNode((DependencyNode) capturedGraph);
+        }
+        return null;
+    }
+
     public AetherDependencyNode build() throws DependencyResolutionException {
         DependencyResolutionRequest request = new DefaultDependencyResolutionRequest();
         request.setMavenProject(project);
@@ -0,0 +1,106 @@
+package org.whitesource.maven.utils.dependencies.impl.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.handler.ArtifactHandler;
+import org.whitesource.maven.utils.dependencies.AetherArtifact;
+import org.whitesource.maven.utils.dependencies.AetherDependency;
+import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.AetherExclusion;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link AetherDependencyNode} backed by an artifact already resolved by maven for the project.
+ * A node without an artifact stands for the project itself.
+ */
+class MavenArtifactDependencyNode implements AetherDependencyNode, AetherDependency, AetherArtifact {
+
+    private final Artifact delegate;
+    private final Collection<AetherExclusion> exclusions;
+    private final List<AetherDependencyNode> children = new ArrayList<AetherDependencyNode>();
+
+    MavenArtifactDependencyNode() {
+        this(null, Collections.<AetherExclusion>emptyList());
+    }
+
+    MavenArtifactDependencyNode(Artifact artifact, Collection<AetherExclusion> exclusions) {
+        this.delegate = artifact;
+        this.exclusions = exclusions;
+    }
+
+    /* --- AetherDependencyNode implementation --- */
+
+    @Override
+    public List<AetherDependencyNode> getChildren() {
+        return children;
+    }
+
+    @Override
+    public AetherDependency getDependency() {
+        return delegate == null ? null : this;
+    }
+
+    /* --- AetherDependency implementation --- */
+
+    @Override
+    public String getScope() {
+        return delegate.getScope();
+    }
+
+    @Override
+    public AetherArtifact getArtifact() {
+        return this;
+    }
+
+    @Override
+    public boolean isOptional() {
+        return delegate.isOptional();
+    }
+
+    @Override
+    public Collection<AetherExclusion> getExclusions() {
+        return exclusions;
+    }
+
+    /* --- AetherArtifact implementation --- */
+
+    @Override
+    public String getGroupId() {
+        return delegate.getGroupId();
+    }
+
+    @Override
+    public String getArtifactId() {
+        return delegate.getArtifactId();
+    }
+
+    @Override
+    public String getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public String getClassifier() {
+        return delegate.getClassifier();
+    }
+
+    @Override
+    public String getExtension() {
+        ArtifactHandler artifactHandler = delegate.getArtifactHandler();
+        return artifactHandler == null ? delegate.getType() : artifactHandler.getExtension();
+    }
+
+    @Override
+    public String getProperty(String key, String defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    public File getFile() {
+        return delegate.getFile();
+    }
+}
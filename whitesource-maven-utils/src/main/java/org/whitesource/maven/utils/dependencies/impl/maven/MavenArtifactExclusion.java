@@ -0,0 +1,26 @@
+package org.whitesource.maven.utils.dependencies.impl.maven;
+
+import org.apache.maven.model.Exclusion;
+import org.whitesource.maven.utils.dependencies.AetherExclusion;
+
+/**
+ * {@link AetherExclusion} backed by an exclusion declared in the project model.
+ */
+class MavenArtifactExclusion implements AetherExclusion {
+
+    private final Exclusion delegate;
+
+    MavenArtifactExclusion(Exclusion delegateExclusion) {
+        this.delegate = delegateExclusion;
+    }
+
+    @Override
+    public String getArtifactId() {
+        return delegate.getArtifactId();
+    }
+
+    @Override
+    public String getGroupId() {
+        return delegate.getGroupId();
+    }
+}
@@ -0,0 +1,94 @@
+package org.whitesource.maven.utils.dependencies.impl.maven;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.AetherExclusion;
+
+import java.util.*;
+
+/**
+ * Rebuilds the dependency graph of a project from the artifacts maven already resolved for it
+ * ({@link MavenProject#getArtifacts()}), following the dependency trail of each artifact, without resolving again.
+ * <p>
+ * Exclusions are only known for the direct dependencies, which are declared in the project model.
+ */
+public class ResolvedArtifactsDependencyGraphBuilder {
+
+    private static final char KEY_SEPARATOR = ':';
+
+    private final MavenProject project;
+
+    public ResolvedArtifactsDependencyGraphBuilder(MavenProject project) {
+        this.project = project;
+    }
+
+    /**
+     * @return The root node of the graph, or null if the resolved artifacts can't be used to rebuild it
+     * (dependencies were not resolved for the project, or trails are missing or incomplete).
+     */
+    public AetherDependencyNode build() {
+        Set<Artifact> artifacts = project.getArtifacts();
+        if (artifacts.isEmpty() && !project.getDependencies().isEmpty()) {
+            return null;
+        }
+
+        Map<String, List<Exclusion>> declaredExclusions = new HashMap<String, List<Exclusion>>();
+        for (Dependency dependency : project.getDependencies()) {
+            declaredExclusions.put(getKey(dependency.getGroupId(), dependency.getArtifactId(), dependency.getType(),
+                    dependency.getClassifier()), dependency.getExclusions());
+        }
+
+        MavenArtifactDependencyNode rootNode = new MavenArtifactDependencyNode();
+        Map<String, MavenArtifactDependencyNode> nodes = new HashMap<String, MavenArtifactDependencyNode>();
+        // artifacts are ordered as a pre-order walk of the resolved graph, parents come before their children
+        for (Artifact artifact : artifacts) {
+            List<String> trail = artifact.getDependencyTrail();
+            if (trail == null || trail.size() < 2) {
+                return null;
+            }
+
+            MavenArtifactDependencyNode parent;
+            Collection<AetherExclusion> exclusions = Collections.emptyList();
+            if (trail.size() == 2) {
+                parent = rootNode;
+                exclusions = toExclusions(declaredExclusions.get(getKey(artifact.getGroupId(),
+                        artifact.getArtifactId(), artifact.getType(), artifact.getClassifier())));
+            } else {
+                parent = nodes.get(trail.get(trail.size() - 2));
+                if (parent == null) {
+                    return null;
+                }
+            }
+
+            MavenArtifactDependencyNode node = new MavenArtifactDependencyNode(artifact, exclusions);
+            parent.getChildren().add(node);
+            nodes.put(artifact.getId(), node);
+        }
+        return rootNode;
+    }
+
+    private Collection<AetherExclusion> toExclusions(List<Exclusion> exclusions) {
+        if (exclusions == null || exclusions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collection<AetherExclusion> result = new ArrayList<AetherExclusion>(exclusions.size());
+        for (Exclusion exclusion : exclusions) {
+            result.add(new MavenArtifactExclusion(exclusion));
+        }
+        return result;
+    }
+
+    private String getKey(String groupId, String artifactId, String type, String classifier) {
+        StringBuilder key = new StringBuilder()
+                .append(groupId).append(KEY_SEPARATOR)
+                .append(artifactId).append(KEY_SEPARATOR)
+                .append(type);
+        if (classifier != null && classifier.length() > 0) {
+            key.append(KEY_SEPARATOR).append(classifier);
+        }
+        return key.toString();
+    }
+}
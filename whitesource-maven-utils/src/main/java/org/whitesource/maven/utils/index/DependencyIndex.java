@@ -0,0 +1,356 @@
+package org.whitesource.maven.utils.index;
+
+import org.whitesource.maven.utils.checksum.Sha1;
+import org.whitesource.maven.utils.concurrent.CrossProcessLock;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent index of the dependencies of the scanned modules, answering which modules use an artifact without
+ * resolving anything.
+ * <p>
+ * Each module has a forward file listing its dependencies, with their SHA-1, scope and path in the dependency tree. The
+ * inverted index maps each artifact key (groupId:artifactId, groupId:artifactId:version and SHA-1) to the modules using
+ * it. It is split in 256 shards by the hash of the key, so a query reads a single shard and an update only rewrites the
+ * shards of the keys added or removed since the module was last indexed.
+ * <p>
+ * Files are replaced atomically and updates are serialized with a {@link CrossProcessLock}, so concurrent builds may
+ * share the index. Shards are updated before the forward file and queries check the forward files, so an interrupted
+ * update leaves no module out, only stale postings which queries ignore. Thread safe.
+ */
+public class DependencyIndex {
+
+    /* --- Static members --- */
+
+    private static final String INDEX_DIRECTORY = "index";
+    private static final String MODULES_DIRECTORY = "modules";
+    private static final String KEYS_DIRECTORY = "keys";
+    private static final String LOCK_FILE = ".lock";
+    private static final String EXTENSION = ".txt";
+    private static final String ENCODING = "UTF-8";
+    private static final String SEPARATOR = "\t";
+    private static final long LOCK_MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /* --- Private Members --- */
+
+    private final File directory;
+    private final CrossProcessLock lock;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param cacheDirectory the root directory of the plugin caches.
+     */
+    public DependencyIndex(File cacheDirectory) {
+        this.directory = new File(cacheDirectory, INDEX_DIRECTORY);
+        this.lock = new CrossProcessLock(new File(directory, LOCK_FILE), LOCK_MAX_WAIT_MILLIS);
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * Replaces the dependencies indexed for the module.
+     *
+     * @param product       the product of the module.
+     * @param module        the module, groupId:artifactId.
+     * @param moduleVersion the version of the module.
+     * @param entries       the dependencies of the module.
+     * @return The number of keys added to or removed from the inverted index.
+     */
+    public synchronized int update(String product, String module, String moduleVersion, List<Entry> entries) throws IOException {
+        String moduleId = Sha1.calculate(product + "\n" + module);
+        CrossProcessLock.Lock moduleLock = lock.acquire(moduleId);
+        try {
+            File moduleFile = getModuleFile(moduleId);
+            Set<String> oldKeys = new HashSet<String>();
+            for (Entry entry : readModule(moduleFile).entries) {
+                oldKeys.addAll(entry.getKeys());
+            }
+            Set<String> newKeys = new HashSet<String>();
+            for (Entry entry : entries) {
+                newKeys.addAll(entry.getKeys());
+            }
+
+            // postings to add and to remove, by shard
+            Map<String, Map<String, Boolean>> changes = new TreeMap<String, Map<String, Boolean>>();
+            for (String key : newKeys) {
+                if (!oldKeys.contains(key)) {
+                    addChange(changes, key, true);
+                }
+            }
+            for (String key : oldKeys) {
+                if (!newKeys.contains(key)) {
+                    addChange(changes, key, false);
+                }
+            }
+            int changed = 0;
+            for (Map.Entry<String, Map<String, Boolean>> shardChanges : changes.entrySet()) {
+                updateShard(shardChanges.getKey(), moduleId, shardChanges.getValue());
+                changed += shardChanges.getValue().size();
+            }
+
+            List<String> lines = new ArrayList<String>();
+            lines.add(product + SEPARATOR + module + SEPARATOR + moduleVersion + SEPARATOR + System.currentTimeMillis());
+            for (Entry entry : entries) {
+                lines.add(entry.toLine());
+            }
+            writeLines(moduleFile, lines);
+            return changed;
+        } finally {
+            if (moduleLock != null) {
+                moduleLock.release();
+            }
+        }
+    }
+
+    /**
+     * @param query groupId:artifactId, groupId:artifactId:version or SHA-1.
+     * @return The dependencies matching the query, in all the indexed modules.
+     */
+    public List<Match> find(String query) throws IOException {
+        query = query.trim();
+        if (Sha1.isSha1(query.toLowerCase())) {
+            query = query.toLowerCase();
+        }
+        List<Match> matches = new ArrayList<Match>();
+        Set<String> moduleIds = new TreeSet<String>();
+        String prefix = query + SEPARATOR;
+        for (String line : readLines(getShardFile(query))) {
+            if (line.startsWith(prefix)) {
+                moduleIds.add(line.substring(prefix.length()));
+            }
+        }
+        for (String moduleId : moduleIds) {
+            Module module = readModule(getModuleFile(moduleId));
+            for (Entry entry : module.entries) {
+                if (entry.getKeys().contains(query)) {
+                    matches.add(new Match(module.product, module.name, module.version, entry));
+                }
+            }
+        }
+        return matches;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /* --- Private methods --- */
+
+    private void addChange(Map<String, Map<String, Boolean>> changes, String key, boolean added) {
+        String shard = getShard(key);
+        Map<String, Boolean> shardChanges = changes.get(shard);
+        if (shardChanges == null) {
+            shardChanges = new HashMap<String, Boolean>();
+            changes.put(shard, shardChanges);
+        }
+        shardChanges.put(key, added);
+    }
+
+    private void updateShard(String shard, String moduleId, Map<String, Boolean> changes) throws IOException {
+        File shardFile = new File(new File(directory, KEYS_DIRECTORY), shard + EXTENSION);
+        CrossProcessLock.Lock shardLock = lock.acquire(shard);
+        try {
+            Set<String> postings = new TreeSet<String>(readLines(shardFile));
+            for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+                String posting = change.getKey() + SEPARATOR + moduleId;
+                if (change.getValue()) {
+                    postings.add(posting);
+                } else {
+                    postings.remove(posting);
+                }
+            }
+            writeLines(shardFile, new ArrayList<String>(postings));
+        } finally {
+            if (shardLock != null) {
+                shardLock.release();
+            }
+        }
+    }
+
+    private static String getShard(String key) {
+        return Sha1.calculate(key).substring(0, 2);
+    }
+
+    private File getShardFile(String key) {
+        return new File(new File(directory, KEYS_DIRECTORY), getShard(key) + EXTENSION);
+    }
+
+    private File getModuleFile(String moduleId) {
+        return new File(new File(directory, MODULES_DIRECTORY), moduleId + EXTENSION);
+    }
+
+    private static Module readModule(File moduleFile) throws IOException {
+        Module module = new Module();
+        Iterator<String> lines = readLines(moduleFile).iterator();
+        if (lines.hasNext()) {
+            String[] header = lines.next().split(SEPARATOR, -1);
+            if (header.length >= 3) {
+                module.product = header[0];
+                module.name = header[1];
+                module.version = header[2];
+            }
+        }
+        while (lines.hasNext()) {
+            Entry entry = Entry.fromLine(lines.next());
+            if (entry != null) {
+                module.entries.add(entry);
+            }
+        }
+        return module;
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        if (!file.isFile()) {
+            return lines;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 0) {
+                    lines.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static void writeLines(File file, List<String> lines) throws IOException {
+        File fileDirectory = file.getParentFile();
+        if (!fileDirectory.isDirectory() && !fileDirectory.mkdirs()) {
+            throw new IOException("Can't create the directory " + fileDirectory);
+        }
+        File tempFile = File.createTempFile(file.getName(), ".tmp", fileDirectory);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING));
+            try {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+            if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+                throw new IOException("Can't replace " + file);
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * A dependency of a module.
+     */
+    public static final class Entry {
+
+        private final String coordinates;
+        private final String sha1;
+        private final String scope;
+        private final String path;
+
+        /**
+         * @param coordinates groupId:artifactId:version.
+         * @param sha1        the SHA-1 of the artifact, or null.
+         * @param scope       the scope of the dependency, or null.
+         * @param path        the path of the dependency in the dependency tree of the module.
+         */
+        public Entry(String coordinates, String sha1, String scope, String path) {
+            this.coordinates = coordinates;
+            this.sha1 = sha1 == null ? "" : sha1.toLowerCase();
+            this.scope = scope == null ? "" : scope;
+            this.path = path;
+        }
+
+        public String getCoordinates() {
+            return coordinates;
+        }
+
+        public String getSha1() {
+            return sha1.length() == 0 ? null : sha1;
+        }
+
+        public String getScope() {
+            return scope.length() == 0 ? null : scope;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return The keys the dependency is found by.
+         */
+        Set<String> getKeys() {
+            Set<String> keys = new HashSet<String>();
+            keys.add(coordinates);
+            int lastColon = coordinates.lastIndexOf(':');
+            if (lastColon > 0 && coordinates.indexOf(':') < lastColon) {
+                keys.add(coordinates.substring(0, lastColon));
+            }
+            if (sha1.length() > 0) {
+                keys.add(sha1);
+            }
+            return keys;
+        }
+
+        String toLine() {
+            return coordinates + SEPARATOR + sha1 + SEPARATOR + scope + SEPARATOR + path;
+        }
+
+        static Entry fromLine(String line) {
+            String[] fields = line.split(SEPARATOR, -1);
+            return fields.length == 4 ? new Entry(fields[0], fields[1], fields[2], fields[3]) : null;
+        }
+    }
+
+    /**
+     * A dependency found in a module.
+     */
+    public static final class Match {
+
+        private final String product;
+        private final String module;
+        private final String moduleVersion;
+        private final Entry entry;
+
+        Match(String product, String module, String moduleVersion, Entry entry) {
+            this.product = product;
+            this.module = module;
+            this.moduleVersion = moduleVersion;
+            this.entry = entry;
+        }
+
+        public String getProduct() {
+            return product;
+        }
+
+        public String getModule() {
+            return module;
+        }
+
+        public String getModuleVersion() {
+            return moduleVersion;
+        }
+
+        public Entry getEntry() {
+            return entry;
+        }
+    }
+
+    private static final class Module {
+
+        private String product = "";
+        private String name = "";
+        private String version = "";
+        private final List<Entry> entries = new ArrayList<Entry>();
+    }
+}
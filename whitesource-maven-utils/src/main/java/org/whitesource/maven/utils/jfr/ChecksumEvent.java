@@ -0,0 +1,27 @@
+package org.whitesource.maven.utils.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * SHA-1 of a file, looked up or calculated.
+ */
+@Name("org.whitesource.Checksum")
+@Label("Checksum")
+@Category("WhiteSource")
+@StackTrace(false)
+class ChecksumEvent extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Source")
+    @Description("Where the checksum came from, NONE if it wasn't available without reading the file")
+    String source;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+}
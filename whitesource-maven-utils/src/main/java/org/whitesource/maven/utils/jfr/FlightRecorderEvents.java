@@ -0,0 +1,160 @@
+package org.whitesource.maven.utils.jfr;
+
+/**
+ * Emits the plugin's Java Flight Recorder events.
+ * <p>
+ * Each {@code begin} method returns a handle to pass to the matching {@code end} method, or null when the event is not
+ * recorded: JFR is missing (JDK 8 before update 262) or the event is disabled. The event classes are only loaded when
+ * JFR is present, so the plugin still runs without it, and disabled events cost no more than the enabled check.
+ */
+public final class FlightRecorderEvents {
+
+    /* --- Static members --- */
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    /* --- Static methods --- */
+
+    public static Object beginModuleResolution() {
+        return AVAILABLE ? Recorder.beginModuleResolution() : null;
+    }
+
+    public static void endModuleResolution(Object handle, String module, int nodes) {
+        if (handle != null) {
+            Recorder.endModuleResolution(handle, module, nodes);
+        }
+    }
+
+    public static Object beginChecksum() {
+        return AVAILABLE ? Recorder.beginChecksum() : null;
+    }
+
+    /**
+     * @param source   where the checksum came from, null if it wasn't available.
+     * @param cacheHit whether the checksum came from one of the caches.
+     */
+    public static void endChecksum(Object handle, String file, long bytes, String source, boolean cacheHit) {
+        if (handle != null) {
+            Recorder.endChecksum(handle, file, bytes, source, cacheHit);
+        }
+    }
+
+    public static Object beginReport() {
+        return AVAILABLE ? Recorder.beginReport() : null;
+    }
+
+    public static void endReport(Object handle, String outputDirectory) {
+        if (handle != null) {
+            Recorder.endReport(handle, outputDirectory);
+        }
+    }
+
+    public static Object beginServiceCall() {
+        return AVAILABLE ? Recorder.beginServiceCall() : null;
+    }
+
+    public static void endServiceCall(Object handle, String operation, int projects, int dependencies, int attempt,
+                                      boolean succeeded, long queueWaitMillis) {
+        if (handle != null) {
+            Recorder.endServiceCall(handle, operation, projects, dependencies, attempt, succeeded, queueWaitMillis);
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * Links against jdk.jfr, only loaded when it is available. The events are only referenced from here, so the
+     * verification of the outer class doesn't load them.
+     */
+    private static final class Recorder {
+
+        static Object beginModuleResolution() {
+            return begin(new ModuleResolutionEvent());
+        }
+
+        static Object beginChecksum() {
+            return begin(new ChecksumEvent());
+        }
+
+        static Object beginReport() {
+            return begin(new ReportEvent());
+        }
+
+        static Object beginServiceCall() {
+            return begin(new ServiceCallEvent());
+        }
+
+        private static Object begin(jdk.jfr.Event event) {
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        static void endModuleResolution(Object handle, String module, int nodes) {
+            ModuleResolutionEvent event = (ModuleResolutionEvent) handle;
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = module;
+                event.nodes = nodes;
+                event.commit();
+            }
+        }
+
+        static void endChecksum(Object handle, String file, long bytes, String source, boolean cacheHit) {
+            ChecksumEvent event = (ChecksumEvent) handle;
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = file;
+                event.bytes = bytes;
+                event.source = source == null ? "NONE" : source;
+                event.cacheHit = cacheHit;
+                event.commit();
+            }
+        }
+
+        static void endReport(Object handle, String outputDirectory) {
+            ReportEvent event = (ReportEvent) handle;
+            event.end();
+            if (event.shouldCommit()) {
+                event.outputDirectory = outputDirectory;
+                event.commit();
+            }
+        }
+
+        static void endServiceCall(Object handle, String operation, int projects, int dependencies, int attempt,
+                                   boolean succeeded, long queueWaitMillis) {
+            ServiceCallEvent event = (ServiceCallEvent) handle;
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.projects = projects;
+                event.dependencies = dependencies;
+                event.attempt = attempt;
+                event.succeeded = succeeded;
+                event.queueWait = queueWaitMillis;
+                event.commit();
+            }
+        }
+    }
+
+    /* --- Constructors --- */
+
+    private FlightRecorderEvents() {
+        // avoid instantiation
+    }
+}
@@ -0,0 +1,19 @@
+package org.whitesource.maven.utils.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Resolution of the dependency graph of a module.
+ */
+@Name("org.whitesource.ModuleResolution")
+@Label("Module Dependency Resolution")
+@Category("WhiteSource")
+@StackTrace(false)
+class ModuleResolutionEvent extends Event {
+
+    @Label("Module")
+    String module;
+
+    @Label("Dependency Nodes")
+    int nodes;
+}
@@ -0,0 +1,16 @@
+package org.whitesource.maven.utils.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Generation of a policy check report.
+ */
+@Name("org.whitesource.Report")
+@Label("Report Generation")
+@Category("WhiteSource")
+@StackTrace(false)
+class ReportEvent extends Event {
+
+    @Label("Output Directory")
+    String outputDirectory;
+}
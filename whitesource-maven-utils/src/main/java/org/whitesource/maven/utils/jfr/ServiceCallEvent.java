@@ -0,0 +1,34 @@
+package org.whitesource.maven.utils.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Request sent to WhiteSource.
+ */
+@Name("org.whitesource.ServiceCall")
+@Label("Service Call")
+@Category("WhiteSource")
+@StackTrace(false)
+class ServiceCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Projects")
+    int projects;
+
+    @Label("Dependencies")
+    @Description("Number of dependency nodes sent")
+    int dependencies;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Queue Wait")
+    @Description("Time waited for the host wide request limit")
+    @Timespan(Timespan.MILLISECONDS)
+    long queueWait;
+}
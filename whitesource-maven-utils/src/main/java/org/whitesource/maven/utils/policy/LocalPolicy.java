@@ -0,0 +1,153 @@
+package org.whitesource.maven.utils.policy;
+
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An organization policy evaluated locally: an action applied to the libraries matching all of its criteria.
+ * <p>
+ * The groupId, artifactId and license criteria may contain {@code *} wildcards, license criteria are case insensitive.
+ * The version criterion is a Maven version range (e.g. {@code [1.0,2.0)}), a plain version matches that version only.
+ * Criteria left null match any library.
+ */
+public class LocalPolicy {
+
+    /* --- Static members --- */
+
+    public static final String WILDCARD = "*";
+
+    /* --- Private Members --- */
+
+    private final String name;
+    private final String action;
+    private final String groupId;
+    private final String artifactId;
+    private final Pattern groupIdPattern;
+    private final Pattern artifactIdPattern;
+    private final VersionRange versionRange;
+    private final List<Pattern> licensePatterns;
+
+    /* --- Constructors --- */
+
+    /**
+     * @throws IllegalArgumentException if the version range is invalid.
+     */
+    public LocalPolicy(String name, String action, String groupId, String artifactId, String versionRange,
+                       Collection<String> licenses) {
+        this.name = name;
+        this.action = action;
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.groupIdPattern = toPattern(groupId, 0);
+        this.artifactIdPattern = toPattern(artifactId, 0);
+        this.versionRange = parseVersionRange(versionRange);
+        this.licensePatterns = new ArrayList<Pattern>();
+        if (licenses != null) {
+            for (String license : licenses) {
+                licensePatterns.add(toPattern(license, Pattern.CASE_INSENSITIVE));
+            }
+        }
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @param licenses the licenses of the library, the license criteria never match a library without licenses.
+     */
+    public boolean matches(String groupId, String artifactId, String version, Collection<String> licenses) {
+        return matches(groupIdPattern, groupId)
+                && matches(artifactIdPattern, artifactId)
+                && (versionRange == null || (version != null && versionRange.containsVersion(new DefaultArtifactVersion(version))))
+                && matchesLicenses(licenses);
+    }
+
+    /**
+     * @return Whether the groupId criterion matches a single groupId.
+     */
+    public boolean isExactGroupId() {
+        return groupId != null && !groupId.contains(WILDCARD);
+    }
+
+    /**
+     * @return Whether the artifactId criterion matches a single artifactId.
+     */
+    public boolean isExactArtifactId() {
+        return artifactId != null && !artifactId.contains(WILDCARD);
+    }
+
+    /* --- Private methods --- */
+
+    private boolean matchesLicenses(Collection<String> licenses) {
+        if (licensePatterns.isEmpty()) {
+            return true;
+        }
+        if (licenses != null) {
+            for (String license : licenses) {
+                for (Pattern licensePattern : licensePatterns) {
+                    if (license != null && licensePattern.matcher(license).matches()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Pattern pattern, String value) {
+        return pattern == null || (value != null && pattern.matcher(value).matches());
+    }
+
+    private static Pattern toPattern(String wildcard, int flags) {
+        if (wildcard == null) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        String[] parts = wildcard.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (parts[i].length() > 0) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        return Pattern.compile(regex.toString(), flags);
+    }
+
+    private static VersionRange parseVersionRange(String versionRange) {
+        if (versionRange == null) {
+            return null;
+        }
+        // a plain version matches that exact version only, as the range [version]
+        String spec = versionRange.startsWith("[") || versionRange.startsWith("(") ? versionRange : "[" + versionRange + "]";
+        try {
+            return VersionRange.createFromVersionSpec(spec);
+        } catch (InvalidVersionSpecificationException e) {
+            throw new IllegalArgumentException("Invalid version range " + versionRange + ": " + e.getMessage(), e);
+        }
+    }
+
+    /* --- Getters --- */
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+}
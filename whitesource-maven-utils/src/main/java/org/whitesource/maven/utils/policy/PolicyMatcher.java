@@ -0,0 +1,119 @@
+package org.whitesource.maven.utils.policy;
+
+import java.util.*;
+
+/**
+ * Finds the first of a prioritized list of {@link LocalPolicy policies} matching a library.
+ * <p>
+ * Policies are indexed by their exact groupId and artifactId criteria, so a library is only matched against the
+ * policies of its groupId and artifactId and the policies with wildcard (or no) coordinates, instead of all of them.
+ * Thread safe.
+ */
+public class PolicyMatcher {
+
+    /* --- Private Members --- */
+
+    private final List<LocalPolicy> policies;
+
+    /**
+     * Positions of the policies with an exact groupId and artifactId, by "groupId:artifactId".
+     */
+    private final Map<String, int[]> byCoordinates;
+
+    /**
+     * Positions of the policies with an exact groupId only, by groupId.
+     */
+    private final Map<String, int[]> byGroupId;
+
+    /**
+     * Positions of the other policies.
+     */
+    private final int[] unindexed;
+
+    /* --- Constructors --- */
+
+    /**
+     * @param policies the policies, in descending priority.
+     */
+    public PolicyMatcher(List<LocalPolicy> policies) {
+        this.policies = new ArrayList<LocalPolicy>(policies);
+        Map<String, List<Integer>> coordinates = new HashMap<String, List<Integer>>();
+        Map<String, List<Integer>> groupIds = new HashMap<String, List<Integer>>();
+        List<Integer> others = new ArrayList<Integer>();
+        for (int i = 0; i < this.policies.size(); i++) {
+            LocalPolicy policy = this.policies.get(i);
+            if (policy.isExactGroupId() && policy.isExactArtifactId()) {
+                add(coordinates, policy.getGroupId() + ':' + policy.getArtifactId(), i);
+            } else if (policy.isExactGroupId()) {
+                add(groupIds, policy.getGroupId(), i);
+            } else {
+                others.add(i);
+            }
+        }
+        this.byCoordinates = toArrays(coordinates);
+        this.byGroupId = toArrays(groupIds);
+        this.unindexed = toArray(others);
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The policy with the highest priority matching the library, or null if none does.
+     */
+    public LocalPolicy match(String groupId, String artifactId, String version, Collection<String> licenses) {
+        // each position list is ascending, the first match of each is a candidate
+        int first = firstMatch(byCoordinates.get(groupId + ':' + artifactId), policies.size(), groupId, artifactId, version, licenses);
+        first = firstMatch(byGroupId.get(groupId), first, groupId, artifactId, version, licenses);
+        first = firstMatch(unindexed, first, groupId, artifactId, version, licenses);
+        return first < policies.size() ? policies.get(first) : null;
+    }
+
+    public int size() {
+        return policies.size();
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @return The position of the first matching policy before the given position, or that position.
+     */
+    private int firstMatch(int[] positions, int before, String groupId, String artifactId, String version,
+                           Collection<String> licenses) {
+        if (positions != null) {
+            for (int position : positions) {
+                if (position >= before) {
+                    break;
+                }
+                if (policies.get(position).matches(groupId, artifactId, version, licenses)) {
+                    return position;
+                }
+            }
+        }
+        return before;
+    }
+
+    private static void add(Map<String, List<Integer>> index, String key, int position) {
+        List<Integer> positions = index.get(key);
+        if (positions == null) {
+            positions = new ArrayList<Integer>();
+            index.put(key, positions);
+        }
+        positions.add(position);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> index) {
+        Map<String, int[]> arrays = new HashMap<String, int[]>();
+        for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+            arrays.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        return arrays;
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        int[] array = new int[positions.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = positions.get(i);
+        }
+        return array;
+    }
+}
@@ -1,6 +1,9 @@
 package org.whitesource.maven.utils.proxy;
 
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.settings.Proxy;
+import org.whitesource.maven.utils.cache.SoftCache;
+import org.whitesource.maven.utils.checksum.Sha1;
 import org.whitesource.maven.utils.proxy.impl.EclipseAetherProxySettingsProvider;
 import org.whitesource.maven.utils.proxy.impl.SonatypeAetherProxySettingsProvider;
 
@@ -11,6 +14,9 @@ public class ProxySettingsProviderFactory {
 
     private final static boolean isEclipseAetherLoaded;
 
+    // resolved settings per url and proxy configuration, kept across builds in the same JVM (passwords as their hash)
+    private final static SoftCache<String, ProxySettingsHolder> proxySettingsCache = new SoftCache<String, ProxySettingsHolder>(16);
+
     static {
         isEclipseAetherLoaded = isExistsInClasspath("org.eclipse.aether.repository.Proxy");
     }
@@ -32,6 +38,42 @@ public class ProxySettingsProviderFactory {
         }
     }
 
+    /**
+     * Like {@link #getProxySettingsProviderForUrl(String, MavenSession)}, but reuses the settings resolved for the
+     * same url as long as the proxies configured in the maven settings are unchanged.
+     *
+     * @return the proxy settings for the url, or null if no proxy is configured for it.
+     */
+    public static ProxySettings getProxySettingsForUrl(String url, MavenSession session) {
+        StringBuilder key = new StringBuilder(url);
+        if (session.getSettings() != null) {
+            for (Proxy proxy : session.getSettings().getProxies()) {
+                String password = proxy.getPassword();
+                key.append('|').append(proxy.getId()).append(',').append(proxy.isActive())
+                        .append(',').append(proxy.getProtocol()).append(',').append(proxy.getHost())
+                        .append(',').append(proxy.getPort()).append(',').append(proxy.getNonProxyHosts())
+                        .append(',').append(proxy.getUsername()).append(',').append(password == null ? null : Sha1.calculate(password));
+            }
+        }
+
+        ProxySettingsHolder holder = proxySettingsCache.get(key.toString());
+        if (holder == null) {
+            ProxySettingsProvider provider = getProxySettingsProviderForUrl(url, session);
+            holder = new ProxySettingsHolder(provider.isProxyConfigured() ? provider.getProxySettings() : null);
+            proxySettingsCache.put(key.toString(), holder);
+        }
+        return holder.proxySettings;
+    }
+
+    private static final class ProxySettingsHolder {
+
+        private final ProxySettings proxySettings;
+
+        ProxySettingsHolder(ProxySettings proxySettings) {
+            this.proxySettings = proxySettings;
+        }
+    }
+
     // prevent instantiation
     private ProxySettingsProviderFactory() {}
 }
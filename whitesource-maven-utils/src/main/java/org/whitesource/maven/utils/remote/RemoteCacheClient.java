@@ -0,0 +1,205 @@
+package org.whitesource.maven.utils.remote;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client of a cache shared by several hosts over HTTP, e.g. by the agents of a CI farm. See {@link RemoteCacheServer}
+ * for the protocol.
+ * <p>
+ * The cache is best effort: after the first failed request the client stops sending requests, so an unreachable
+ * server costs a single timeout per build. Thread safe.
+ */
+public class RemoteCacheClient {
+
+    /* --- Static members --- */
+
+    private static final String ENCODING = "UTF-8";
+
+    /* --- Private Members --- */
+
+    private final String baseUrl;
+    private final int timeoutMillis;
+    private final boolean upload;
+
+    private volatile boolean available = true;
+    private volatile String failure;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger uploads = new AtomicInteger();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param baseUrl       the URL of the server, e.g. {@code http://cache:8080/}.
+     * @param timeoutMillis the connect and read timeout of each request.
+     * @param upload        whether to store entries in the cache, or only read them.
+     */
+    public RemoteCacheClient(String baseUrl, int timeoutMillis, boolean upload) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.timeoutMillis = timeoutMillis;
+        this.upload = upload;
+    }
+
+    /* --- Public methods --- */
+
+    /**
+     * @return The entry, or null if it isn't cached or the server isn't available.
+     */
+    public byte[] get(String namespace, String key) {
+        if (!available) {
+            return null;
+        }
+        try {
+            HttpURLConnection connection = open(namespace, key, "GET");
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                discardResponse(connection);
+                misses.incrementAndGet();
+                return null;
+            }
+            checkStatus(connection);
+            byte[] value = readFully(connection.getInputStream());
+            hits.incrementAndGet();
+            return value;
+        } catch (IOException e) {
+            disable(e);
+            return null;
+        }
+    }
+
+    /**
+     * Looks several text entries up with a single request.
+     *
+     * @return The cached entries, by key.
+     */
+    public Map<String, String> getAll(String namespace, Collection<String> keys) {
+        Map<String, String> values = new HashMap<String, String>();
+        if (!available || keys.isEmpty()) {
+            return values;
+        }
+        try {
+            HttpURLConnection connection = open(namespace, RemoteCacheServer.BATCH, "POST");
+            connection.setDoOutput(true);
+            Writer writer = new OutputStreamWriter(connection.getOutputStream(), ENCODING);
+            try {
+                for (String key : keys) {
+                    writer.write(key);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+            checkStatus(connection);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), ENCODING));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf(' ');
+                    if (separator > 0) {
+                        values.put(line.substring(0, separator), line.substring(separator + 1));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            disable(e);
+            return values;
+        }
+        hits.addAndGet(values.size());
+        misses.addAndGet(keys.size() - values.size());
+        return values;
+    }
+
+    /**
+     * Stores the entry, unless the client is read only. Failures are ignored, the cache is best effort.
+     */
+    public void put(String namespace, String key, byte[] value) {
+        if (!available || !upload) {
+            return;
+        }
+        try {
+            HttpURLConnection connection = open(namespace, key, "PUT");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(value.length);
+            OutputStream output = connection.getOutputStream();
+            try {
+                output.write(value);
+            } finally {
+                output.close();
+            }
+            checkStatus(connection);
+            discardResponse(connection);
+            uploads.incrementAndGet();
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    /**
+     * @return A one line summary of the requests.
+     */
+    public String getStatistics() {
+        return "hits: " + hits.get() + ", misses: " + misses.get() + ", uploads: " + uploads.get()
+                + (available ? "" : " (disabled: " + failure + ")");
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /* --- Private methods --- */
+
+    private HttpURLConnection open(String namespace, String key, String method) throws IOException {
+        URL url = new URL(baseUrl + URLEncoder.encode(namespace, ENCODING) + '/' + URLEncoder.encode(key, ENCODING));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    private static void checkStatus(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status < 200 || status >= 300) {
+            discardResponse(connection);
+            throw new IOException("HTTP status " + status);
+        }
+    }
+
+    /**
+     * Reads the rest of the response, so the connection is kept alive for the next request.
+     */
+    private static void discardResponse(HttpURLConnection connection) throws IOException {
+        InputStream input = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (input != null) {
+            readFully(input);
+        }
+    }
+
+    private void disable(IOException e) {
+        failure = e.getMessage();
+        available = false;
+    }
+
+    static byte[] readFully(InputStream input) throws IOException {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
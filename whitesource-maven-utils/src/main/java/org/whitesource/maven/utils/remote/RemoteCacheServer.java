@@ -0,0 +1,217 @@
+package org.whitesource.maven.utils.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.whitesource.maven.utils.checksum.Sha1;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal reference server of the {@link RemoteCacheClient} protocol, embeddable or run on its own:
+ * <pre>
+ * java -cp whitesource-maven-utils.jar org.whitesource.maven.utils.remote.RemoteCacheServer 8080 /var/cache/whitesource
+ * </pre>
+ * Entries are grouped in namespaces and addressed by {@code /<namespace>/<key>}, both URL encoded:
+ * <ul>
+ * <li>{@code GET} returns the entry, or 404 if there is none.</li>
+ * <li>{@code PUT} stores the request body as the entry.</li>
+ * <li>{@code POST /<namespace>/_batch} takes one key per line and returns a {@code <key> <value>} line for each key
+ * with a (single line, UTF-8) entry.</li>
+ * </ul>
+ * Entries are kept in memory, or in files under a directory if one is given. Entries are never evicted.
+ */
+public class RemoteCacheServer {
+
+    /* --- Static members --- */
+
+    static final String BATCH = "_batch";
+
+    private static final String ENCODING = "UTF-8";
+    private static final int MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+    private static final int THREADS = 16;
+
+    /* --- Private Members --- */
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final File directory;
+    private final ConcurrentMap<String, byte[]> entries = new ConcurrentHashMap<String, byte[]>();
+
+    /* --- Constructors --- */
+
+    /**
+     * @param port      the port to listen on, 0 for any free port.
+     * @param directory the directory to store the entries in, or null to keep them in memory.
+     */
+    public RemoteCacheServer(int port, File directory) throws IOException {
+        this.directory = directory;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    RemoteCacheServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    /* --- Public methods --- */
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: RemoteCacheServer <port> [directory]");
+            System.exit(1);
+        }
+        RemoteCacheServer server = new RemoteCacheServer(Integer.parseInt(args[0]), args.length > 1 ? new File(args[1]) : null);
+        server.start();
+        System.out.println("WhiteSource remote cache listening on port " + server.getPort());
+    }
+
+    /* --- Private methods --- */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // "/<namespace>/<key>"
+        String[] path = exchange.getRequestURI().getRawPath().split("/");
+        if (path.length != 3 || path[1].length() == 0 || path[2].length() == 0) {
+            sendStatus(exchange, 400);
+            return;
+        }
+        String namespace = URLDecoder.decode(path[1], ENCODING);
+        String key = URLDecoder.decode(path[2], ENCODING);
+        String method = exchange.getRequestMethod();
+
+        if ("POST".equals(method) && BATCH.equals(key)) {
+            handleBatch(exchange, namespace);
+        } else if ("GET".equals(method)) {
+            byte[] value = read(namespace, key);
+            if (value == null) {
+                sendStatus(exchange, 404);
+            } else {
+                exchange.sendResponseHeaders(200, value.length);
+                exchange.getResponseBody().write(value);
+            }
+        } else if ("PUT".equals(method)) {
+            byte[] value = readBody(exchange);
+            if (value == null) {
+                sendStatus(exchange, 413);
+            } else {
+                write(namespace, key, value);
+                sendStatus(exchange, 200);
+            }
+        } else {
+            sendStatus(exchange, 405);
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange, String namespace) throws IOException {
+        byte[] body = readBody(exchange);
+        if (body == null) {
+            sendStatus(exchange, 413);
+            return;
+        }
+        StringBuilder response = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), ENCODING));
+        String key;
+        while ((key = reader.readLine()) != null) {
+            byte[] value = key.length() == 0 ? null : read(namespace, key);
+            if (value != null) {
+                response.append(key).append(' ').append(new String(value, ENCODING).trim()).append('\n');
+            }
+        }
+        byte[] responseBytes = response.toString().getBytes(ENCODING);
+        exchange.sendResponseHeaders(200, responseBytes.length);
+        exchange.getResponseBody().write(responseBytes);
+    }
+
+    /**
+     * Sends a response without an entry. The response has a body, since the server closes the connection after a
+     * response without one, breaking the client's keep-alive connection.
+     */
+    private static void sendStatus(HttpExchange exchange, int status) throws IOException {
+        byte[] body = String.valueOf(status).getBytes(ENCODING);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * @return The request body, or null if it is too large.
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        InputStream input = exchange.getRequestBody();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+            if (output.size() > MAX_ENTRY_SIZE) {
+                return null;
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private byte[] read(String namespace, String key) throws IOException {
+        if (directory == null) {
+            return entries.get(namespace + '/' + key);
+        }
+        File entryFile = getEntryFile(namespace, key);
+        return entryFile.isFile() ? RemoteCacheClient.readFully(new FileInputStream(entryFile)) : null;
+    }
+
+    private void write(String namespace, String key, byte[] value) throws IOException {
+        if (directory == null) {
+            entries.put(namespace + '/' + key, value);
+            return;
+        }
+        File entryFile = getEntryFile(namespace, key);
+        File entryDirectory = entryFile.getParentFile();
+        if (!entryDirectory.isDirectory() && !entryDirectory.mkdirs()) {
+            throw new IOException("Can't create the directory " + entryDirectory);
+        }
+        File tempFile = File.createTempFile(entryFile.getName(), ".tmp", entryDirectory);
+        OutputStream output = new FileOutputStream(tempFile);
+        try {
+            output.write(value);
+        } finally {
+            output.close();
+        }
+        if (!tempFile.renameTo(entryFile)) {
+            // some platforms don't replace existing files
+            entryFile.delete();
+            if (!tempFile.renameTo(entryFile)) {
+                tempFile.delete();
+                throw new IOException("Can't write " + entryFile);
+            }
+        }
+    }
+
+    private File getEntryFile(String namespace, String key) {
+        String name = Sha1.calculate(key);
+        return new File(new File(new File(directory, Sha1.calculate(namespace).substring(0, 8)), name.substring(0, 2)), name);
+    }
+}
@@ -0,0 +1,203 @@
+package org.whitesource.maven.utils.archive;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.maven.utils.checksum.Sha1;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class NestedArchiveScannerTest {
+
+    /* --- Static members --- */
+
+    private static final List<String> CONTAINER_TYPES = Arrays.asList("war", "ear", "zip");
+
+    /* --- Private Members --- */
+
+    private File directory;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("archives", "");
+        assertTrue(directory.delete() && directory.mkdir());
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void findsLibrariesOfWar() throws IOException {
+        byte[] jar = bytes("a.jar");
+        File war = write("app.war", zip(
+                "WEB-INF/", null,
+                "WEB-INF/web.xml", bytes("web.xml"),
+                "WEB-INF/lib/a.jar", jar));
+
+        List<NestedArchiveEntry> entries = new NestedArchiveScanner(CONTAINER_TYPES).scan(war);
+
+        assertEquals(1, entries.size());
+        assertEquals("WEB-INF/lib/a.jar", entries.get(0).getPath());
+        assertEquals("a.jar", entries.get(0).getFilename());
+        assertEquals(Sha1.calculate(new ByteArrayInputStream(jar)), entries.get(0).getSha1());
+        assertTrue(entries.get(0).getChildren().isEmpty());
+    }
+
+    @Test
+    public void findsLibrariesOfWarInEar() throws IOException {
+        byte[] jar = bytes("a.jar");
+        byte[] war = zip("WEB-INF/lib/a.jar", jar);
+        File ear = write("app.ear", zip(
+                "lib/b.jar", bytes("b.jar"),
+                "web.war", war));
+
+        List<NestedArchiveEntry> entries = new NestedArchiveScanner(CONTAINER_TYPES).scan(ear);
+
+        assertEquals(2, entries.size());
+        NestedArchiveEntry warEntry = entries.get(1);
+        assertEquals("web.war", warEntry.getPath());
+        // the container is hashed as a whole while its entries are scanned
+        assertEquals(Sha1.calculate(new ByteArrayInputStream(war)), warEntry.getSha1());
+        assertEquals(1, warEntry.getChildren().size());
+        assertEquals(Sha1.calculate(new ByteArrayInputStream(jar)), warEntry.getChildren().get(0).getSha1());
+    }
+
+    @Test
+    public void findsLibrariesOfZip() throws IOException {
+        File zip = write("dist.zip", zip(
+                "readme.txt", bytes("readme"),
+                "lib/a.jar", bytes("a.jar"),
+                "lib/nested.zip", zip("b.jar", bytes("b.jar"))));
+
+        List<NestedArchiveEntry> entries = new NestedArchiveScanner(CONTAINER_TYPES).scan(zip);
+
+        assertEquals(Arrays.asList("lib/a.jar", "lib/nested.zip"), pathsOf(entries));
+        assertEquals(Arrays.asList("b.jar"), pathsOf(entries.get(1).getChildren()));
+    }
+
+    @Test
+    public void scansOnlyContainersOfGivenTypes() throws IOException {
+        byte[] nestedZip = zip("b.jar", bytes("b.jar"));
+        File war = write("app.war", zip(
+                "WEB-INF/lib/a.jar", bytes("a.jar"),
+                "WEB-INF/lib/c.war", zip("d.jar", bytes("d.jar")),
+                "resources/nested.zip", nestedZip));
+
+        List<NestedArchiveEntry> entries = new NestedArchiveScanner(Arrays.asList(" WAR ")).scan(war);
+
+        // the zip is neither a library nor a container of the given types
+        assertEquals(Arrays.asList("WEB-INF/lib/a.jar", "WEB-INF/lib/c.war"), pathsOf(entries));
+        assertEquals(Arrays.asList("d.jar"), pathsOf(entries.get(1).getChildren()));
+
+        entries = new NestedArchiveScanner(Collections.<String>emptyList()).scan(war);
+
+        assertEquals(Arrays.asList("WEB-INF/lib/a.jar"), pathsOf(entries));
+    }
+
+    @Test
+    public void stopsAtMaximalDepth() throws IOException {
+        byte[] fourth = zip("d.jar", bytes("d.jar"));
+        byte[] third = zip("fourth.zip", fourth);
+        byte[] second = zip("third.war", third);
+        File first = write("first.zip", zip("second.ear", second));
+
+        List<NestedArchiveEntry> entries = new NestedArchiveScanner(CONTAINER_TYPES).scan(first);
+
+        NestedArchiveEntry thirdEntry = entries.get(0).getChildren().get(0);
+        assertEquals("third.war", thirdEntry.getPath());
+        NestedArchiveEntry fourthEntry = thirdEntry.getChildren().get(0);
+        assertEquals("fourth.zip", fourthEntry.getPath());
+        assertEquals(Sha1.calculate(new ByteArrayInputStream(fourth)), fourthEntry.getSha1());
+        assertTrue(fourthEntry.getChildren().isEmpty());
+    }
+
+    @Test(expected = ZipException.class)
+    public void failsOnCorruptArchive() throws IOException {
+        new NestedArchiveScanner(CONTAINER_TYPES).scan(write("corrupt.war", bytes("not a zip file")));
+    }
+
+    @Test
+    public void hashesCorruptNestedArchive() throws IOException {
+        byte[] corrupt = bytes("not a zip file");
+        File ear = write("app.ear", zip("corrupt.war", corrupt, "lib/a.jar", bytes("a.jar")));
+
+        List<NestedArchiveEntry> entries = new NestedArchiveScanner(CONTAINER_TYPES).scan(ear);
+
+        assertEquals(Arrays.asList("corrupt.war", "lib/a.jar"), pathsOf(entries));
+        assertEquals(Sha1.calculate(new ByteArrayInputStream(corrupt)), entries.get(0).getSha1());
+        assertTrue(entries.get(0).getChildren().isEmpty());
+    }
+
+    @Test
+    public void leavesOutCorruptArchivesOfConcurrentScan() throws Exception {
+        File war = write("app.war", zip("WEB-INF/lib/a.jar", bytes("a.jar")));
+        File corrupt = write("corrupt.war", bytes("not a zip file"));
+        File missing = new File(directory, "missing.war");
+
+        Map<File, List<NestedArchiveEntry>> result = new NestedArchiveScanner(CONTAINER_TYPES)
+                .scan(Arrays.asList(war, corrupt, missing), 2);
+
+        assertEquals(Collections.singleton(war), result.keySet());
+        assertEquals(Arrays.asList("WEB-INF/lib/a.jar"), pathsOf(result.get(war)));
+    }
+
+    /* --- Private methods --- */
+
+    private static byte[] bytes(String value) throws UnsupportedEncodingException {
+        return value.getBytes("UTF-8");
+    }
+
+    /**
+     * @param entries pairs of entry name and content, a null content makes a directory entry.
+     */
+    private static byte[] zip(Object... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream zipOutputStream = new ZipOutputStream(bytes);
+        for (int i = 0; i < entries.length; i += 2) {
+            zipOutputStream.putNextEntry(new ZipEntry((String) entries[i]));
+            if (entries[i + 1] != null) {
+                zipOutputStream.write((byte[]) entries[i + 1]);
+            }
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.close();
+        return bytes.toByteArray();
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(directory, name);
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+
+    private static List<String> pathsOf(List<NestedArchiveEntry> entries) {
+        List<String> paths = new ArrayList<String>();
+        for (NestedArchiveEntry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,196 @@
+package org.whitesource.maven.utils.checksum;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whitesource.maven.utils.remote.RemoteCacheClient;
+import org.whitesource.maven.utils.remote.RemoteCacheServer;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ChecksumResolverTest {
+
+    /* --- Static members --- */
+
+    private static final String WRONG_SHA1 = "0123456789012345678901234567890123456789";
+
+    /* --- Private Members --- */
+
+    private File directory;
+    private RemoteCacheServer server;
+    private RemoteCacheClient remoteCache;
+    private PersistentChecksumCache cache;
+
+    /* --- Setup --- */
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("checksums", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        server = new RemoteCacheServer(0, null);
+        server.start();
+        remoteCache = new RemoteCacheClient("http://localhost:" + server.getPort(), 5000, true);
+        cache = new PersistentChecksumCache(new File(directory, "cache"));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        delete(directory);
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void doesNotPersistRemoteChecksums() throws IOException {
+        File file = write("lib-1.0.jar", "content");
+        String sha1 = Sha1.calculate(file);
+        remoteCache.put("sha1", "g:lib:1.0:" + file.length(), sha1.getBytes("UTF-8"));
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.TRUSTED, cache, 1, remoteCache, directory);
+
+        assertEquals(sha1, resolver.getSha1(file, "g:lib:1.0"));
+
+        assertEquals(1, resolver.getCount(ChecksumSource.REMOTE));
+        assertNull(cache.get(file));
+    }
+
+    @Test
+    public void verifiesSampleOfRemoteChecksums() throws IOException {
+        File file = write("lib-1.0.jar", "content");
+        String key = "g:lib:1.0:" + file.length();
+        remoteCache.put("sha1", key, WRONG_SHA1.getBytes("UTF-8"));
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.VERIFY_SAMPLE, cache, 1, remoteCache, directory);
+
+        assertEquals(Sha1.calculate(file), resolver.getSha1(file, "g:lib:1.0"));
+
+        assertEquals(1, resolver.getVerifiedCount());
+        assertEquals(1, resolver.getMismatchCount());
+        assertEquals(0, resolver.getCount(ChecksumSource.REMOTE));
+        // the wrong entry is replaced
+        assertEquals(Sha1.calculate(file), new String(remoteCache.get("sha1", key), "UTF-8"));
+    }
+
+    @Test
+    public void samplesRepositoryAndRemoteChecksumsTogether() throws IOException {
+        File repositoryFile = write("a-1.0.jar", "a");
+        write("a-1.0.jar.sha1", Sha1.calculate(repositoryFile));
+        File remoteFile = write("b-1.0.jar", "b");
+        remoteCache.put("sha1", "g:b:1.0:" + remoteFile.length(), Sha1.calculate(remoteFile).getBytes("UTF-8"));
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.VERIFY_SAMPLE, cache, 2, remoteCache, directory);
+
+        resolver.getSha1(repositoryFile, "g:a:1.0");
+        resolver.getSha1(remoteFile, "g:b:1.0");
+
+        assertEquals(1, resolver.getCount(ChecksumSource.REPOSITORY));
+        assertEquals(1, resolver.getVerifiedCount());
+        assertEquals(0, resolver.getMismatchCount());
+    }
+
+    @Test
+    public void trustsRemoteChecksumsWhenTrusted() throws IOException {
+        File file = write("lib-1.0.jar", "content");
+        remoteCache.put("sha1", "g:lib:1.0:" + file.length(), WRONG_SHA1.getBytes("UTF-8"));
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.TRUSTED, cache, 1, remoteCache, directory);
+
+        assertEquals(WRONG_SHA1, resolver.getSha1(file, "g:lib:1.0"));
+        assertEquals(0, resolver.getVerifiedCount());
+    }
+
+    @Test
+    public void ignoresRemoteChecksumsOutsideLocalRepository() throws IOException {
+        // e.g. the artifact of a reactor module, rebuilt with the same size
+        File file = write("lib-1.0.jar", "content");
+        String key = "g:lib:1.0:" + file.length();
+        remoteCache.put("sha1", key, WRONG_SHA1.getBytes("UTF-8"));
+        File localRepository = new File(directory, "repository");
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.TRUSTED, cache, 1, remoteCache, localRepository);
+
+        assertEquals(Sha1.calculate(file), resolver.getSha1(file, "g:lib:1.0"));
+
+        assertEquals(0, resolver.getCount(ChecksumSource.REMOTE));
+        assertEquals(1, resolver.getCount(ChecksumSource.COMPUTED));
+        // not uploaded either
+        assertEquals(WRONG_SHA1, new String(remoteCache.get("sha1", key), "UTF-8"));
+    }
+
+    @Test
+    public void uploadsChecksumsOfLocalRepository() throws IOException {
+        File file = write("lib-1.0.jar", "content");
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.TRUSTED, cache, 1, remoteCache, directory);
+
+        String sha1 = resolver.getSha1(file, "g:lib:1.0");
+
+        assertEquals(sha1, new String(remoteCache.get("sha1", "g:lib:1.0:" + file.length()), "UTF-8"));
+    }
+
+    @Test
+    public void calculatesHardLinksOnce() throws Exception {
+        File file = write("lib-1.0.jar", "content");
+        File link = new File(directory, "link.jar");
+        assumeTrue(createLink(link, file) && FileIdentity.getFileKey(file) != null);
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.TRUSTED, null, 1);
+
+        assertEquals(resolver.getSha1(file), resolver.getSha1(link));
+
+        assertEquals(1, resolver.getCount(ChecksumSource.COMPUTED));
+        assertEquals(1, resolver.getCount(ChecksumSource.SAME_FILE));
+    }
+
+    @Test
+    public void calculatesCopiesAgain() throws IOException {
+        // same size, same start and end, different content
+        File file = write("a.jar", "head-1-tail");
+        File copy = write("b.jar", "head-2-tail");
+        ChecksumResolver resolver = new ChecksumResolver(ChecksumPolicy.TRUSTED, null, 1);
+
+        assertFalse(resolver.getSha1(file).equals(resolver.getSha1(copy)));
+
+        assertEquals(2, resolver.getCount(ChecksumSource.COMPUTED));
+        assertEquals(0, resolver.getCount(ChecksumSource.SAME_FILE));
+    }
+
+    /* --- Private methods --- */
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+
+    /**
+     * Creates a hard link with Files.createLink, looked up reflectively since the plugin runs on Java 6.
+     *
+     * @return Whether the link was created.
+     */
+    private static boolean createLink(File link, File target) {
+        try {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Object linkPath = File.class.getMethod("toPath").invoke(link);
+            Object targetPath = File.class.getMethod("toPath").invoke(target);
+            Class.forName("java.nio.file.Files").getMethod("createLink", pathClass, pathClass)
+                    .invoke(null, linkPath, targetPath);
+            return true;
+        } catch (Exception e) {
+            // Java 6 or a file system without hard links
+            return false;
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
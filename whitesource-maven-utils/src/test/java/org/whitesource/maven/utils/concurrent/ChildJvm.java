@@ -0,0 +1,83 @@
+package org.whitesource.maven.utils.concurrent;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the main method of a test class in a JVM of its own, with the class path of the tests.
+ */
+final class ChildJvm {
+
+    /* --- Static members --- */
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /* --- Private Members --- */
+
+    private final Process process;
+    private final StringBuffer output = new StringBuffer();
+    private final Thread outputReader;
+
+    /* --- Constructors --- */
+
+    private ChildJvm(Process process) {
+        this.process = process;
+        this.outputReader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(ChildJvm.this.process.getInputStream(), "UTF-8"));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        output.append(line).append('\n');
+                    }
+                } catch (IOException e) {
+                    // the process was destroyed
+                }
+            }
+        });
+        outputReader.setDaemon(true);
+        outputReader.start();
+    }
+
+    /* --- Public methods --- */
+
+    static ChildJvm start(Class<?> mainClass, String... args) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+        return new ChildJvm(new ProcessBuilder(command).redirectErrorStream(true).start());
+    }
+
+    /**
+     * Waits for the process to exit.
+     *
+     * @return The output of the process, stdout and stderr.
+     * @throws IOException if the process failed or didn't exit in time.
+     */
+    String await() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                int exitCode = process.exitValue();
+                outputReader.join(TIMEOUT_MILLIS);
+                if (exitCode != 0) {
+                    throw new IOException("Exit code " + exitCode + ", output:\n" + output);
+                }
+                return output.toString();
+            } catch (IllegalThreadStateException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    process.destroy();
+                    throw new IOException("Timed out, output:\n" + output);
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.whitesource.maven.utils.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CrossProcessLockTest {
+
+    /* --- Static members --- */
+
+    private static final String[] KEYS = {"a", "b"};
+    private static final int PROCESSES = 3;
+    private static final int THREADS = 4;
+    private static final int ITERATIONS = 20;
+
+    /* --- Private Members --- */
+
+    private File directory;
+    private File lockFile;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("locks", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        lockFile = new File(directory, "test.lock");
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /* --- Tests --- */
+
+    /**
+     * Threads of several processes increment counters under the lock of their key, concurrent increments would be lost.
+     */
+    @Test
+    public void excludesThreadsAndProcesses() throws Exception {
+        List<ChildJvm> children = new ArrayList<ChildJvm>();
+        for (int i = 0; i < PROCESSES; i++) {
+            children.add(ChildJvm.start(Worker.class, "count", lockFile.getPath(), directory.getPath()));
+        }
+        Worker.count(lockFile, directory);
+        for (ChildJvm child : children) {
+            child.await();
+        }
+
+        for (String key : KEYS) {
+            assertEquals((PROCESSES + 1) * THREADS * ITERATIONS / KEYS.length, readCounter(directory, key));
+        }
+    }
+
+    /**
+     * Releasing a lock mustn't release the locks other threads hold on the same file, as closing a descriptor would.
+     */
+    @Test
+    public void keepsLocksOfOtherThreadsOnRelease() throws Exception {
+        final CrossProcessLock lock = new CrossProcessLock(lockFile, 1000);
+        final AtomicReference<CrossProcessLock.Lock> held = new AtomicReference<CrossProcessLock.Lock>();
+        Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    held.set(lock.acquire("a"));
+                } catch (InterruptedIOException e) {
+                    // fails the test
+                }
+            }
+        });
+        holder.start();
+        holder.join();
+        assertNotNull(held.get());
+
+        CrossProcessLock.Lock other = lock.acquire("b");
+        assertNotNull(other);
+        other.release();
+        assertEquals("busy", ChildJvm.start(Worker.class, "try", lockFile.getPath(), "a").await().trim());
+
+        held.get().release();
+        assertEquals("acquired", ChildJvm.start(Worker.class, "try", lockFile.getPath(), "a").await().trim());
+    }
+
+    @Test
+    public void excludesThreadsOfTheProcess() throws Exception {
+        CrossProcessLock lock = new CrossProcessLock(lockFile, 200);
+        // another instance on the same file, through another path
+        CrossProcessLock sameFile = new CrossProcessLock(new File(new File(directory, "missing"), "../test.lock"), 200);
+        CrossProcessLock.Lock held = lock.acquire("a");
+        assertNotNull(held);
+
+        assertNull(sameFile.acquire("a"));
+        CrossProcessLock.Lock other = sameFile.acquire("b");
+        assertNotNull(other);
+        other.release();
+
+        held.release();
+        // released once
+        held.release();
+        CrossProcessLock.Lock again = sameFile.acquire("a");
+        assertNotNull(again);
+        again.release();
+    }
+
+    /* --- Private methods --- */
+
+    private static int readCounter(File directory, String key) throws IOException {
+        File file = new File(directory, key + ".count");
+        if (!file.isFile()) {
+            return 0;
+        }
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            return input.readInt();
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void writeCounter(File directory, String key, int value) throws IOException {
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(new File(directory, key + ".count")));
+        try {
+            output.writeInt(value);
+        } finally {
+            output.close();
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * The work of a process: {@code count <lock file> <directory>} or {@code try <lock file> <key>}.
+     */
+    public static final class Worker {
+
+        public static void main(String[] args) throws Exception {
+            if ("count".equals(args[0])) {
+                count(new File(args[1]), new File(args[2]));
+            } else {
+                CrossProcessLock.Lock lock = new CrossProcessLock(new File(args[1]), 0).acquire(args[2]);
+                System.out.println(lock == null ? "busy" : "acquired");
+                if (lock != null) {
+                    lock.release();
+                }
+            }
+        }
+
+        static void count(final File lockFile, final File directory) throws Exception {
+            final CrossProcessLock lock = new CrossProcessLock(lockFile, 60000);
+            final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < THREADS; t++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < ITERATIONS; i++) {
+                                String key = KEYS[i % KEYS.length];
+                                CrossProcessLock.Lock held = lock.acquire(key);
+                                if (held == null) {
+                                    throw new IOException("Lock of " + key + " not acquired");
+                                }
+                                try {
+                                    int value = readCounter(directory, key);
+                                    Thread.sleep(2);
+                                    writeCounter(directory, key, value + 1);
+                                } finally {
+                                    held.release();
+                                }
+                            }
+                        } catch (Exception e) {
+                            failure.set(e);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+    }
+}
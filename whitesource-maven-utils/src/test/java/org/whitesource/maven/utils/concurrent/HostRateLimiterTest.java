@@ -0,0 +1,249 @@
+package org.whitesource.maven.utils.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class HostRateLimiterTest {
+
+    /* --- Static members --- */
+
+    private static final int PROCESSES = 2;
+    private static final int THREADS = 3;
+    private static final int REQUESTS = 4;
+    private static final int MAX_CONCURRENT = 2;
+    private static final int MAX_PER_MINUTE = 600;
+    private static final long MAX_WAIT_MILLIS = 60000;
+
+    /* --- Private Members --- */
+
+    private File directory;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("requests", "");
+        assertTrue(directory.delete() && directory.mkdir());
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /* --- Tests --- */
+
+    /**
+     * Threads of several processes record the requests in flight while holding a permit.
+     */
+    @Test
+    public void limitsConcurrentRequestsOfThreadsAndProcesses() throws Exception {
+        List<ChildJvm> children = new ArrayList<ChildJvm>();
+        for (int i = 0; i < PROCESSES; i++) {
+            children.add(ChildJvm.start(Worker.class, "concurrent", directory.getPath()));
+        }
+        Worker.sendConcurrent(directory);
+        for (ChildJvm child : children) {
+            child.await();
+        }
+
+        int[] stats = readStats(directory);
+        assertEquals(0, stats[0]);
+        assertEquals(MAX_CONCURRENT, stats[1]);
+        assertEquals((PROCESSES + 1) * THREADS * REQUESTS, stats[2]);
+    }
+
+    /**
+     * Threads of several processes print the time of each permit, the permits of all of them must follow the rate.
+     */
+    @Test
+    public void limitsRateOfThreadsAndProcesses() throws Exception {
+        List<ChildJvm> children = new ArrayList<ChildJvm>();
+        for (int i = 0; i < PROCESSES; i++) {
+            children.add(ChildJvm.start(Worker.class, "rate", directory.getPath()));
+        }
+        List<Long> times = new ArrayList<Long>(Worker.sendAtRate(directory));
+        for (ChildJvm child : children) {
+            for (String line : child.await().split("\n")) {
+                if (line.trim().length() > 0) {
+                    times.add(Long.parseLong(line.trim()));
+                }
+            }
+        }
+
+        assertEquals((PROCESSES + 1) * THREADS * REQUESTS, times.size());
+        Collections.sort(times);
+        // a burst of a single request, then one every 100 [msec]
+        long minimalSpan = (times.size() - 1) * 60000L / MAX_PER_MINUTE;
+        long span = times.get(times.size() - 1) - times.get(0);
+        assertTrue("span " + span + " [msec]", span >= minimalSpan * 9 / 10);
+    }
+
+    @Test
+    public void givesUpAfterMaximalWait() throws Exception {
+        HostRateLimiter limiter = new HostRateLimiter(directory, 1, 0, 200);
+        HostRateLimiter.Permit held = limiter.acquire();
+        assertTrue(held.isLimited());
+
+        HostRateLimiter.Permit waited = limiter.acquire();
+        assertFalse(waited.isLimited());
+        assertTrue(waited.getWaitMillis() >= 200);
+
+        held.release();
+        HostRateLimiter.Permit next = limiter.acquire();
+        assertTrue(next.isLimited());
+        next.release();
+    }
+
+    /* --- Private methods --- */
+
+    /**
+     * @return The requests in flight, the maximal requests in flight and the requests sent.
+     */
+    private static int[] readStats(File directory) throws IOException {
+        File file = new File(directory, "stats");
+        if (!file.isFile()) {
+            return new int[3];
+        }
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            return new int[]{input.readInt(), input.readInt(), input.readInt()};
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void writeStats(File directory, int[] stats) throws IOException {
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(new File(directory, "stats")));
+        try {
+            for (int value : stats) {
+                output.writeInt(value);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /* --- Nested classes --- */
+
+    /**
+     * The work of a process: {@code concurrent <directory>} or {@code rate <directory>}.
+     */
+    public static final class Worker {
+
+        public static void main(String[] args) throws Exception {
+            File directory = new File(args[1]);
+            if ("concurrent".equals(args[0])) {
+                sendConcurrent(directory);
+            } else {
+                for (long time : sendAtRate(directory)) {
+                    System.out.println(time);
+                }
+            }
+        }
+
+        static void sendConcurrent(final File directory) throws Exception {
+            final HostRateLimiter limiter = new HostRateLimiter(directory, MAX_CONCURRENT, 0, MAX_WAIT_MILLIS);
+            final CrossProcessLock statsLock = new CrossProcessLock(new File(directory, "stats.lock"), MAX_WAIT_MILLIS);
+            runThreads(new Request() {
+                @Override
+                public void send() throws Exception {
+                    HostRateLimiter.Permit permit = limiter.acquire();
+                    try {
+                        if (!permit.isLimited()) {
+                            throw new IOException("Permit given up on");
+                        }
+                        updateStats(1);
+                        Thread.sleep(20);
+                        updateStats(-1);
+                    } finally {
+                        permit.release();
+                    }
+                }
+
+                private void updateStats(int inFlight) throws IOException {
+                    CrossProcessLock.Lock lock = statsLock.acquire("stats");
+                    if (lock == null) {
+                        throw new IOException("Stats lock not acquired");
+                    }
+                    try {
+                        int[] stats = readStats(directory);
+                        stats[0] += inFlight;
+                        stats[1] = Math.max(stats[1], stats[0]);
+                        stats[2] += inFlight > 0 ? 1 : 0;
+                        writeStats(directory, stats);
+                    } finally {
+                        lock.release();
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return The times permits were given at.
+         */
+        static List<Long> sendAtRate(File directory) throws Exception {
+            final HostRateLimiter limiter = new HostRateLimiter(directory, 0, MAX_PER_MINUTE, MAX_WAIT_MILLIS);
+            final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+            runThreads(new Request() {
+                @Override
+                public void send() throws Exception {
+                    HostRateLimiter.Permit permit = limiter.acquire();
+                    times.add(System.currentTimeMillis());
+                    permit.release();
+                    if (!permit.isLimited()) {
+                        throw new IOException("Permit given up on");
+                    }
+                }
+            });
+            return times;
+        }
+
+        private static void runThreads(final Request request) throws Exception {
+            final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < THREADS; t++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < REQUESTS; i++) {
+                                request.send();
+                            }
+                        } catch (Exception e) {
+                            failure.set(e);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+    }
+
+    private interface Request {
+
+        void send() throws Exception;
+    }
+}
@@ -0,0 +1,136 @@
+package org.whitesource.maven.utils.dependencies.compact;
+
+import org.junit.Test;
+import org.whitesource.maven.utils.dependencies.AetherArtifact;
+import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.AetherExclusion;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.whitesource.maven.utils.dependencies.compact.CompactDependencyGraph.*;
+
+public class CompactDependencyGraphTest {
+
+    /* --- Tests --- */
+
+    @Test
+    public void poolsNullWithoutAddingIt() {
+        StringPool strings = new StringPool();
+
+        assertEquals(StringPool.NULL_ID, strings.add(null));
+        assertNull(strings.get(StringPool.NULL_ID));
+        assertEquals(strings.add("a"), strings.add(new String("a")));
+        assertEquals(1, strings.size());
+    }
+
+    @Test
+    public void keepsChildrenAndExclusionsOfEachNode() {
+        CompactDependencyGraph.Builder builder = new CompactDependencyGraph.Builder();
+        int a = builder.addNode("g", "a", "1.0", null, "jar", "compile", false);
+        int b = builder.addNode("g", "b", "1.0", null, "jar", "compile", false);
+        int c = builder.addNode("g", "c", "1.0", null, "jar", "runtime", true);
+        // edges and exclusions added out of node order
+        builder.addChild(b, c);
+        builder.addExclusion(b, "x", "y");
+        builder.addChild(a, b);
+        builder.addChild(a, c);
+        builder.addExclusion(a, "x", "z");
+        builder.addRoot(a);
+        CompactDependencyGraph graph = builder.build();
+
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(2, graph.getChildCount(a));
+        assertEquals(b, graph.getChild(a, 0));
+        assertEquals(c, graph.getChild(a, 1));
+        assertEquals(1, graph.getChildCount(b));
+        assertEquals(0, graph.getChildCount(c));
+        assertEquals("z", graph.getExclusionArtifactId(a, 0));
+        assertEquals("y", graph.getExclusionArtifactId(b, 0));
+        assertEquals("x", graph.getExclusionGroupId(b, 0));
+        assertEquals(0, graph.getExclusionCount(c));
+        assertTrue(graph.isOptional(c));
+        assertFalse(graph.isOptional(a));
+    }
+
+    /**
+     * The subtree of {@code b} is the child of both roots. Converting the view of the graph back must keep it a
+     * single node, and keep the fields that were never set null.
+     */
+    @Test
+    public void roundTripKeepsSharedSubtreesAndNullFields() {
+        CompactDependencyGraph.Builder builder = new CompactDependencyGraph.Builder();
+        int a = builder.addNode("g", "a", "1.0", null, "jar", "compile", false);
+        int x = builder.addNode("g", "x", "1.0", "tests", "jar", null, false);
+        int b = builder.addNode("g", "b", "2.0", null, "jar", "runtime", true);
+        int c = builder.addNode("g", "c", "3.0", null, null, null, false);
+        builder.setFile(b, new File("b-2.0.jar").getAbsolutePath(), "b-2.0.jar");
+        builder.addExclusion(b, "e", "f");
+        builder.addChild(a, b);
+        builder.addChild(x, b);
+        builder.addChild(b, c);
+        builder.addRoot(a);
+        builder.addRoot(x);
+        CompactDependencyGraph graph = builder.build();
+
+        CompactDependencyGraph copy = CompactDependencyGraph.fromAetherGraph(graph.getRootNode());
+
+        assertEquals(4, copy.getNodeCount());
+        int[] roots = copy.getRoots();
+        assertEquals(2, roots.length);
+        int copyA = roots[0];
+        int copyX = roots[1];
+        assertEquals("a", copy.getField(copyA, ARTIFACT_ID));
+        assertEquals("x", copy.getField(copyX, ARTIFACT_ID));
+        assertEquals("tests", copy.getField(copyX, CLASSIFIER));
+        assertNull(copy.getField(copyX, SCOPE));
+        assertNull(copy.getField(copyA, CLASSIFIER));
+        assertNull(copy.getField(copyA, FILE));
+
+        int copyB = copy.getChild(copyA, 0);
+        assertEquals(copyB, copy.getChild(copyX, 0));
+        assertEquals("b", copy.getField(copyB, ARTIFACT_ID));
+        assertEquals("2.0", copy.getField(copyB, VERSION));
+        assertEquals("runtime", copy.getField(copyB, SCOPE));
+        assertEquals(new File("b-2.0.jar").getAbsolutePath(), copy.getField(copyB, FILE));
+        assertEquals("b-2.0.jar", copy.getField(copyB, FILENAME));
+        assertTrue(copy.isOptional(copyB));
+        assertEquals(1, copy.getExclusionCount(copyB));
+        assertEquals("e", copy.getExclusionGroupId(copyB, 0));
+        assertEquals("f", copy.getExclusionArtifactId(copyB, 0));
+
+        int copyC = copy.getChild(copyB, 0);
+        assertEquals("c", copy.getField(copyC, ARTIFACT_ID));
+        assertNull(copy.getField(copyC, EXTENSION));
+        assertNull(copy.getField(copyC, SCOPE));
+        assertNull(copy.getField(copyC, SHA1));
+        assertEquals(0, copy.getChildCount(copyC));
+    }
+
+    @Test
+    public void viewsNodesAsAetherTree() {
+        CompactDependencyGraph.Builder builder = new CompactDependencyGraph.Builder();
+        int a = builder.addNode("g", "a", "1.0", null, "jar", "compile", false);
+        int b = builder.addNode("g", "b", "1.0", null, "jar", null, false);
+        builder.addExclusion(a, "e", "f");
+        builder.addChild(a, b);
+        builder.addRoot(a);
+
+        AetherDependencyNode root = builder.build().getRootNode();
+
+        assertNull(root.getDependency());
+        List<AetherDependencyNode> roots = root.getChildren();
+        assertEquals(1, roots.size());
+        AetherArtifact artifact = roots.get(0).getDependency().getArtifact();
+        assertEquals("a", artifact.getArtifactId());
+        assertNull(artifact.getClassifier());
+        assertNull(artifact.getFile());
+        AetherExclusion exclusion = roots.get(0).getDependency().getExclusions().iterator().next();
+        assertEquals("e", exclusion.getGroupId());
+        assertEquals("f", exclusion.getArtifactId());
+        AetherDependencyNode child = roots.get(0).getChildren().get(0);
+        assertNull(child.getDependency().getScope());
+        assertTrue(child.getChildren().isEmpty());
+    }
+}
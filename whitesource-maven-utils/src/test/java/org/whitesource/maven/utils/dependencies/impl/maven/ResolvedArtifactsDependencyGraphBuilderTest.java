@@ -0,0 +1,279 @@
+package org.whitesource.maven.utils.dependencies.impl.maven;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.internal.DefaultServiceLocator;
+import org.apache.maven.repository.internal.MavenRepositorySystemSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystem;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.impl.internal.SimpleLocalRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.whitesource.maven.utils.dependencies.AetherDependency;
+import org.whitesource.maven.utils.dependencies.AetherDependencyNode;
+import org.whitesource.maven.utils.dependencies.AetherExclusion;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the graph rebuilt from the artifacts of a project with the graph Aether resolves for it, from a local
+ * repository of poms.
+ */
+public class ResolvedArtifactsDependencyGraphBuilderTest {
+
+    /* --- Private Members --- */
+
+    private File repository;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createRepository() throws IOException {
+        repository = File.createTempFile("repository", "");
+        assertTrue(repository.delete() && repository.mkdir());
+    }
+
+    @After
+    public void deleteRepository() {
+        delete(repository);
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void matchesAetherScopes() throws Exception {
+        // transitive scopes are narrowed, test and provided dependencies of dependencies are left out
+        pom("a", dependency("b", "compile"), dependency("c", "runtime"), dependency("d", "test"), dependency("e", "provided"));
+        pom("b", dependency("f", null));
+        pom("c");
+        pom("f");
+        pom("g", dependency("b", "compile"));
+        pom("h");
+
+        assertSameGraph(project(dependency("a", "compile"), dependency("g", "test"), dependency("h", "provided")),
+                "a compile\n"
+                        + "  b compile\n"
+                        + "    f compile\n"
+                        + "  c runtime\n"
+                        + "g test\n"
+                        + "h provided\n");
+    }
+
+    @Test
+    public void matchesAetherExclusions() throws Exception {
+        pom("a", dependency("b", null), dependency("c", null));
+        pom("b", dependency("d", null));
+        pom("c");
+        pom("d");
+
+        Dependency a = dependency("a", "compile");
+        a.addExclusion(exclusion("c"));
+        a.addExclusion(exclusion("d"));
+        assertSameGraph(project(a),
+                "a compile [g:c, g:d]\n"
+                        + "  b compile\n");
+    }
+
+    @Test
+    public void matchesAetherOptionalDependencies() throws Exception {
+        // optional dependencies of dependencies are left out
+        Dependency optional = dependency("c", null);
+        optional.setOptional(true);
+        pom("a", dependency("b", null), optional);
+        pom("b");
+        pom("c");
+        pom("d", dependency("b", null));
+
+        Dependency d = dependency("d", "compile");
+        d.setOptional(true);
+        assertSameGraph(project(dependency("a", "compile"), d),
+                "a compile\n"
+                        + "  b compile\n"
+                        + "d compile optional\n");
+    }
+
+    @Test
+    public void keepsNearestOfConflictingVersions() throws Exception {
+        pom("a", dependency("b", null));
+        pom("b", dependency("c", null, "2.0"));
+        pom("c");
+        pom("c", "2.0");
+
+        assertSameGraph(project(dependency("a", "compile"), dependency("c", "compile")),
+                "a compile\n"
+                        + "  b compile\n"
+                        + "c compile\n");
+    }
+
+    @Test
+    public void givesUpWithoutDependencyTrails() {
+        MavenProject project = project(dependency("a", "compile"));
+        Artifact artifact = artifact("a", "1.0", "compile");
+        project.setArtifacts(Collections.singleton(artifact));
+
+        assertNull(new ResolvedArtifactsDependencyGraphBuilder(project).build());
+    }
+
+    /* --- Private methods --- */
+
+    private void assertSameGraph(MavenProject project, String expected) throws Exception {
+        DependencyNode resolved = collect(project);
+        // as maven sets the artifacts of the project after resolving its dependencies
+        Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+        RepositoryUtils.toArtifacts(artifacts, resolved.getChildren(),
+                Collections.singletonList(project.getArtifact().getId()), null);
+        project.setArtifacts(artifacts);
+
+        AetherDependencyNode rebuilt = new ResolvedArtifactsDependencyGraphBuilder(project).build();
+
+        assertNotNull(rebuilt);
+        StringBuilder aetherGraph = new StringBuilder();
+        describeAether(resolved.getChildren(), "", aetherGraph);
+        assertEquals(expected, aetherGraph.toString());
+        StringBuilder rebuiltGraph = new StringBuilder();
+        describe(rebuilt.getChildren(), "", rebuiltGraph);
+        assertEquals(expected, rebuiltGraph.toString());
+    }
+
+    private DependencyNode collect(MavenProject project) throws Exception {
+        RepositorySystem system = new DefaultServiceLocator().getService(RepositorySystem.class);
+        MavenRepositorySystemSession session = new MavenRepositorySystemSession();
+        session.setLocalRepositoryManager(new SimpleLocalRepositoryManager(repository));
+        session.setOffline(true);
+
+        CollectRequest request = new CollectRequest();
+        for (Dependency dependency : project.getDependencies()) {
+            request.addDependency(RepositoryUtils.toDependency(dependency, session.getArtifactTypeRegistry()));
+        }
+        request.setRepositories(Collections.<RemoteRepository>emptyList());
+        return system.collectDependencies(session, request).getRoot();
+    }
+
+    private static void describeAether(List<DependencyNode> nodes, String indent, StringBuilder graph) {
+        for (DependencyNode node : nodes) {
+            org.sonatype.aether.graph.Dependency dependency = node.getDependency();
+            List<String> exclusions = new ArrayList<String>();
+            for (org.sonatype.aether.graph.Exclusion exclusion : dependency.getExclusions()) {
+                exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+            }
+            appendNode(graph, indent, dependency.getArtifact().getArtifactId(), dependency.getScope(),
+                    dependency.isOptional(), exclusions);
+            describeAether(node.getChildren(), indent + "  ", graph);
+        }
+    }
+
+    private static void describe(List<AetherDependencyNode> nodes, String indent, StringBuilder graph) {
+        for (AetherDependencyNode node : nodes) {
+            AetherDependency dependency = node.getDependency();
+            List<String> exclusions = new ArrayList<String>();
+            for (AetherExclusion exclusion : dependency.getExclusions()) {
+                exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+            }
+            appendNode(graph, indent, dependency.getArtifact().getArtifactId(), dependency.getScope(),
+                    dependency.isOptional(), exclusions);
+            describe(node.getChildren(), indent + "  ", graph);
+        }
+    }
+
+    private static void appendNode(StringBuilder graph, String indent, String artifactId, String scope,
+                                   boolean optional, List<String> exclusions) {
+        graph.append(indent).append(artifactId).append(' ').append(scope);
+        if (optional) {
+            graph.append(" optional");
+        }
+        if (!exclusions.isEmpty()) {
+            Collections.sort(exclusions);
+            graph.append(' ').append(exclusions);
+        }
+        graph.append('\n');
+    }
+
+    private static MavenProject project(Dependency... dependencies) {
+        Model model = new Model();
+        model.setGroupId("g");
+        model.setArtifactId("project");
+        model.setVersion("1.0");
+        model.setDependencies(new ArrayList<Dependency>(Arrays.asList(dependencies)));
+        MavenProject project = new MavenProject(model);
+        project.setArtifact(artifact("project", "1.0", null));
+        return project;
+    }
+
+    private static Artifact artifact(String artifactId, String version, String scope) {
+        return new DefaultArtifact("g", artifactId, version, scope, "jar", null, new DefaultArtifactHandler("jar"));
+    }
+
+    private static Dependency dependency(String artifactId, String scope) {
+        return dependency(artifactId, scope, "1.0");
+    }
+
+    private static Dependency dependency(String artifactId, String scope, String version) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        dependency.setScope(scope);
+        return dependency;
+    }
+
+    private static Exclusion exclusion(String artifactId) {
+        Exclusion exclusion = new Exclusion();
+        exclusion.setGroupId("g");
+        exclusion.setArtifactId(artifactId);
+        return exclusion;
+    }
+
+    private void pom(String artifactId, Dependency... dependencies) throws IOException {
+        pom(artifactId, "1.0", dependencies);
+    }
+
+    private void pom(String artifactId, String version, Dependency... dependencies) throws IOException {
+        StringBuilder pom = new StringBuilder()
+                .append("<project><modelVersion>4.0.0</modelVersion>")
+                .append("<groupId>g</groupId><artifactId>").append(artifactId).append("</artifactId>")
+                .append("<version>").append(version).append("</version><dependencies>");
+        for (Dependency dependency : dependencies) {
+            pom.append("<dependency><groupId>g</groupId><artifactId>").append(dependency.getArtifactId())
+                    .append("</artifactId><version>").append(dependency.getVersion()).append("</version>");
+            if (dependency.getScope() != null) {
+                pom.append("<scope>").append(dependency.getScope()).append("</scope>");
+            }
+            if (dependency.isOptional()) {
+                pom.append("<optional>true</optional>");
+            }
+            pom.append("</dependency>");
+        }
+        pom.append("</dependencies></project>");
+
+        File directory = new File(repository, "g/" + artifactId + "/" + version);
+        assertTrue(directory.isDirectory() || directory.mkdirs());
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, artifactId + "-" + version + ".pom")), "UTF-8");
+        try {
+            writer.write(pom.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
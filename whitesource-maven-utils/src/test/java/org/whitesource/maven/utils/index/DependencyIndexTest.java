@@ -0,0 +1,165 @@
+package org.whitesource.maven.utils.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DependencyIndexTest {
+
+    /* --- Static members --- */
+
+    private static final String SHA1 = "0123456789abcdef0123456789abcdef01234567";
+
+    /* --- Private Members --- */
+
+    private File cacheDirectory;
+    private DependencyIndex index;
+
+    /* --- Setup --- */
+
+    @Before
+    public void createIndex() throws IOException {
+        cacheDirectory = File.createTempFile("cache", "");
+        assertTrue(cacheDirectory.delete() && cacheDirectory.mkdir());
+        index = new DependencyIndex(cacheDirectory);
+    }
+
+    @After
+    public void deleteIndex() {
+        delete(cacheDirectory);
+    }
+
+    /* --- Tests --- */
+
+    @Test
+    public void findsByGroupAndArtifact() throws IOException {
+        index.update("product", "g:app", "1.0", Arrays.asList(
+                entry("commons-io:commons-io:2.4", null, "commons-io:commons-io:2.4")));
+        index.update("product", "g:web", "1.0", Arrays.asList(
+                entry("commons-io:commons-io:2.6", null, "g:lib:1.0 > commons-io:commons-io:2.6")));
+
+        List<DependencyIndex.Match> matches = index.find("commons-io:commons-io");
+
+        assertEquals(Arrays.asList("g:app commons-io:commons-io:2.4", "g:web commons-io:commons-io:2.6"), describe(matches));
+        DependencyIndex.Match web = matches.get(0).getModule().equals("g:web") ? matches.get(0) : matches.get(1);
+        assertEquals("product", web.getProduct());
+        assertEquals("1.0", web.getModuleVersion());
+        assertEquals("compile", web.getEntry().getScope());
+        assertEquals("g:lib:1.0 > commons-io:commons-io:2.6", web.getEntry().getPath());
+    }
+
+    @Test
+    public void findsByVersion() throws IOException {
+        index.update("product", "g:app", "1.0", Arrays.asList(
+                entry("commons-io:commons-io:2.4", null, "commons-io:commons-io:2.4"),
+                entry("junit:junit:4.10", null, "junit:junit:4.10")));
+        index.update("product", "g:web", "1.0", Arrays.asList(
+                entry("commons-io:commons-io:2.6", null, "commons-io:commons-io:2.6")));
+
+        assertEquals(Collections.singletonList("g:app commons-io:commons-io:2.4"), describe(index.find("commons-io:commons-io:2.4")));
+        assertTrue(index.find("commons-io:commons-io:2.5").isEmpty());
+    }
+
+    @Test
+    public void findsBySha1InAnyCase() throws IOException {
+        index.update("product", "g:app", "1.0", Arrays.asList(
+                entry("g:renamed:1.0", SHA1.toUpperCase(), "g:renamed:1.0")));
+
+        List<DependencyIndex.Match> matches = index.find(SHA1.toUpperCase());
+
+        assertEquals(Collections.singletonList("g:app g:renamed:1.0"), describe(matches));
+        assertEquals(SHA1, matches.get(0).getEntry().getSha1());
+    }
+
+    @Test
+    public void removesStalePostingsOnUpdate() throws IOException {
+        index.update("product", "g:app", "1.0", Arrays.asList(
+                entry("commons-io:commons-io:2.4", SHA1, "commons-io:commons-io:2.4"),
+                entry("junit:junit:4.10", null, "junit:junit:4.10")));
+
+        int changed = index.update("product", "g:app", "1.1", Arrays.asList(
+                entry("junit:junit:4.10", null, "junit:junit:4.10")));
+
+        // commons-io:commons-io, commons-io:commons-io:2.4 and the SHA-1
+        assertEquals(3, changed);
+        assertTrue(index.find("commons-io:commons-io").isEmpty());
+        assertTrue(index.find("commons-io:commons-io:2.4").isEmpty());
+        assertTrue(index.find(SHA1).isEmpty());
+        for (String posting : readShards()) {
+            assertFalse(posting, posting.startsWith("commons-io:") || posting.startsWith(SHA1));
+        }
+        List<DependencyIndex.Match> matches = index.find("junit:junit");
+        assertEquals(Collections.singletonList("g:app junit:junit:4.10"), describe(matches));
+        assertEquals("1.1", matches.get(0).getModuleVersion());
+    }
+
+    @Test
+    public void changesNothingForUnchangedModule() throws IOException {
+        List<DependencyIndex.Entry> entries = Arrays.asList(entry("junit:junit:4.10", SHA1, "junit:junit:4.10"));
+        assertEquals(3, index.update("product", "g:app", "1.0", entries));
+
+        assertEquals(0, index.update("product", "g:app", "1.0", entries));
+    }
+
+    @Test
+    public void keepsModulesOfProductsApart() throws IOException {
+        List<DependencyIndex.Entry> entries = Arrays.asList(entry("junit:junit:4.10", null, "junit:junit:4.10"));
+        index.update("first", "g:app", "1.0", entries);
+        index.update("second", "g:app", "1.0", entries);
+
+        index.update("first", "g:app", "1.0", Collections.<DependencyIndex.Entry>emptyList());
+
+        List<DependencyIndex.Match> matches = index.find("junit:junit");
+        assertEquals(1, matches.size());
+        assertEquals("second", matches.get(0).getProduct());
+    }
+
+    /* --- Private methods --- */
+
+    private static DependencyIndex.Entry entry(String coordinates, String sha1, String path) {
+        return new DependencyIndex.Entry(coordinates, sha1, "compile", path);
+    }
+
+    private static List<String> describe(List<DependencyIndex.Match> matches) {
+        List<String> descriptions = new ArrayList<String>();
+        for (DependencyIndex.Match match : matches) {
+            descriptions.add(match.getModule() + " " + match.getEntry().getCoordinates());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private List<String> readShards() throws IOException {
+        List<String> postings = new ArrayList<String>();
+        File[] shards = new File(index.getDirectory(), "keys").listFiles();
+        if (shards != null) {
+            for (File shard : shards) {
+                Scanner scanner = new Scanner(shard, "UTF-8");
+                try {
+                    while (scanner.hasNextLine()) {
+                        postings.add(scanner.nextLine());
+                    }
+                } finally {
+                    scanner.close();
+                }
+            }
+        }
+        return postings;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
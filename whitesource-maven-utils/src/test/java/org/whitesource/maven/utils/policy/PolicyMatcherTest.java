@@ -0,0 +1,137 @@
+package org.whitesource.maven.utils.policy;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PolicyMatcherTest {
+
+    /* --- Static members --- */
+
+    private static final List<String> NO_LICENSES = Collections.emptyList();
+
+    /* --- Tests --- */
+
+    @Test
+    public void prefersUnindexedPolicyOfHigherPriority() {
+        LocalPolicy any = policy("any", null, null, null);
+        LocalPolicy group = policy("group", "org.example", null, null);
+        LocalPolicy coordinates = policy("coordinates", "org.example", "lib", null);
+
+        PolicyMatcher matcher = new PolicyMatcher(Arrays.asList(any, group, coordinates));
+
+        assertSame(any, matcher.match("org.example", "lib", "1.0", NO_LICENSES));
+    }
+
+    @Test
+    public void prefersGroupPolicyOfHigherPriority() {
+        LocalPolicy coordinates = policy("coordinates", "org.example", "lib", null);
+        LocalPolicy group = policy("group", "org.example", null, null);
+        LocalPolicy any = policy("any", "org.*", null, null);
+
+        assertSame(group, new PolicyMatcher(Arrays.asList(group, any, coordinates))
+                .match("org.example", "lib", "1.0", NO_LICENSES));
+        assertSame(coordinates, new PolicyMatcher(Arrays.asList(coordinates, group, any))
+                .match("org.example", "lib", "1.0", NO_LICENSES));
+        assertSame(any, new PolicyMatcher(Arrays.asList(any, coordinates, group))
+                .match("org.example", "lib", "1.0", NO_LICENSES));
+    }
+
+    @Test
+    public void fallsBackToLowerPriorityWhenCriteriaDontMatch() {
+        LocalPolicy oldVersions = policy("old versions", "org.example", "lib", "[,1.0)");
+        LocalPolicy groupLicense = new LocalPolicy("gpl", "Reject", "org.example", null, null, Arrays.asList("GPL*"));
+        LocalPolicy coordinates = policy("coordinates", "org.example", "lib", null);
+        LocalPolicy any = policy("any", null, null, null);
+
+        PolicyMatcher matcher = new PolicyMatcher(Arrays.asList(oldVersions, groupLicense, coordinates, any));
+
+        assertSame(oldVersions, matcher.match("org.example", "lib", "0.9", NO_LICENSES));
+        assertSame(groupLicense, matcher.match("org.example", "lib", "1.0", Arrays.asList("gpl v3")));
+        assertSame(coordinates, matcher.match("org.example", "lib", "1.0", NO_LICENSES));
+        assertSame(any, matcher.match("org.example", "other", "1.0", NO_LICENSES));
+        assertSame(any, matcher.match("com.example", "lib", "1.0", NO_LICENSES));
+    }
+
+    @Test
+    public void keepsPriorityWithinAnIndex() {
+        LocalPolicy first = policy("first", "org.example", "lib", "[1.0,2.0)");
+        LocalPolicy second = policy("second", "org.example", "lib", null);
+
+        PolicyMatcher matcher = new PolicyMatcher(Arrays.asList(first, second));
+
+        assertSame(first, matcher.match("org.example", "lib", "1.5", NO_LICENSES));
+        assertSame(second, matcher.match("org.example", "lib", "2.0", NO_LICENSES));
+    }
+
+    @Test
+    public void matchesPlainVersionExactly() {
+        PolicyMatcher matcher = new PolicyMatcher(Arrays.asList(policy("exact", "org.example", "lib", "1.0")));
+
+        assertNotNull(matcher.match("org.example", "lib", "1.0", NO_LICENSES));
+        assertNull(matcher.match("org.example", "lib", "1.1", NO_LICENSES));
+    }
+
+    @Test
+    public void returnsNullWithoutMatch() {
+        PolicyMatcher matcher = new PolicyMatcher(Arrays.asList(policy("group", "org.example", null, null)));
+
+        assertNull(matcher.match("com.example", "lib", "1.0", NO_LICENSES));
+        assertNull(new PolicyMatcher(Collections.<LocalPolicy>emptyList()).match("org.example", "lib", "1.0", NO_LICENSES));
+    }
+
+    /**
+     * Compares the indexed lookup with matching every policy in priority order.
+     */
+    @Test
+    public void matchesLikeLinearScan() {
+        Random random = new Random(42);
+        String[] groupIds = {"org.a", "org.b", "org.*", null};
+        String[] artifactIds = {"x", "y", "*x", null};
+        String[] versions = {"[1.0,2.0)", "2.0", null};
+        String[] licenses = {"MIT", "GPL*", null};
+        for (int round = 0; round < 200; round++) {
+            List<LocalPolicy> policies = new ArrayList<LocalPolicy>();
+            int count = 1 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                String license = pick(random, licenses);
+                policies.add(new LocalPolicy("policy" + i, "Reject", pick(random, groupIds), pick(random, artifactIds),
+                        pick(random, versions), license == null ? null : Collections.singletonList(license)));
+            }
+            PolicyMatcher matcher = new PolicyMatcher(policies);
+
+            for (String groupId : new String[] {"org.a", "org.b", "com.c"}) {
+                for (String artifactId : new String[] {"x", "y", "zx"}) {
+                    for (String version : new String[] {"1.5", "2.0", "3.0"}) {
+                        for (List<String> libraryLicenses : Arrays.asList(NO_LICENSES, Arrays.asList("MIT"), Arrays.asList("GPL v2"))) {
+                            assertSame(linearMatch(policies, groupId, artifactId, version, libraryLicenses),
+                                    matcher.match(groupId, artifactId, version, libraryLicenses));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* --- Private methods --- */
+
+    private static LocalPolicy policy(String name, String groupId, String artifactId, String versionRange) {
+        return new LocalPolicy(name, "Reject", groupId, artifactId, versionRange, null);
+    }
+
+    private static LocalPolicy linearMatch(List<LocalPolicy> policies, String groupId, String artifactId, String version,
+                                           Collection<String> licenses) {
+        for (LocalPolicy policy : policies) {
+            if (policy.matches(groupId, artifactId, version, licenses)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}